@@ -2,7 +2,9 @@ package com.pvmanagement;
 
 import javax.sql.DataSource;
 
+import org.flywaydb.core.Flyway;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -46,8 +48,23 @@ public class MultiDataSourceConfig {
         return new JdbcTemplate(dataSource);
     }
 
+    /**
+     * With {@code cache.flyway.enabled}, the cache database is migrated from {@code db/cache-migration} before
+     * anything uses it. Its history is kept in the cache database, apart from the main database's.
+     */
     @Bean
-    public JdbcTemplate cacheJdbcTemplate(@Qualifier("cacheDataSource") DataSource dataSource) {
+    public JdbcTemplate cacheJdbcTemplate(@Qualifier("cacheDataSource") DataSource dataSource,
+                                          @Value("${cache.flyway.enabled:false}") boolean migrate) {
+        if (migrate) {
+            Flyway.configure()
+                  .dataSource(dataSource)
+                  .locations("classpath:db/cache-migration")
+                  // caches set up by the init script have no history yet and start below V1
+                  .baselineOnMigrate(true)
+                  .baselineVersion("0")
+                  .load()
+                  .migrate();
+        }
         return new JdbcTemplate(dataSource);
     }
 }
@@ -1,6 +1,7 @@
 package com.pvmanagement;
 
 import com.pvmanagement.demoAccess.domain.DemoAccessException;
+import com.pvmanagement.panelSizeOptimizer.PsoInsufficientDataException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -27,6 +28,13 @@ public class RestExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
     }
 
+    @ExceptionHandler(PsoInsufficientDataException.class)
+    public ResponseEntity<Map<String, Object>> handleInsufficientData(PsoInsufficientDataException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(body);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidation(MethodArgumentNotValidException ex) {
         Map<String, Object> body = new HashMap<>();
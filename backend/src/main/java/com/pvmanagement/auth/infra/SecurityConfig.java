@@ -39,8 +39,10 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                         .requestMatchers("/api/auth/**").permitAll()       // login/register/refresh/logout/demo-login
+                        .requestMatchers("/actuator/backfill").hasRole("ADMIN")
                         .requestMatchers("/actuator/**", "/v3/api-docs/**", "/swagger-ui.html", "/swagger-ui/**").permitAll()
                         .requestMatchers("/api/sems/sync").hasRole("ADMIN")
+                        .requestMatchers("/api/ingestion/backfill").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .logout(LogoutConfigurer::disable)
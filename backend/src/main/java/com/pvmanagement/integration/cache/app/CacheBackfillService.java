@@ -0,0 +1,300 @@
+package com.pvmanagement.integration.cache.app;
+
+import com.pvmanagement.integration.cache.domain.CacheBackfillProgress;
+import com.pvmanagement.integration.cache.domain.IngestionCursor;
+import com.pvmanagement.integration.cache.infra.ExternalApiCacheRepository;
+import com.pvmanagement.integration.cache.infra.IngestionStateRepository;
+import com.pvmanagement.monitoring.app.DiurnalProfileService;
+import com.pvmanagement.monitoring.app.PowerflowRollupService;
+import com.pvmanagement.monitoring.domain.PowerflowSnapshot;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Re-ingests a range of the cache, e.g. after a parser fix, without touching the regular ingestion cursor.
+ * <p>
+ * The range is split by {@code fetched_at} into partitions of {@code app.ingestion.backfill.partition-length} that
+ * are ingested in parallel on {@code app.ingestion.backfill.parallelism} workers, chunk by chunk like the regular
+ * ingestion. Every partition commits its own checkpoint with each chunk, so backfilling the same range again after
+ * a failure or restart resumes where each partition stopped; the checkpoints are removed once all partitions are
+ * done. Snapshots that are already stored are kept, only missing ones are added.
+ * <p>
+ * An overwrite replaces stored snapshots with the re-parsed values instead. Replaced rows keep their id and are not
+ * added to the diurnal profiles, so once the partitions are done the rollup buckets of every rewritten station and
+ * time range are recomputed and its profile is rebuilt. This only covers what the run itself rewrote, which is why
+ * an overwrite does not resume from checkpoints but always starts at the beginning of the range.
+ * <p>
+ * Rollups are paused while the backfill runs, parallel writers make snapshot ids visible out of order.
+ */
+@Service
+@Profile("!collector")
+@ConditionalOnProperty(value = "app.ingestion.enabled", havingValue = "true", matchIfMissing = true)
+public class CacheBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheBackfillService.class);
+    private static final String CHECKPOINT_PREFIX = "cache_backfill:";
+
+    private final ExternalApiCacheRepository cacheRepository;
+    private final IngestionStateRepository ingestionStateRepository;
+    private final CacheIngestionService cacheIngestionService;
+    private final ObjectProvider<PowerflowRollupService> rollupService;
+    private final DiurnalProfileService diurnalProfileService;
+    private final int parallelism;
+    private final Duration partitionLength;
+    private final int chunkSize;
+    private final AtomicReference<Run> current = new AtomicReference<>();
+
+    public CacheBackfillService(ExternalApiCacheRepository cacheRepository,
+                                IngestionStateRepository ingestionStateRepository,
+                                CacheIngestionService cacheIngestionService,
+                                ObjectProvider<PowerflowRollupService> rollupService,
+                                DiurnalProfileService diurnalProfileService,
+                                @Value("${app.ingestion.backfill.parallelism:4}") int parallelism,
+                                @Value("${app.ingestion.backfill.partition-length:P1D}") Duration partitionLength,
+                                @Value("${app.ingestion.chunk-size:500}") int chunkSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("app.ingestion.backfill.parallelism must be at least 1");
+        }
+        if (partitionLength.isNegative() || partitionLength.isZero()) {
+            throw new IllegalArgumentException("app.ingestion.backfill.partition-length must be positive");
+        }
+        this.cacheRepository = cacheRepository;
+        this.ingestionStateRepository = ingestionStateRepository;
+        this.cacheIngestionService = cacheIngestionService;
+        this.rollupService = rollupService;
+        this.diurnalProfileService = diurnalProfileService;
+        this.parallelism = parallelism;
+        this.partitionLength = partitionLength;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Starts backfilling the entries fetched in {@code [from, to)} in the background, keeping stored snapshots.
+     *
+     * @return completes with the final progress once all partitions have finished
+     * @throws IllegalStateException if a backfill is already running
+     */
+    public CompletableFuture<CacheBackfillProgress> start(Instant from, Instant to) {
+        return start(from, to, false);
+    }
+
+    /**
+     * Starts backfilling the entries fetched in {@code [from, to)} in the background.
+     *
+     * @param overwrite whether stored snapshots are replaced by the re-parsed values
+     * @return completes with the final progress once all partitions have finished
+     * @throws IllegalStateException if a backfill is already running
+     */
+    public CompletableFuture<CacheBackfillProgress> start(Instant from, Instant to, boolean overwrite) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("Backfill range needs 'from' before 'to'");
+        }
+        var partitions = partition(from, to);
+        var previous = current.get();
+        var run = new Run(from, to, overwrite, partitions.size(),
+                Executors.newFixedThreadPool(Math.min(parallelism, partitions.size()), workerThreads()));
+        if ((previous != null && previous.isRunning()) || !current.compareAndSet(previous, run)) {
+            run.workers.shutdown();
+            throw new IllegalStateException("A backfill is already running");
+        }
+        log.info("Backfilling cache entries fetched in [{}, {}) in {} partition(s){}", from, to, partitions.size(),
+                overwrite ? ", overwriting stored snapshots" : "");
+
+        var rollups = rollupService.getIfAvailable();
+        var paused = CompletableFuture.runAsync(() -> {
+            if (rollups != null) {
+                rollups.pause();
+            }
+        }, run.workers);
+        var partitionRuns = partitions.stream()
+                .map(partition -> paused.thenRunAsync(() -> backfill(run, partition), run.workers))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(partitionRuns)
+                .handle((ignored, error) -> finish(run, partitions, rollups != null && !paused.isCompletedExceptionally()
+                        ? rollups
+                        : null));
+    }
+
+    public Optional<CacheBackfillProgress> progress() {
+        return Optional.ofNullable(current.get()).map(Run::progress);
+    }
+
+    @PreDestroy
+    void stop() {
+        var run = current.get();
+        if (run != null && run.isRunning()) {
+            // interrupted partitions resume from their checkpoints when the range is backfilled again
+            run.workers.shutdownNow();
+        }
+    }
+
+    private void backfill(Run run, Partition partition) {
+        var checkpointId = checkpointId(partition);
+        try {
+            IngestionCursor cursor = run.overwrite
+                    ? null
+                    : ingestionStateRepository.findCursor(checkpointId).orElse(null);
+            while (true) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new IllegalStateException("Backfill was interrupted");
+                }
+                var chunk = cacheRepository.findChunkBetween(partition.from(), partition.to(), cursor, chunkSize);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                IngestionCursor next = IngestionCursor.after(chunk.get(chunk.size() - 1));
+                var written = cacheIngestionService.ingestChunk(chunk, checkpointId, next, run.overwrite);
+                if (run.overwrite) {
+                    written.forEach(run::rewrote);
+                }
+                run.entriesProcessed.addAndGet(chunk.size());
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+                cursor = next;
+            }
+            run.partitionsDone.incrementAndGet();
+        } catch (Exception ex) {
+            run.partitionsFailed.incrementAndGet();
+            log.warn("Backfill of cache entries fetched in [{}, {}) failed: {}",
+                    partition.from(), partition.to(), ex.getMessage());
+        }
+    }
+
+    private CacheBackfillProgress finish(Run run, List<Partition> partitions, PowerflowRollupService pausedRollups) {
+        // also after a failure, the partitions that did run may have rewritten snapshots
+        recomputeRewritten(run);
+        try {
+            if (run.partitionsFailed.get() == 0) {
+                partitions.forEach(partition -> ingestionStateRepository.delete(checkpointId(partition)));
+            }
+        } catch (Exception ex) {
+            log.warn("Failed to remove backfill checkpoints: {}", ex.getMessage());
+        } finally {
+            if (pausedRollups != null) {
+                pausedRollups.resume();
+            }
+            run.workers.shutdown();
+            run.finishedAt = Instant.now();
+        }
+        var progress = run.progress();
+        log.info("Backfill of [{}, {}) {}: {} entries, {} of {} partition(s) failed", run.from, run.to,
+                progress.state(), progress.entriesProcessed(), progress.partitionsFailed(), progress.partitions());
+        return progress;
+    }
+
+    private void recomputeRewritten(Run run) {
+        var rollups = rollupService.getIfAvailable();
+        run.rewritten.forEach((powerStationId, range) -> {
+            try {
+                if (rollups != null) {
+                    rollups.recompute(powerStationId, range.from(), range.to());
+                }
+                diurnalProfileService.requestRebuild(powerStationId);
+            } catch (Exception ex) {
+                log.warn("Failed to recompute rollups and profile of power station {} in [{}, {}]: {}",
+                        powerStationId, range.from(), range.to(), ex.getMessage());
+            }
+        });
+    }
+
+    private List<Partition> partition(Instant from, Instant to) {
+        List<Partition> partitions = new ArrayList<>();
+        for (var start = from; start.isBefore(to); start = start.plus(partitionLength)) {
+            var end = start.plus(partitionLength);
+            partitions.add(new Partition(start, end.isBefore(to) ? end : to));
+        }
+        return partitions;
+    }
+
+    private static String checkpointId(Partition partition) {
+        return CHECKPOINT_PREFIX + partition.from() + "/" + partition.to();
+    }
+
+    private static ThreadFactory workerThreads() {
+        var count = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, "cache-backfill-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private record Partition(Instant from, Instant to) {
+    }
+
+    // measurement time range of the snapshots a run rewrote for one station
+    private record Range(OffsetDateTime from, OffsetDateTime to) {
+
+        private Range span(Range other) {
+            return new Range(from.isBefore(other.from) ? from : other.from, to.isAfter(other.to) ? to : other.to);
+        }
+    }
+
+    private static final class Run {
+        private final Instant from;
+        private final Instant to;
+        private final boolean overwrite;
+        private final int partitions;
+        private final ExecutorService workers;
+        private final Instant startedAt = Instant.now();
+        private final AtomicInteger partitionsDone = new AtomicInteger();
+        private final AtomicInteger partitionsFailed = new AtomicInteger();
+        private final AtomicLong entriesProcessed = new AtomicLong();
+        private final Map<Long, Range> rewritten = new ConcurrentHashMap<>();
+        private volatile Instant finishedAt;
+
+        private Run(Instant from, Instant to, boolean overwrite, int partitions, ExecutorService workers) {
+            this.from = from;
+            this.to = to;
+            this.overwrite = overwrite;
+            this.partitions = partitions;
+            this.workers = workers;
+        }
+
+        private void rewrote(PowerflowSnapshot snapshot) {
+            var at = snapshot.getPowerflowTimestamp();
+            rewritten.merge(snapshot.getPowerStation().getId(), new Range(at, at), Range::span);
+        }
+
+        private boolean isRunning() {
+            return finishedAt == null;
+        }
+
+        private CacheBackfillProgress progress() {
+            var finished = finishedAt;
+            CacheBackfillProgress.State state;
+            if (finished == null) {
+                state = CacheBackfillProgress.State.RUNNING;
+            } else if (partitionsFailed.get() > 0 || partitionsDone.get() < partitions) {
+                state = CacheBackfillProgress.State.FAILED;
+            } else {
+                state = CacheBackfillProgress.State.COMPLETED;
+            }
+            return new CacheBackfillProgress(from, to, state, partitions, partitionsDone.get(),
+                    partitionsFailed.get(), entriesProcessed.get(), startedAt, finished);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.pvmanagement.integration.cache.app;
+
+import com.pvmanagement.integration.cache.infra.ExternalApiCacheRepository;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Triggers cache ingestion as soon as the collector writes to the cache, instead of waiting for the next poll.
+ * <p>
+ * Holds one dedicated connection to the cache database (outside the pool, LISTEN is bound to the session) and
+ * blocks on it for notifications. Notifications that arrive while an ingestion run is in progress are drained in one
+ * go afterwards, so bursts collapse into a single run. When the connection breaks it is re-established with backoff
+ * and one ingestion run catches up on anything missed in between; the scheduled poll stays in place as a fallback.
+ */
+@Component
+@Profile("!collector")
+@ConditionalOnProperty(value = {"app.ingestion.enabled", "app.ingestion.listen.enabled"}, havingValue = "true",
+        matchIfMissing = true)
+public class CacheChangeListener implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheChangeListener.class);
+    private static final int POLL_TIMEOUT_MILLIS = 10_000;
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(1);
+
+    private final CacheIngestionService cacheIngestionService;
+    private final DataSourceProperties cacheDataSourceProperties;
+    private final Duration reconnectDelay;
+    private volatile boolean running;
+    private volatile Thread thread;
+    private volatile Connection connection;
+
+    public CacheChangeListener(CacheIngestionService cacheIngestionService,
+                               @Qualifier("cacheDataSourceProperties") DataSourceProperties cacheDataSourceProperties,
+                               @Value("${app.ingestion.listen.reconnect-delay:PT5S}") Duration reconnectDelay) {
+        this.cacheIngestionService = cacheIngestionService;
+        this.cacheDataSourceProperties = cacheDataSourceProperties;
+        this.reconnectDelay = reconnectDelay;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this::listen, "cache-change-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        var listenerThread = thread;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+        closeConnection();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        Duration backoff = reconnectDelay;
+        while (running) {
+            try {
+                connection = DriverManager.getConnection(cacheDataSourceProperties.determineUrl(),
+                        cacheDataSourceProperties.determineUsername(),
+                        cacheDataSourceProperties.determinePassword());
+                try (var statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + ExternalApiCacheRepository.CHANGE_CHANNEL);
+                }
+                log.info("Listening for cache changes on {}", ExternalApiCacheRepository.CHANGE_CHANNEL);
+                backoff = reconnectDelay;
+                // catch up on whatever was written while no one was listening
+                ingest();
+
+                var pgConnection = connection.unwrap(PGConnection.class);
+                while (running) {
+                    var notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                    if (notifications != null && notifications.length > 0) {
+                        ingest();
+                    }
+                }
+            } catch (SQLException ex) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache change listener lost its connection, reconnecting in {}: {}", backoff, ex.getMessage());
+                closeConnection();
+                if (!sleep(backoff)) {
+                    return;
+                }
+                var doubled = backoff.multipliedBy(2);
+                backoff = doubled.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : doubled;
+            }
+        }
+        closeConnection();
+    }
+
+    private void ingest() {
+        try {
+            cacheIngestionService.ingestFromCache();
+        } catch (RuntimeException ex) {
+            log.warn("Cache ingestion triggered by notification failed: {}", ex.getMessage());
+        }
+    }
+
+    private boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void closeConnection() {
+        var current = connection;
+        connection = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (SQLException ex) {
+                log.debug("Failed to close cache listener connection: {}", ex.getMessage());
+            }
+        }
+    }
+}
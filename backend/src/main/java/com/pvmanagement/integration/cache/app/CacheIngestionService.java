@@ -1,23 +1,39 @@
 package com.pvmanagement.integration.cache.app;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.pvmanagement.integration.cache.domain.ExternalApiCacheEntry;
+import com.pvmanagement.integration.cache.domain.IngestionCursor;
+import com.pvmanagement.integration.cache.infra.CachePayloadCodec;
 import com.pvmanagement.integration.cache.infra.ExternalApiCacheRepository;
+import com.pvmanagement.integration.sems.domain.SemsMonitorReader;
+import com.pvmanagement.integration.sems.domain.SemsPowerflow;
+import com.pvmanagement.integration.sems.domain.SemsStationInfo;
+import com.pvmanagement.integration.sems.domain.SemsValues;
 import com.pvmanagement.monitoring.domain.PowerStation;
 import com.pvmanagement.monitoring.domain.PowerflowSnapshot;
-import com.pvmanagement.monitoring.domain.SemSyncLog;
 import com.pvmanagement.integration.cache.infra.IngestionStateRepository;
+import com.pvmanagement.monitoring.app.LatestMeasurementCache;
+import com.pvmanagement.monitoring.app.SemSyncLogRecorder;
+import com.pvmanagement.monitoring.domain.DiurnalMetric;
+import com.pvmanagement.monitoring.domain.DiurnalProfileKey;
+import com.pvmanagement.monitoring.domain.SemSyncStatus;
+import com.pvmanagement.monitoring.infra.DiurnalProfileRepository;
 import com.pvmanagement.monitoring.infra.PowerStationRepository;
+import com.pvmanagement.monitoring.infra.PowerflowSnapshotBatchRepository;
 import com.pvmanagement.monitoring.infra.PowerflowSnapshotRepository;
-import com.pvmanagement.monitoring.infra.SemSyncLogRepository;
+import com.pvmanagement.timeSeriesStatistics.DiurnalSlots;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.*;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -25,6 +41,10 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 @Profile("!collector")
@@ -32,174 +52,383 @@ import org.springframework.stereotype.Service;
 public class CacheIngestionService {
 
     private static final Logger log = LoggerFactory.getLogger(CacheIngestionService.class);
-    private static final Pattern FIRST_NUMBER = Pattern.compile("[-+]?\\d{1,3}(?:[\\d.,]*\\d)?");
     private static final DateTimeFormatter FMT_DAY = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
 
     private final ExternalApiCacheRepository cacheRepository;
     private final PowerStationRepository powerStationRepository;
     private final PowerflowSnapshotRepository powerflowSnapshotRepository;
-    private final SemSyncLogRepository semSyncLogRepository;
+    private final SemSyncLogRecorder semSyncLogRecorder;
+    private final LatestMeasurementCache latestMeasurementCache;
     private final IngestionStateRepository ingestionStateRepository;
-    private final ObjectMapper objectMapper;
+    private final DiurnalProfileRepository diurnalProfileRepository;
+    private final PowerflowSnapshotBatchRepository powerflowSnapshotBatchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CachePayloadCodec payloadCodec;
     private final String cursorId;
+    private final boolean batchEnabled;
+    private final int chunkSize;
+    private final ReentrantLock ingestionLock = new ReentrantLock();
+    private final ReentrantLock stationLock = new ReentrantLock();
+    private final AtomicBoolean rerunRequested = new AtomicBoolean();
+    // last written info per station name; station metadata rarely changes, so most entries skip the station write
+    private final Cache<String, KnownStation> knownStations = Caffeine.newBuilder()
+                                                                      .maximumSize(10_000)
+                                                                      .build();
 
     public CacheIngestionService(ExternalApiCacheRepository cacheRepository,
             PowerStationRepository powerStationRepository,
             PowerflowSnapshotRepository powerflowSnapshotRepository,
-            SemSyncLogRepository semSyncLogRepository,
+            SemSyncLogRecorder semSyncLogRecorder,
+            LatestMeasurementCache latestMeasurementCache,
             IngestionStateRepository ingestionStateRepository,
-            ObjectMapper objectMapper,
-            @Value("${app.ingestion.cursor-id:cache_ingestion_global}") String cursorId) {
+            DiurnalProfileRepository diurnalProfileRepository,
+            PowerflowSnapshotBatchRepository powerflowSnapshotBatchRepository,
+            PlatformTransactionManager transactionManager,
+            CachePayloadCodec payloadCodec,
+            @Value("${app.ingestion.cursor-id:cache_ingestion_global}") String cursorId,
+            @Value("${app.ingestion.batch.enabled:false}") boolean batchEnabled,
+            @Value("${app.ingestion.chunk-size:500}") int chunkSize) {
         this.cacheRepository = cacheRepository;
         this.powerStationRepository = powerStationRepository;
         this.powerflowSnapshotRepository = powerflowSnapshotRepository;
-        this.semSyncLogRepository = semSyncLogRepository;
+        this.semSyncLogRecorder = semSyncLogRecorder;
+        this.latestMeasurementCache = latestMeasurementCache;
         this.ingestionStateRepository = ingestionStateRepository;
-        this.objectMapper = objectMapper;
+        this.diurnalProfileRepository = diurnalProfileRepository;
+        this.powerflowSnapshotBatchRepository = powerflowSnapshotBatchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.payloadCodec = payloadCodec;
         this.cursorId = cursorId;
+        this.batchEnabled = batchEnabled;
+        this.chunkSize = chunkSize;
     }
 
+    /**
+     * Ingests everything that is new in the cache. Called by the fallback poll and by {@link CacheChangeListener}; a
+     * call that arrives while a run is in progress is not dropped but makes that run go again once it is done.
+     */
     @Scheduled(fixedDelayString = "${app.ingestion.interval:PT5M}")
     public void ingestFromCache() {
-        Instant cursor = ingestionStateRepository.findLastFetchedAt(cursorId).orElse(null);
-        List<ExternalApiCacheEntry> entries = cacheRepository.findAllNewerThan(cursor);
-        if (entries.isEmpty()) {
-            return;
+        rerunRequested.set(true);
+        while (rerunRequested.get() && ingestionLock.tryLock()) {
+            try {
+                if (rerunRequested.getAndSet(false)) {
+                    ingestPending();
+                }
+            } finally {
+                ingestionLock.unlock();
+            }
         }
+    }
 
-        Instant maxFetched = cursor;
+    /**
+     * Catches up with the cache in chunks of {@code app.ingestion.chunk-size} entries. The cursor advances after every
+     * chunk, so a crash or restart during a long catch-up resumes at the last committed chunk.
+     */
+    private void ingestPending() {
+        IngestionCursor cursor = ingestionStateRepository.findCursor(cursorId).orElse(null);
+        while (true) {
+            List<ExternalApiCacheEntry> chunk = cacheRepository.findChunkAfter(cursor, chunkSize);
+            if (chunk.isEmpty()) {
+                return;
+            }
+            IngestionCursor next = IngestionCursor.after(chunk.get(chunk.size() - 1));
+            try {
+                if (batchEnabled) {
+                    ingestChunkOrSplit(chunk);
+                }
+                else {
+                    ingestOneByOne(chunk);
+                    ingestionStateRepository.upsertCursor(cursorId, next);
+                }
+            } catch (Exception ex) {
+                // only the cursor could not be stored, the chunk is retried from the same cursor on the next run
+                log.warn("Failed to ingest chunk of {} cache entries: {}", chunk.size(), ex.getMessage());
+                return;
+            }
+            if (chunk.size() < chunkSize) {
+                return;
+            }
+            cursor = next;
+        }
+    }
+
+    // a chunk that fails as a whole, e.g. on one value that does not fit its column, is split in halves until the bad
+    // entries are isolated, so only they are skipped instead of the chunk blocking the cursor on every run, and the
+    // rest is still written set-based
+    private void ingestChunkOrSplit(List<ExternalApiCacheEntry> chunk) {
+        IngestionCursor next = IngestionCursor.after(chunk.get(chunk.size() - 1));
+        try {
+            ingestChunk(chunk, cursorId, next, false);
+        } catch (Exception ex) {
+            if (chunk.size() == 1) {
+                log.warn("Failed to ingest cache entry {}: {}", chunk.get(0).cacheKey(), ex.getMessage());
+                ingestionStateRepository.upsertCursor(cursorId, next);
+                return;
+            }
+            log.debug("Failed to ingest chunk of {} cache entries, splitting it: {}", chunk.size(), ex.getMessage());
+            int half = chunk.size() / 2;
+            ingestChunkOrSplit(chunk.subList(0, half));
+            ingestChunkOrSplit(chunk.subList(half, chunk.size()));
+        }
+    }
+
+    private void ingestOneByOne(List<ExternalApiCacheEntry> entries) {
         for (ExternalApiCacheEntry entry : entries) {
             try {
                 ingestEntry(entry);
-                if (maxFetched == null || entry.fetchedAt().isAfter(maxFetched)) {
-                    maxFetched = entry.fetchedAt();
+            } catch (Exception ex) {
+                log.warn("Failed to ingest cache entry {}: {}", entry.cacheKey(), ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Parses a chunk of entries up front and writes it set-based: one upsert per distinct station, one multi-row
+     * snapshot insert that skips known timestamps, and the samples of all touched profile slots merged in memory and
+     * written at once. The cursor {@code next}
+     * is stored under {@code checkpointId} in the same transaction as the snapshots.
+     * <p>
+     * With {@code overwrite}, snapshots with known timestamps replace the stored values instead, and no samples are
+     * added to the diurnal profile, since replaced rows were already counted; the caller has to rebuild the profiles
+     * and recompute the rollups of the returned snapshots.
+     * <p>
+     * Safe to call from several threads at once, e.g. by {@link CacheBackfillService}: stations are written in their
+     * own transaction under a lock, so a new station is created only once, and profile rows are always updated in
+     * the same order.
+     */
+    public List<PowerflowSnapshot> ingestChunk(List<ExternalApiCacheEntry> chunk,
+                                               String checkpointId,
+                                               IngestionCursor next,
+                                               boolean overwrite) {
+        List<ParsedEntry> parsed = new ArrayList<>(chunk.size());
+        for (ExternalApiCacheEntry entry : chunk) {
+            try {
+                var parsedEntry = parseEntry(entry);
+                if (parsedEntry != null) {
+                    parsed.add(parsedEntry);
                 }
             } catch (Exception ex) {
                 log.warn("Failed to ingest cache entry {}: {}", entry.cacheKey(), ex.getMessage());
             }
         }
 
-        if (maxFetched != null) {
-            ingestionStateRepository.upsert(cursorId, maxFetched);
+        var stations = persistStations(parsed);
+        List<PowerflowSnapshot> written;
+        try {
+            written = transactionTemplate.execute(status -> {
+                var snapshots = persistChunk(parsed, stations, overwrite);
+                ingestionStateRepository.upsertCursor(checkpointId, next);
+                return snapshots;
+            });
+        } catch (RuntimeException ex) {
+            knownStations.invalidateAll(stations.keySet());
+            throw ex;
+        }
+        written.forEach(snapshot -> latestMeasurementCache.offer(snapshot.getPowerStation().getId(), snapshot));
+        return written;
+    }
+
+    private Map<String, PowerStation> persistStations(List<ParsedEntry> parsed) {
+        if (parsed.isEmpty()) {
+            return Map.of();
+        }
+        // the newest station info of the chunk wins, like it would when entries are ingested in order
+        Map<String, SemsStationInfo> stationInfos = new LinkedHashMap<>();
+        for (var entry : parsed) {
+            stationInfos.put(entry.info().stationname(), entry.info());
+        }
+        stationLock.lock();
+        try {
+            return transactionTemplate.execute(status -> {
+                Map<String, PowerStation> stations = new HashMap<>();
+                for (var stationInfo : stationInfos.values()) {
+                    stations.put(stationInfo.stationname(), persistPowerStation(stationInfo));
+                }
+                return stations;
+            });
+        } finally {
+            stationLock.unlock();
+        }
+    }
+
+    private List<PowerflowSnapshot> persistChunk(List<ParsedEntry> parsed,
+                                                 Map<String, PowerStation> stations,
+                                                 boolean overwrite) {
+        if (parsed.isEmpty()) {
+            return List.of();
+        }
+        List<PowerflowSnapshot> snapshots = new ArrayList<>(parsed.size());
+        for (var entry : parsed) {
+            if (entry.powerflow() == null) {
+                continue;
+            }
+            var station = stations.get(entry.info().stationname());
+            snapshots.add(toSnapshot(station, entry.powerflow(), entry.measuredAt()));
+        }
+        List<PowerflowSnapshot> written;
+        if (overwrite) {
+            written = powerflowSnapshotBatchRepository.upsert(snapshots);
+        }
+        else {
+            written = powerflowSnapshotBatchRepository.insertIgnoringDuplicates(snapshots);
+            accumulateDiurnalProfile(written);
+        }
+
+        for (var station : stations.values()) {
+            semSyncLogRecorder.record(station.getId(), SemSyncStatus.SUCCESS, null);
         }
+        return written;
     }
 
     private void ingestEntry(ExternalApiCacheEntry entry) throws IOException {
+        var parsed = parseEntry(entry);
+        if (parsed == null) {
+            return;
+        }
+        PowerStation station = persistPowerStation(parsed.info());
+        persistPowerflowSnapshot(station, parsed.info().stationname(), parsed.powerflow(), parsed.measuredAt());
+        semSyncLogRecorder.record(station.getId(), SemSyncStatus.SUCCESS, null);
+    }
+
+    /**
+     * @return the parts of the payload that are ingested, or {@code null} if the entry is skipped
+     */
+    private ParsedEntry parseEntry(ExternalApiCacheEntry entry) throws IOException {
         if (entry.statusCode() != null && entry.statusCode() >= 400) {
             log.debug("Skipping cache entry {} due to upstream status {}", entry.cacheKey(), entry.statusCode());
-            return;
+            return null;
         }
-        if (entry.responseJson() == null) {
+        if (entry.payload() == null || entry.payload().isEmpty()) {
             log.debug("Skipping cache entry {} without payload", entry.cacheKey());
-            return;
+            return null;
+        }
+        SemsMonitorReader.Monitor monitor;
+        try (var parser = payloadCodec.parser(entry.payload())) {
+            monitor = SemsMonitorReader.read(parser);
+        }
+        if (monitor.info() == null) {
+            throw new IllegalStateException("SEMS station data missing");
         }
-        JsonNode root = objectMapper.readTree(entry.responseJson());
-        JsonNode data = root.path("data");
-        PowerStation station = persistPowerStation(data.path("info"));
 
-        OffsetDateTime tspMeasurement =
-                LocalDateTime.parse(data.path("info").path("time").asText(null),
-                        DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm:ss")).atZone(ZoneId.of("Europe/Vienna"))
-                        .toOffsetDateTime();
+        OffsetDateTime tspMeasurement = SemsValues.stationTime(monitor.info().time());
 
-        persistPowerflowSnapshot(station, data.path("powerflow"), tspMeasurement);
-        recordSync(station, "SUCCESS", null);
+        return new ParsedEntry(monitor.info(), monitor.powerflow(), tspMeasurement);
     }
 
-    private PowerStation persistPowerStation(JsonNode stationNode) {
-        if (stationNode.isMissingNode()) {
-            throw new IllegalStateException("SEMS station data missing");
+    /**
+     * Writes the station only when its info differs from what was last written; otherwise returns a reference that
+     * carries just the id, which is all snapshots and sync logs need. A remembered id is forgotten when writing
+     * snapshots for it fails, so a stale id is looked up again on the retry.
+     */
+    private PowerStation persistPowerStation(SemsStationInfo info) {
+        var known = knownStations.getIfPresent(info.stationname());
+        if (known != null && known.info().equals(info.withoutTime())) {
+            return powerStationRepository.getReferenceById(known.id());
         }
-        String stationName = stationNode.path("stationname").asText();
+
+        String stationName = info.stationname();
         var station = powerStationRepository.findByStationname(stationName).orElseGet(PowerStation::new);
         station.setStationname(stationName);
-        station.setAddress(stationNode.path("address").asText(null));
-        station.setLatitude(asDouble(stationNode.path("latitude")));
-        station.setLongitude(asDouble(stationNode.path("longitude")));
-        station.setCapacityKWp(asDouble(stationNode.path("capacity_kWp")));
-        station.setBatteryCapacityKWh(asDouble(stationNode.path("battery_capacity_kWh")));
-        station.setPowerstationType(stationNode.path("powerstation_type").asText(null));
-        station.setStatus(stationNode.path("status").asText(null));
-        station.setOrgName(stationNode.path("org_name").asText(null));
-        station.setOrgCode(stationNode.path("org_code").asText(null));
-        station.setChartsType(stationNode.path("charts_type").asText(null));
-        station.setTimeSpan(stationNode.path("time_span").asText(null));
-        station.setIsPowerflow(stationNode.path("is_powerflow").asBoolean());
-        station.setIsStored(stationNode.path("is_stored").asBoolean());
-        if (stationNode.hasNonNull("turnon_time")) {
-            station.setTurnonTime(parseOffset(stationNode.path("turnon_time").asText()));
-        }
-        if (stationNode.hasNonNull("create_time")) {
-            station.setCreateTime(parseOffset(stationNode.path("create_time").asText()));
-        }
-        return powerStationRepository.save(station);
-    }
-
-    private void persistPowerflowSnapshot(PowerStation station, JsonNode powerflowNode, OffsetDateTime tspMeasurement) {
-        if (powerflowNode.isMissingNode()) {
+        station.setAddress(info.address());
+        station.setLatitude(info.latitude());
+        station.setLongitude(info.longitude());
+        station.setCapacityKWp(info.capacityKWp());
+        station.setBatteryCapacityKWh(info.batteryCapacityKWh());
+        station.setPowerstationType(info.powerstationType());
+        station.setStatus(info.status());
+        station.setOrgName(info.orgName());
+        station.setOrgCode(info.orgCode());
+        station.setChartsType(info.chartsType());
+        station.setTimeSpan(info.timeSpan());
+        station.setIsPowerflow(info.isPowerflow());
+        station.setIsStored(info.isStored());
+        if (info.turnonTime() != null) {
+            station.setTurnonTime(parseOffset(info.turnonTime()));
+        }
+        if (info.createTime() != null) {
+            station.setCreateTime(parseOffset(info.createTime()));
+        }
+        var saved = powerStationRepository.save(station);
+        rememberStation(info, saved.getId());
+        return saved;
+    }
+
+    // a station written in a transaction that rolls back must not be remembered
+    private void rememberStation(SemsStationInfo info, Long stationId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            knownStations.put(info.stationname(), new KnownStation(stationId, info.withoutTime()));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                knownStations.put(info.stationname(), new KnownStation(stationId, info.withoutTime()));
+            }
+        });
+    }
+
+    private void persistPowerflowSnapshot(PowerStation station,
+                                          String stationName,
+                                          SemsPowerflow powerflow,
+                                          OffsetDateTime tspMeasurement) {
+        if (powerflow == null) {
             return;
         }
 
         if (powerflowSnapshotRepository.existsByPowerStationAndPowerflowTimestamp(station, tspMeasurement)) {
             return;
         }
+        var snapshot = toSnapshot(station, powerflow, tspMeasurement);
+        // the snapshot and its contribution to the diurnal profile are committed together
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                powerflowSnapshotRepository.save(snapshot);
+                accumulateDiurnalProfile(List.of(snapshot));
+            });
+        } catch (RuntimeException ex) {
+            knownStations.invalidate(stationName);
+            throw ex;
+        }
+        latestMeasurementCache.offer(station.getId(), snapshot);
+    }
+
+    private PowerflowSnapshot toSnapshot(PowerStation station, SemsPowerflow powerflow, OffsetDateTime tspMeasurement) {
         var snapshot = new PowerflowSnapshot();
         snapshot.setPowerStation(station);
         snapshot.setPowerflowTimestamp(tspMeasurement);
-        snapshot.setPvW(asBigDecimal(powerflowNode.path("pv")));
-        snapshot.setBatteryW(asBigDecimal(powerflowNode.path("bettery")));
-        snapshot.setLoadW(asBigDecimal(powerflowNode.path("load")));
-        snapshot.setGridW(asBigDecimal(powerflowNode.path("grid")));
-        snapshot.setGensetW(asBigDecimal(powerflowNode.path("genset")));
-        snapshot.setMicrogridW(asBigDecimal(powerflowNode.path("microgrid")));
-        snapshot.setSocPercent(asBigDecimal(powerflowNode.path("soc")));
-        snapshot.setPvStatus(powerflowNode.path("pvStatus").asText(null));
-        snapshot.setBatteryStatus(powerflowNode.path("betteryStatus").asText(null));
-        snapshot.setLoadStatus(powerflowNode.path("loadStatus").asText(null));
-        snapshot.setGridStatus(powerflowNode.path("gridStatus").asText(null));
-        powerflowSnapshotRepository.save(snapshot);
-    }
-
-    private void recordSync(PowerStation station, String status, String message) {
-        var logEntry = new SemSyncLog();
-        logEntry.setPowerStation(station);
-        logEntry.setStatus(status);
-        logEntry.setMessage(message);
-        logEntry.setLastSuccessAt(OffsetDateTime.now());
-        semSyncLogRepository.save(logEntry);
-    }
-
-    private BigDecimal asBigDecimal(JsonNode node) {
-        if (node == null || node.isNull()) {
-            return null;
-        }
-        if (node.isNumber()) {
-            return node.decimalValue();
-        }
-        String text = node.asText(null);
-        if (text == null || text.isBlank()) {
-            return null;
-        }
-        Matcher matcher = FIRST_NUMBER.matcher(text);
-        if (!matcher.find()) {
-            return null;
-        }
-        String num = matcher.group();
-        boolean hasDot = num.indexOf('.') >= 0;
-        boolean hasComma = num.indexOf(',') >= 0;
-        if (hasDot && hasComma) {
-            num = num.replace(",", "");
-        } else if (hasComma) {
-            num = num.replace(',', '.');
-        }
-        return new BigDecimal(num);
+        snapshot.setPvW(powerflow.pvW());
+        snapshot.setBatteryW(powerflow.batteryW());
+        snapshot.setLoadW(powerflow.loadW());
+        snapshot.setGridW(powerflow.gridW());
+        snapshot.setGensetW(powerflow.gensetW());
+        snapshot.setMicrogridW(powerflow.microgridW());
+        snapshot.setSocPercent(powerflow.socPercent());
+        snapshot.setPvStatus(powerflow.pvStatus());
+        snapshot.setBatteryStatus(powerflow.batteryStatus());
+        snapshot.setLoadStatus(powerflow.loadStatus());
+        snapshot.setGridStatus(powerflow.gridStatus());
+        return snapshot;
     }
 
-    private Double asDouble(JsonNode node) {
-        if (node == null || node.isMissingNode() || !node.isNumber()) {
-            return null;
+    // groups the samples by slot so every touched profile row is read and written once
+    private void accumulateDiurnalProfile(List<PowerflowSnapshot> snapshots) {
+        Map<DiurnalProfileKey, List<BigDecimal>> samples = new HashMap<>();
+        for (var snapshot : snapshots) {
+            int slot = DiurnalSlots.slotOf(snapshot.getPowerflowTimestamp());
+            Long stationId = snapshot.getPowerStation().getId();
+            if (snapshot.getPvW() != null) {
+                samples.computeIfAbsent(new DiurnalProfileKey(stationId, slot, DiurnalMetric.PV), key -> new ArrayList<>())
+                        .add(snapshot.getPvW());
+            }
+            if (snapshot.getLoadW() != null) {
+                samples.computeIfAbsent(new DiurnalProfileKey(stationId, slot, DiurnalMetric.LOAD), key -> new ArrayList<>())
+                        .add(snapshot.getLoadW());
+            }
+        }
+        if (!samples.isEmpty()) {
+            diurnalProfileRepository.accumulate(samples);
         }
-        return node.doubleValue();
     }
 
     private OffsetDateTime parseOffset(String value) {
@@ -208,4 +437,10 @@ public class CacheIngestionService {
         }
         return LocalDateTime.parse(value.trim(), FMT_DAY).atOffset(ZoneOffset.UTC);
     }
+
+    private record ParsedEntry(SemsStationInfo info, SemsPowerflow powerflow, OffsetDateTime measuredAt) {
+    }
+
+    private record KnownStation(Long id, SemsStationInfo info) {
+    }
 }
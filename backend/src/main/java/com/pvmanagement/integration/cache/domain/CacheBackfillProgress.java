@@ -0,0 +1,24 @@
+package com.pvmanagement.integration.cache.domain;
+
+import java.time.Instant;
+
+/**
+ * Progress of a backfill over the cache entries fetched in {@code [from, to)}. {@code finishedAt} is {@code null}
+ * while partitions are still running.
+ */
+public record CacheBackfillProgress(Instant from,
+                                    Instant to,
+                                    State state,
+                                    int partitions,
+                                    int partitionsDone,
+                                    int partitionsFailed,
+                                    long entriesProcessed,
+                                    Instant startedAt,
+                                    Instant finishedAt) {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
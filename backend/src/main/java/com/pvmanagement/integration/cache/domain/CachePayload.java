@@ -0,0 +1,22 @@
+package com.pvmanagement.integration.cache.domain;
+
+/**
+ * A cached response body: JSON text or binary, depending on {@link CachePayloadFormat}.
+ */
+public record CachePayload(
+        CachePayloadFormat format,
+        String json,
+        byte[] binary
+) {
+    public static CachePayload json(String json) {
+        return new CachePayload(CachePayloadFormat.JSON, json, null);
+    }
+
+    public static CachePayload smile(byte[] binary) {
+        return new CachePayload(CachePayloadFormat.SMILE, null, binary);
+    }
+
+    public boolean isEmpty() {
+        return format == CachePayloadFormat.JSON ? json == null : binary == null;
+    }
+}
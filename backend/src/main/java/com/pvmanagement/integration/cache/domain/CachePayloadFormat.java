@@ -0,0 +1,32 @@
+package com.pvmanagement.integration.cache.domain;
+
+import java.util.Arrays;
+
+/**
+ * How a cached payload is stored, kept per row in {@code external_api_cache.payload_format}.
+ */
+public enum CachePayloadFormat {
+
+    /** Text in {@code response_json} (JSONB). */
+    JSON("json"),
+
+    /** Binary JSON (Jackson Smile) in {@code response_payload}, usually less than half the size. */
+    SMILE("smile");
+
+    private final String code;
+
+    CachePayloadFormat(String code) {
+        this.code = code;
+    }
+
+    public String code() {
+        return code;
+    }
+
+    public static CachePayloadFormat fromCode(String code) {
+        return Arrays.stream(values())
+                     .filter(format -> format.code.equalsIgnoreCase(code))
+                     .findFirst()
+                     .orElseThrow(() -> new IllegalArgumentException("Unknown cache payload format " + code));
+    }
+}
@@ -5,7 +5,7 @@ import java.time.Instant;
 public record ExternalApiCacheEntry(
         Long id,
         String cacheKey,
-        String responseJson,
+        CachePayload payload,
         Integer statusCode,
         String errorMessage,
         Instant fetchedAt,
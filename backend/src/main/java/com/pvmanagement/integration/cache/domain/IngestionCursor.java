@@ -0,0 +1,14 @@
+package com.pvmanagement.integration.cache.domain;
+
+import java.time.Instant;
+
+/**
+ * Position of the last ingested cache entry in {@code (fetched_at, id)} order. {@code lastId} is {@code null} for
+ * cursors that were stored before ids were tracked.
+ */
+public record IngestionCursor(Instant fetchedAt, Long lastId) {
+
+    public static IngestionCursor after(ExternalApiCacheEntry entry) {
+        return new IngestionCursor(entry.fetchedAt(), entry.id());
+    }
+}
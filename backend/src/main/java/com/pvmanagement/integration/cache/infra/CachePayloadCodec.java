@@ -0,0 +1,65 @@
+package com.pvmanagement.integration.cache.infra;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.pvmanagement.integration.cache.domain.CachePayload;
+import com.pvmanagement.integration.cache.domain.CachePayloadFormat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Writes payloads in the configured {@code app.cache.payload-format} and reads every format, so rows written before
+ * a format change stay readable.
+ */
+@Component
+public class CachePayloadCodec {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper smileMapper;
+    private final CachePayloadFormat writeFormat;
+
+    public CachePayloadCodec(ObjectMapper objectMapper,
+            @Value("${app.cache.payload-format:json}") String writeFormat) {
+        this.objectMapper = objectMapper;
+        // shared string references shrink the repeated keys of SEMS payloads (inverter arrays etc.) further
+        this.smileMapper = new SmileMapper(SmileFactory.builder()
+                                                       .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                                                       .build());
+        this.writeFormat = CachePayloadFormat.fromCode(writeFormat);
+    }
+
+    public CachePayload encode(JsonNode payload) {
+        try {
+            return switch (writeFormat) {
+                case JSON -> CachePayload.json(objectMapper.writeValueAsString(payload));
+                case SMILE -> CachePayload.smile(smileMapper.writeValueAsBytes(payload));
+            };
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize payload as " + writeFormat.code(), e);
+        }
+    }
+
+    /**
+     * A token stream over the payload, for reading only the parts that are needed.
+     */
+    public JsonParser parser(CachePayload payload) throws IOException {
+        return switch (payload.format()) {
+            case JSON -> objectMapper.createParser(payload.json());
+            case SMILE -> smileMapper.createParser(payload.binary());
+        };
+    }
+
+    public JsonNode readTree(CachePayload payload) throws IOException {
+        try (var parser = parser(payload)) {
+            JsonNode tree = parser.readValueAsTree();
+            return tree != null ? tree : objectMapper.missingNode();
+        }
+    }
+}
@@ -4,9 +4,13 @@ import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.List;
 
+import com.pvmanagement.integration.cache.domain.CachePayload;
+import com.pvmanagement.integration.cache.domain.CachePayloadFormat;
 import com.pvmanagement.integration.cache.domain.ExternalApiCacheEntry;
+import com.pvmanagement.integration.cache.domain.IngestionCursor;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
@@ -16,50 +20,134 @@ public class ExternalApiCacheRepository {
     private static final RowMapper<ExternalApiCacheEntry> ROW_MAPPER = (rs, rowNum) -> new ExternalApiCacheEntry(
             rs.getLong("id"),
             rs.getString("cache_key"),
-            rs.getString("response_json"),
+            new CachePayload(
+                    CachePayloadFormat.fromCode(rs.getString("payload_format")),
+                    rs.getString("response_json"),
+                    rs.getBytes("response_payload")),
             (Integer) rs.getObject("status_code"),
             rs.getString("error_message"),
             rs.getTimestamp("fetched_at").toInstant(),
             rs.getInt("ttl_seconds")
     );
 
+    /**
+     * Channel that is notified whenever an entry is written.
+     */
+    public static final String CHANGE_CHANNEL = "external_api_cache_changed";
+
     private final JdbcTemplate jdbcTemplate;
 
     public ExternalApiCacheRepository(@Qualifier("cacheJdbcTemplate") JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
+    /**
+     * Stores the entry and notifies listeners on {@link #CHANGE_CHANNEL} with its id. The notification is part of the
+     * same statement and is delivered when it commits.
+     * <p>
+     * {@code fetched_at} is assigned by the database with {@code clock_timestamp()} instead of taken from
+     * {@code entry}: ingestion reads in {@code (fetched_at, id)} order, and a time taken by the writer before a
+     * concurrent write could commit behind an entry the cursor has already passed.
+     */
     public void upsert(ExternalApiCacheEntry entry) {
-        jdbcTemplate.update("""
-                INSERT INTO external_api_cache (cache_key, response_json, status_code, error_message, fetched_at, ttl_seconds)
-                VALUES (?, ?::jsonb, ?, ?, ?, ?)
-                ON CONFLICT (cache_key) DO UPDATE SET
-                    response_json = EXCLUDED.response_json,
-                    status_code = EXCLUDED.status_code,
-                    error_message = EXCLUDED.error_message,
-                    fetched_at = EXCLUDED.fetched_at,
-                    ttl_seconds = EXCLUDED.ttl_seconds
+        jdbcTemplate.query("""
+                WITH upserted AS (
+                    INSERT INTO external_api_cache (cache_key, payload_format, response_json, response_payload,
+                                                    status_code, error_message, fetched_at, ttl_seconds)
+                    VALUES (?, ?, ?::jsonb, ?, ?, ?, clock_timestamp(), ?)
+                    ON CONFLICT (cache_key) DO UPDATE SET
+                        payload_format = EXCLUDED.payload_format,
+                        response_json = EXCLUDED.response_json,
+                        response_payload = EXCLUDED.response_payload,
+                        status_code = EXCLUDED.status_code,
+                        error_message = EXCLUDED.error_message,
+                        fetched_at = EXCLUDED.fetched_at,
+                        ttl_seconds = EXCLUDED.ttl_seconds
+                    RETURNING id
+                )
+                SELECT pg_notify(?, CAST(id AS TEXT)) FROM upserted
                 """,
+                (RowCallbackHandler) rs -> {
+                },
                 entry.cacheKey(),
-                entry.responseJson(),
+                entry.payload().format().code(),
+                entry.payload().json(),
+                entry.payload().binary(),
                 entry.statusCode(),
                 entry.errorMessage(),
-                Timestamp.from(entry.fetchedAt()),
-                entry.ttlSeconds()
+                entry.ttlSeconds(),
+                CHANGE_CHANNEL
+        );
+    }
+
+    /**
+     * Next chunk of entries after {@code cursor} in {@code (fetched_at, id)} order, so catching up from an old or
+     * missing cursor never loads more than {@code limit} payloads at once.
+     *
+     * @param cursor last ingested position, {@code null} to start from the oldest entry
+     */
+    public List<ExternalApiCacheEntry> findChunkAfter(IngestionCursor cursor, int limit) {
+        if (cursor == null) {
+            return jdbcTemplate.query(
+                    "SELECT * FROM external_api_cache ORDER BY fetched_at ASC, id ASC LIMIT ?",
+                    ROW_MAPPER,
+                    limit
+            );
+        }
+        if (cursor.lastId() == null) {
+            return jdbcTemplate.query(
+                    "SELECT * FROM external_api_cache WHERE fetched_at > ? ORDER BY fetched_at ASC, id ASC LIMIT ?",
+                    ROW_MAPPER,
+                    Timestamp.from(cursor.fetchedAt()),
+                    limit
+            );
+        }
+        return jdbcTemplate.query(
+                """
+                SELECT * FROM external_api_cache
+                WHERE (fetched_at, id) > (?, ?)
+                ORDER BY fetched_at ASC, id ASC
+                LIMIT ?
+                """,
+                ROW_MAPPER,
+                Timestamp.from(cursor.fetchedAt()),
+                cursor.lastId(),
+                limit
         );
     }
 
-    public List<ExternalApiCacheEntry> findAllNewerThan(Instant since) {
-        if (since == null) {
+    /**
+     * Like {@link #findChunkAfter}, restricted to entries fetched in {@code [from, to)}.
+     *
+     * @param cursor last ingested position within the range, {@code null} to start at {@code from}
+     */
+    public List<ExternalApiCacheEntry> findChunkBetween(Instant from, Instant to, IngestionCursor cursor, int limit) {
+        if (cursor == null) {
             return jdbcTemplate.query(
-                    "SELECT * FROM external_api_cache ORDER BY fetched_at ASC",
-                    ROW_MAPPER
+                    """
+                    SELECT * FROM external_api_cache
+                    WHERE fetched_at >= ? AND fetched_at < ?
+                    ORDER BY fetched_at ASC, id ASC
+                    LIMIT ?
+                    """,
+                    ROW_MAPPER,
+                    Timestamp.from(from),
+                    Timestamp.from(to),
+                    limit
             );
         }
         return jdbcTemplate.query(
-                "SELECT * FROM external_api_cache WHERE fetched_at > ? ORDER BY fetched_at ASC",
+                """
+                SELECT * FROM external_api_cache
+                WHERE (fetched_at, id) > (?, ?) AND fetched_at < ?
+                ORDER BY fetched_at ASC, id ASC
+                LIMIT ?
+                """,
                 ROW_MAPPER,
-                Timestamp.from(since)
+                Timestamp.from(cursor.fetchedAt()),
+                cursor.lastId(),
+                Timestamp.from(to),
+                limit
         );
     }
 }
@@ -1,5 +1,6 @@
 package com.pvmanagement.integration.cache.infra;
 
+import com.pvmanagement.integration.cache.domain.IngestionCursor;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.List;
@@ -40,4 +41,59 @@ public class IngestionStateRepository {
                 instant != null ? Timestamp.from(instant) : null
         );
     }
+
+    public Optional<IngestionCursor> findCursor(String id) {
+        List<IngestionCursor> rows = jdbcTemplate.query(
+                "SELECT last_fetched_at, last_id FROM ingestion_state WHERE id = ?",
+                (rs, rowNum) -> {
+                    Timestamp ts = rs.getTimestamp("last_fetched_at");
+                    return ts != null ? new IngestionCursor(ts.toInstant(), rs.getObject("last_id", Long.class)) : null;
+                },
+                id
+        );
+        return rows.stream().filter(Objects::nonNull).findFirst();
+    }
+
+    public void upsertCursor(String id, IngestionCursor cursor) {
+        jdbcTemplate.update(
+                """
+                INSERT INTO ingestion_state (id, last_fetched_at, last_id)
+                VALUES (?, ?, ?)
+                ON CONFLICT (id) DO UPDATE SET
+                    last_fetched_at = EXCLUDED.last_fetched_at,
+                    last_id = EXCLUDED.last_id
+                """,
+                id,
+                Timestamp.from(cursor.fetchedAt()),
+                cursor.lastId()
+        );
+    }
+
+    /**
+     * Id based cursor for jobs that follow an append-only table by its primary key.
+     */
+    public Optional<Long> findLastId(String id) {
+        List<Long> rows = jdbcTemplate.query(
+                "SELECT last_id FROM ingestion_state WHERE id = ?",
+                (rs, rowNum) -> rs.getObject("last_id", Long.class),
+                id
+        );
+        return rows.stream().filter(Objects::nonNull).findFirst();
+    }
+
+    public void upsertLastId(String id, long lastId) {
+        jdbcTemplate.update(
+                """
+                INSERT INTO ingestion_state (id, last_id)
+                VALUES (?, ?)
+                ON CONFLICT (id) DO UPDATE SET last_id = EXCLUDED.last_id
+                """,
+                id,
+                lastId
+        );
+    }
+
+    public void delete(String id) {
+        jdbcTemplate.update("DELETE FROM ingestion_state WHERE id = ?", id);
+    }
 }
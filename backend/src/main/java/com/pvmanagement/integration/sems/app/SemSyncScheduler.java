@@ -18,10 +18,11 @@ public class SemSyncScheduler {
         this.semSyncService = semSyncService;
     }
 
-    @Scheduled(fixedDelayString = "${sems.refresh-interval-ms}")
+    /** Only polls stations that are due, see {@link SemsPollPlanner}. */
+    @Scheduled(fixedDelayString = "${sems.poll-tick-ms:15000}")
     public void refreshData() {
         try {
-            semSyncService.triggerSync();
+            semSyncService.syncDue();
         } catch (Exception ex) {
             log.warn("Scheduled SEMS sync failed: {}", ex.getMessage());
         }
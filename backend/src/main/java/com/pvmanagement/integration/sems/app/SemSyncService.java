@@ -1,21 +1,29 @@
 package com.pvmanagement.integration.sems.app;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pvmanagement.integration.cache.domain.ExternalApiCacheEntry;
+import com.pvmanagement.integration.cache.infra.CachePayloadCodec;
 import com.pvmanagement.integration.cache.infra.ExternalApiCacheRepository;
+import com.pvmanagement.integration.sems.domain.PollObservation;
 import com.pvmanagement.integration.sems.domain.SemsProperties;
+import com.pvmanagement.integration.sems.domain.SemsValues;
 import com.pvmanagement.auth.infra.AuthorizationExpiredException;
 import com.pvmanagement.integration.sems.infra.TransientUpstreamException;
-import io.github.resilience4j.retry.annotation.Retry;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 @Service
 @Profile("collector")
@@ -28,56 +36,147 @@ public class SemSyncService {
     private final SemsClient semsClient;
     private final ExternalApiCacheRepository cacheRepository;
     private final SemsProperties properties;
-    private final ObjectMapper objectMapper;
+    private final CachePayloadCodec payloadCodec;
+    private final SemsStationRateLimiter rateLimiter;
+    private final SemsPollPlanner pollPlanner;
+    private final Retry retry;
 
     public SemSyncService(SemsClient semsClient,
             ExternalApiCacheRepository cacheRepository,
             SemsProperties properties,
-            ObjectMapper objectMapper) {
+            CachePayloadCodec payloadCodec,
+            SemsStationRateLimiter rateLimiter,
+            SemsPollPlanner pollPlanner,
+            RetryRegistry retryRegistry) {
         this.semsClient = semsClient;
         this.cacheRepository = cacheRepository;
         this.properties = properties;
-        this.objectMapper = objectMapper;
+        this.payloadCodec = payloadCodec;
+        this.rateLimiter = rateLimiter;
+        this.pollPlanner = pollPlanner;
+        this.retry = retryRegistry.retry("semsSync");
     }
 
-    @Retry(name = "semsSync")
+    /**
+     * Syncs all configured stations, at most {@code sems.max-concurrency} at a time. A failing station is logged and
+     * does not affect the others; only when every station fails the round fails.
+     */
     public void triggerSync() {
-        try {
-            JsonNode resp = semsClient.fetchMonitorDetail();
-            Instant fetchedAt = Instant.now();
-            var cacheEntry = new ExternalApiCacheEntry(
-                    null,
-                    buildCacheKey(resp, fetchedAt),
-                    serialize(resp),
-                    200,
-                    null,
-                    fetchedAt,
-                    DEFAULT_TTL_SECONDS
+        var stationIds = properties.resolveStationIds();
+        if (stationIds.isEmpty()) {
+            log.warn("No SEMS station configured, nothing to sync");
+            return;
+        }
+        sync(stationIds);
+    }
+
+    /**
+     * Like {@link #triggerSync()}, but only for the stations the {@link SemsPollPlanner} considers due.
+     */
+    public void syncDue() {
+        var stationIds = pollPlanner.claimDue(properties.resolveStationIds(), Instant.now());
+        if (!stationIds.isEmpty()) {
+            sync(stationIds);
+        }
+    }
+
+    private void sync(List<String> stationIds) {
+
+        long failed = Flux.fromIterable(stationIds)
+                .flatMap(stationId -> syncStation(stationId)
+                                 .thenReturn(true)
+                                 .onErrorResume(e -> {
+                                     log.warn("SEMS sync of station {} failed: {}", stationId, e.getMessage());
+                                     return Mono.just(false);
+                                 }),
+                         Math.max(1, properties.getMaxConcurrency()))
+                .filter(synced -> !synced)
+                .count()
+                .block();
+
+        if (failed == stationIds.size()) {
+            throw new IllegalStateException("SEMS sync failed for all %d stations".formatted(failed));
+        }
+        log.debug("SEMS sync round finished, {} of {} stations failed", failed, stationIds.size());
+    }
+
+    /**
+     * Fetches one station and stores the payload in the cache, retrying transient upstream errors. Every attempt
+     * counts against the station's rate-limit budget; once it is used up the station is skipped. A payload the
+     * station already reported is not stored again.
+     */
+    public Mono<Void> syncStation(String stationId) {
+        return Mono.defer(() -> {
+                    if (!rateLimiter.tryConsume(stationId)) {
+                        log.warn("SEMS request budget of station {} exhausted, skipping", stationId);
+                        return Mono.empty();
+                    }
+                    return semsClient.fetchMonitorDetail(stationId);
+                })
+                .onErrorMap(SemSyncService::classify)
+                .transformDeferred(RetryOperator.of(retry))
+                // JDBC blocks, keep it off the WebClient event loop
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(payload -> {
+                    if (pollPlanner.observe(stationId, observe(payload), Instant.now())) {
+                        store(stationId, payload);
+                    }
+                    else {
+                        log.debug("SEMS station {} has not reported since the last poll", stationId);
+                    }
+                })
+                .then();
+    }
+
+    private static Throwable classify(Throwable error) {
+        if (error instanceof AuthorizationExpiredException) {
+            return error;
+        }
+        if (error instanceof WebClientResponseException.TooManyRequests e) {
+            return new TransientUpstreamException("SEMS API rate limit exceeded (HTTP 429)", e);
+        }
+        if (error instanceof WebClientResponseException e && e.getStatusCode().is5xxServerError()) {
+            return new TransientUpstreamException(
+                    "SEMS upstream error " + e.getRawStatusCode() + " " + e.getStatusText(), e
             );
-            cacheRepository.upsert(cacheEntry);
-            log.debug("Stored SEMS payload in cache with key {}", cacheEntry.cacheKey());
-        } catch (AuthorizationExpiredException e) {
-            throw e;
-        } catch (WebClientResponseException.TooManyRequests e) {
-            throw new TransientUpstreamException("SEMS API rate limit exceeded (HTTP 429)", e);
-        } catch (WebClientResponseException e) {
-            if (e.getStatusCode().is5xxServerError()) {
-                throw new TransientUpstreamException(
-                        "SEMS upstream error " + e.getRawStatusCode() + " " + e.getStatusText(), e
-                );
-            }
-            throw e;
-        } catch (JsonProcessingException e) {
-            throw new IllegalStateException("Unable to serialize SEMS payload", e);
         }
+        return error;
+    }
+
+    private void store(String stationId, JsonNode resp) {
+        Instant fetchedAt = Instant.now();
+        var cacheEntry = new ExternalApiCacheEntry(
+                null,
+                buildCacheKey(stationId, resp, fetchedAt),
+                payloadCodec.encode(resp),
+                200,
+                null,
+                fetchedAt,
+                DEFAULT_TTL_SECONDS
+        );
+        cacheRepository.upsert(cacheEntry);
+        log.debug("Stored SEMS payload in cache with key {}", cacheEntry.cacheKey());
     }
 
-    private String serialize(JsonNode payload) throws JsonProcessingException {
-        return objectMapper.writeValueAsString(payload);
+    private PollObservation observe(JsonNode payload) {
+        JsonNode data = payload.path("data");
+        return new PollObservation(
+                extractUpstreamTimestamp(payload),
+                measuredAt(data.path("info").path("time").asText(null)),
+                SemsValues.number(data.path("powerflow").path("pv")),
+                SemsValues.number(data.path("powerflow").path("load"))
+        );
+    }
+
+    private static Instant measuredAt(String stationTime) {
+        try {
+            return SemsValues.stationTime(stationTime).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
     }
 
-    private String buildCacheKey(JsonNode payload, Instant fetchedAt) {
-        String stationId = properties.getStationId();
+    private String buildCacheKey(String stationId, JsonNode payload, Instant fetchedAt) {
         String upstreamTimestamp = extractUpstreamTimestamp(payload);
         if (upstreamTimestamp == null || upstreamTimestamp.isBlank()) {
             upstreamTimestamp = CACHE_KEY_TS_FORMAT.format(fetchedAt);
@@ -2,45 +2,130 @@ package com.pvmanagement.integration.sems.app;
 
 import com.pvmanagement.integration.sems.domain.SemsProperties;
 import com.pvmanagement.integration.sems.domain.LoginResponse;
+import com.pvmanagement.integration.sems.domain.SemsSession;
+import com.pvmanagement.integration.sems.infra.SemsSessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import java.time.Instant;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @Profile("collector")
 public class SemsAuthService {
 
+    private static final Logger log = LoggerFactory.getLogger(SemsAuthService.class);
+
     private final WebClient.Builder builder;
     private final WebClient authClient;
     private final ObjectMapper objectMapper;
     private final SemsProperties properties;
-    private volatile LoginResponse.Data tokenData;
-    private final ReentrantLock lock = new ReentrantLock();
+    private final SemsSessionRepository sessionRepository;
+    // shared by all callers; a login in flight is subscribed to instead of started again
+    private final AtomicReference<Mono<Session>> session = new AtomicReference<>();
 
     public SemsAuthService(@Value("${sems.base-url}") String baseUrl, ObjectMapper objectMapper,
-                           WebClient.Builder builder, SemsProperties properties) {
+                           WebClient.Builder builder, SemsProperties properties,
+                           SemsSessionRepository sessionRepository) {
         this.builder = builder;
         this.authClient = builder.baseUrl(baseUrl)
                                  .build();
         this.properties = properties;
         this.objectMapper = objectMapper;
+        this.sessionRepository = sessionRepository;
     }
 
-    /** Used on every data call: header name "token" */
-    public String getTokenHeader() {
-        var td = tokenData;
-        if (td != null) return buildRequestTokenHeader(td);
-        lock.lock();
-        try {
-            if (tokenData == null) tokenData = login();  // first-time login
-            return buildRequestTokenHeader(tokenData);
-        } finally {
-            lock.unlock();
+    /**
+     * Used on every data call: header name "token". Logs in on first use and again shortly before the session is
+     * expected to expire, so requests normally never see an expired token.
+     */
+    public Mono<String> tokenHeader() {
+        return Mono.defer(this::currentSession)
+                   .map(Session::tokenHeader);
+    }
+
+    /**
+     * Called by the WebClient filter on 401/expired message. Logs in again unless another request already replaced
+     * the session that handed out {@code staleTokenHeader}, so concurrent failures share one login.
+     */
+    public Mono<String> refreshTokenHeader(String staleTokenHeader) {
+        return Mono.defer(() -> {
+                       var current = session.get();
+                       if (current == null) {
+                           return currentSession();
+                       }
+                       return current.onErrorResume(e -> Mono.empty())
+                                     .flatMap(s -> s.tokenHeader().equals(staleTokenHeader)
+                                             ? replaceSession(current, s.state().data().token())
+                                             : Mono.just(s))
+                                     .switchIfEmpty(Mono.defer(() -> replaceSession(current, null)));
+                   })
+                   .map(Session::tokenHeader);
+    }
+
+    private Mono<Session> currentSession() {
+        var current = session.get();
+        if (current == null) {
+            return replaceSession(null, null);
         }
+        return current.flatMap(s -> refreshDue(s.state())
+                ? replaceSession(current, s.state().data().token())
+                : Mono.just(s));
+    }
+
+    private Mono<Session> replaceSession(Mono<Session> expected, String staleToken) {
+        var fresh = newSession(staleToken);
+        return session.compareAndSet(expected, fresh) ? fresh : currentSession();
+    }
+
+    /**
+     * Adopts the session another collector instance stored, as long as it is neither due nor the one being replaced;
+     * otherwise logs in and stores the new session for the others.
+     */
+    private Mono<Session> newSession(String staleToken) {
+        var self = new AtomicReference<Mono<Session>>();
+        self.set(loadSharedSession()
+                         .filter(shared -> !refreshDue(shared) && !shared.data().token().equals(staleToken))
+                         .switchIfEmpty(Mono.defer(() -> login()
+                                 .map(data -> new SemsSession(data, Instant.now().plus(properties.getTokenTtl())))
+                                 .flatMap(this::shareSession)))
+                         .map(state -> new Session(state, buildRequestTokenHeader(state.data())))
+                         // failed logins are not cached, the next caller tries again
+                         .doOnError(e -> session.compareAndSet(self.get(), null))
+                         .cache());
+        return self.get();
+    }
+
+    private boolean refreshDue(SemsSession state) {
+        return state.refreshDue(Instant.now(), properties.getTokenRefreshSkew());
+    }
+
+    // The session store is an optimization; without it every instance simply logs in on its own
+    private Mono<SemsSession> loadSharedSession() {
+        return Mono.fromCallable(() -> sessionRepository.find(properties.getAccount()))
+                   .subscribeOn(Schedulers.boundedElastic())
+                   .flatMap(Mono::justOrEmpty)
+                   .onErrorResume(e -> {
+                       log.warn("Unable to load shared SEMS session: {}", e.getMessage());
+                       return Mono.empty();
+                   });
+    }
+
+    private Mono<SemsSession> shareSession(SemsSession state) {
+        return Mono.fromRunnable(() -> sessionRepository.save(properties.getAccount(), state))
+                   .subscribeOn(Schedulers.boundedElastic())
+                   .onErrorResume(e -> {
+                       log.warn("Unable to store shared SEMS session: {}", e.getMessage());
+                       return Mono.empty();
+                   })
+                   .thenReturn(state);
     }
 
     /** Your existing method: used only for /Common/CrossLogin */
@@ -73,36 +158,27 @@ public class SemsAuthService {
         }
     }
 
-    /** Called by your WebClient filter on 401/expired message to fetch a fresh token. */
-    public void forceRefresh() {
-        lock.lock();
-        try {
-            tokenData = login();
-        } finally {
-            lock.unlock();
-        }
-    }
-
-    private LoginResponse.Data login() {
-        var req = Map.of("account", properties.getAccount(),
-                         "pwd",     properties.getPassword());
+    private Mono<LoginResponse.Data> login() {
+        return Mono.defer(() -> {
+                       var req = Map.of("account", properties.getAccount(),
+                                        "pwd",     properties.getPassword());
 
-
-        var resp = authClient.post()
-                             .uri("/Common/CrossLogin")
-                             .header("Token", tokenMetadataHeader())
-                             .bodyValue(req)
-                             .retrieve()
-                             .bodyToMono(LoginResponse.class)
-                             .block();
-
-        if (resp == null || !resp.isSuccess()) {
-            throw new IllegalStateException("SEMS login failed: " + (resp != null ?
-                    resp.msg() :
-                    "null response"));
-        }
-
-        return resp.data();
+                       return authClient.post()
+                                        .uri("/Common/CrossLogin")
+                                        .header("Token", tokenMetadataHeader())
+                                        .bodyValue(req)
+                                        .retrieve()
+                                        .bodyToMono(LoginResponse.class);
+                   })
+                   .defaultIfEmpty(new LoginResponse("null response", null))
+                   .handle((resp, sink) -> {
+                       if (!resp.isSuccess()) {
+                           sink.error(new IllegalStateException("SEMS login failed: " + resp.msg()));
+                           return;
+                       }
+                       sink.next(resp.data());
+                   });
     }
-}
 
+    private record Session(SemsSession state, String tokenHeader) {}
+}
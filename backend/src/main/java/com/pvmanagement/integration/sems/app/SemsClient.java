@@ -7,6 +7,7 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 import java.time.Duration;
 import java.util.Map;
 
@@ -21,14 +22,19 @@ public class SemsClient {
         this.webClient = webClient;
     }
 
+    /** Monitor detail of the configured {@code sems.station-id}. */
     public JsonNode fetchMonitorDetail() {
+        return fetchMonitorDetail(properties.getStationId()).block();
+    }
+
+    public Mono<JsonNode> fetchMonitorDetail(String stationId) {
         return postJson(
                 "/PowerStation/GetMonitorDetailByPowerstationId",
-                Map.of("powerStationId", properties.getStationId())
+                Map.of("powerStationId", stationId)
         );
     }
 
-    private JsonNode postJson(String path, Object body) {
+    private Mono<JsonNode> postJson(String path, Object body) {
         return webClient
                 .post()
                 .uri(path)
@@ -36,7 +42,6 @@ public class SemsClient {
                 .bodyValue(body)
                 .retrieve()
                 .bodyToMono(JsonNode.class)
-                .timeout(Duration.ofSeconds(15))
-                .block(); // token refresh + retry-on-auth handled by WebClient filters
+                .timeout(Duration.ofSeconds(15)); // token refresh + retry-on-auth handled by WebClient filters
     }
 }
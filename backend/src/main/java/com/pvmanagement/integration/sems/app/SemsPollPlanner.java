@@ -0,0 +1,165 @@
+package com.pvmanagement.integration.sems.app;
+
+import com.pvmanagement.integration.sems.domain.PollObservation;
+import com.pvmanagement.integration.sems.domain.SemsProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides when each station is polled next. Learns how often a station reports from the progression of its upstream
+ * timestamps, polls shortly after the next report is expected, and backs off while the plant is idle (no PV, steady
+ * load), typically at night.
+ */
+@Component
+@Profile("collector")
+public class SemsPollPlanner {
+
+    // weight of the newest report interval in the learned cadence
+    private static final double CADENCE_SMOOTHING = 0.3;
+    private static final BigDecimal STEADY_LOAD_TOLERANCE_W = BigDecimal.valueOf(50);
+
+    private final SemsProperties properties;
+    private final Map<String, StationState> stations = new ConcurrentHashMap<>();
+
+    public SemsPollPlanner(SemsProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Returns the stations that are due at {@code now}. Their next poll is moved out by the default interval right
+     * away, so a slow or failing poll is not repeated on every tick; a completed poll replans via {@link #observe}.
+     */
+    public List<String> claimDue(Collection<String> stationIds, Instant now) {
+        List<String> due = new ArrayList<>();
+        for (var stationId : stationIds) {
+            var state = state(stationId);
+            synchronized (state) {
+                if (!now.isBefore(state.nextPollAt)) {
+                    state.nextPollAt = now.plus(defaultInterval());
+                    due.add(stationId);
+                }
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Records a poll result and plans the next poll of the station.
+     *
+     * @return {@code true} if the payload is new, {@code false} if the station has not reported since the last poll
+     */
+    public boolean observe(String stationId, PollObservation observation, Instant now) {
+        var state = state(stationId);
+        synchronized (state) {
+            boolean changed = observation.upstreamTimestamp() == null
+                    || !observation.upstreamTimestamp().equals(state.lastUpstreamTimestamp);
+            boolean idle = isIdle(state, observation);
+
+            if (changed && state.lastMeasuredAt != null && observation.measuredAt() != null) {
+                learnCadence(state, Duration.between(state.lastMeasuredAt, observation.measuredAt()));
+            }
+            if (changed) {
+                state.lastUpstreamTimestamp = observation.upstreamTimestamp();
+                state.lastMeasuredAt = observation.measuredAt();
+            }
+            state.lastLoadW = observation.loadW();
+            state.nextPollAt = properties.isAdaptivePolling()
+                    ? planNext(state, changed, idle, now)
+                    : now.plus(defaultInterval());
+            return changed;
+        }
+    }
+
+    /** When the station is polled next, {@code null} before its first poll. */
+    public Instant nextPollAt(String stationId) {
+        var state = stations.get(stationId);
+        return state == null ? null : state.nextPollAt;
+    }
+
+    /** The learned interval between two reports of the station. */
+    public Duration cadence(String stationId) {
+        var state = stations.get(stationId);
+        return state == null ? defaultInterval() : state.cadence;
+    }
+
+    private Instant planNext(StationState state, boolean changed, boolean idle, Instant now) {
+        Instant next;
+        if (!changed || state.lastMeasuredAt == null) {
+            // the expected report is late (or we cannot tell), check again soon
+            next = now.plus(changed ? state.cadence : properties.getMinPollInterval());
+        }
+        else {
+            next = state.lastMeasuredAt.plus(state.cadence).plus(properties.getPollDelay());
+            Instant earliest = now.plus(properties.getMinPollInterval());
+            if (next.isBefore(earliest)) {
+                next = earliest;
+            }
+        }
+        if (idle) {
+            Instant idleNext = now.plus(properties.getIdlePollInterval());
+            if (next.isBefore(idleNext)) {
+                next = idleNext;
+            }
+        }
+        return next;
+    }
+
+    private void learnCadence(StationState state, Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            return;
+        }
+        // a single long gap (outage, idle period) only nudges the cadence instead of resetting it
+        Duration cap = state.cadence.multipliedBy(2);
+        Duration sample = interval.compareTo(cap) > 0 ? cap : interval;
+        long learnedMillis = Math.round(state.cadence.toMillis() * (1 - CADENCE_SMOOTHING)
+                                                + sample.toMillis() * CADENCE_SMOOTHING);
+        Duration learned = Duration.ofMillis(learnedMillis);
+        if (learned.compareTo(properties.getMinPollInterval()) < 0) {
+            learned = properties.getMinPollInterval();
+        }
+        if (learned.compareTo(properties.getIdlePollInterval()) > 0) {
+            learned = properties.getIdlePollInterval();
+        }
+        state.cadence = learned;
+    }
+
+    private static boolean isIdle(StationState state, PollObservation observation) {
+        if (observation.pvW() == null || observation.pvW().signum() != 0) {
+            return false;
+        }
+        if (observation.loadW() == null || state.lastLoadW == null) {
+            return false;
+        }
+        return observation.loadW().subtract(state.lastLoadW).abs().compareTo(STEADY_LOAD_TOLERANCE_W) <= 0;
+    }
+
+    private StationState state(String stationId) {
+        return stations.computeIfAbsent(stationId, id -> new StationState(defaultInterval()));
+    }
+
+    private Duration defaultInterval() {
+        return Duration.ofMillis(properties.getRefreshIntervalMs());
+    }
+
+    private static final class StationState {
+
+        private Instant nextPollAt = Instant.MIN;
+        private Duration cadence;
+        private String lastUpstreamTimestamp;
+        private Instant lastMeasuredAt;
+        private BigDecimal lastLoadW;
+
+        private StationState(Duration cadence) {
+            this.cadence = cadence;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.pvmanagement.integration.sems.app;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pvmanagement.integration.sems.domain.SemsProperties;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Upstream request budget per station, so retries or a misbehaving plant cannot eat into the quota of the others.
+ */
+@Component
+@Profile("collector")
+public class SemsStationRateLimiter {
+
+    private final Cache<String, Bucket> buckets;
+    private final int requestsPerMinute;
+
+    public SemsStationRateLimiter(SemsProperties properties) {
+        this.requestsPerMinute = properties.getStationRequestsPerMinute();
+        this.buckets = Caffeine.newBuilder()
+                               .expireAfterAccess(Duration.ofHours(1))
+                               .build();
+    }
+
+    public boolean tryConsume(String stationId) {
+        return buckets.get(stationId, this::newBucket).tryConsume(1);
+    }
+
+    private Bucket newBucket(String ignored) {
+        Bandwidth limit = Bandwidth.builder()
+                                   .capacity(requestsPerMinute)
+                                   .refillGreedy(requestsPerMinute, Duration.ofMinutes(1))
+                                   .build();
+        return Bucket.builder()
+                     .addLimit(limit)
+                     .build();
+    }
+}
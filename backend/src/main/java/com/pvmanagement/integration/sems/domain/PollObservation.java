@@ -0,0 +1,18 @@
+package com.pvmanagement.integration.sems.domain;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * What a single SEMS poll of a station returned, as far as poll planning is concerned.
+ *
+ * @param upstreamTimestamp the raw upstream timestamp the payload is keyed by, {@code null} if it has none
+ * @param measuredAt        when the station last reported, {@code null} if unknown
+ */
+public record PollObservation(
+        String upstreamTimestamp,
+        Instant measuredAt,
+        BigDecimal pvW,
+        BigDecimal loadW
+) {
+}
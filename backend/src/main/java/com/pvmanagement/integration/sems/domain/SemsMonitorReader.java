@@ -0,0 +1,181 @@
+package com.pvmanagement.integration.sems.domain;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Reads station info and powerflow from a monitor detail payload in a single pass over the token stream. Everything
+ * else (inverters, KPIs, charts, ...) is skipped without being materialized.
+ */
+public final class SemsMonitorReader {
+
+    private SemsMonitorReader() {
+    }
+
+    /**
+     * @return the station info and powerflow, each {@code null} when the payload has no such object
+     */
+    public static Monitor read(JsonParser parser) throws IOException {
+        SemsStationInfo info = null;
+        SemsPowerflow powerflow = null;
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            return new Monitor(null, null);
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT || !"data".equals(field)) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_OBJECT && "info".equals(name)) {
+                    info = readInfo(parser);
+                }
+                else if (token == JsonToken.START_OBJECT && "powerflow".equals(name)) {
+                    powerflow = readPowerflow(parser);
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new Monitor(info, powerflow);
+    }
+
+    private static SemsStationInfo readInfo(JsonParser parser) throws IOException {
+        String stationname = "";
+        String time = null;
+        String address = null;
+        Double latitude = null;
+        Double longitude = null;
+        Double capacityKWp = null;
+        Double batteryCapacityKWh = null;
+        String powerstationType = null;
+        String status = null;
+        String orgName = null;
+        String orgCode = null;
+        String chartsType = null;
+        String timeSpan = null;
+        boolean isPowerflow = false;
+        boolean isStored = false;
+        String turnonTime = null;
+        String createTime = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (name) {
+                case "stationname" -> {
+                    String value = text(parser, token);
+                    stationname = value != null ? value : "";
+                }
+                case "time" -> time = text(parser, token);
+                case "address" -> address = text(parser, token);
+                case "latitude" -> latitude = number(parser, token);
+                case "longitude" -> longitude = number(parser, token);
+                case "capacity_kWp" -> capacityKWp = number(parser, token);
+                case "battery_capacity_kWh" -> batteryCapacityKWh = number(parser, token);
+                case "powerstation_type" -> powerstationType = text(parser, token);
+                case "status" -> status = text(parser, token);
+                case "org_name" -> orgName = text(parser, token);
+                case "org_code" -> orgCode = text(parser, token);
+                case "charts_type" -> chartsType = text(parser, token);
+                case "time_span" -> timeSpan = text(parser, token);
+                case "is_powerflow" -> isPowerflow = bool(parser, token);
+                case "is_stored" -> isStored = bool(parser, token);
+                case "turnon_time" -> turnonTime = text(parser, token);
+                case "create_time" -> createTime = text(parser, token);
+                default -> parser.skipChildren();
+            }
+        }
+        return new SemsStationInfo(stationname, time, address, latitude, longitude, capacityKWp, batteryCapacityKWh,
+                                   powerstationType, status, orgName, orgCode, chartsType, timeSpan, isPowerflow,
+                                   isStored, turnonTime, createTime);
+    }
+
+    private static SemsPowerflow readPowerflow(JsonParser parser) throws IOException {
+        BigDecimal pv = null;
+        BigDecimal battery = null;
+        BigDecimal load = null;
+        BigDecimal grid = null;
+        BigDecimal genset = null;
+        BigDecimal microgrid = null;
+        BigDecimal soc = null;
+        String pvStatus = null;
+        String batteryStatus = null;
+        String loadStatus = null;
+        String gridStatus = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (name) {
+                case "pv" -> pv = decimal(parser, token);
+                // sic, SEMS spells it that way
+                case "bettery" -> battery = decimal(parser, token);
+                case "load" -> load = decimal(parser, token);
+                case "grid" -> grid = decimal(parser, token);
+                case "genset" -> genset = decimal(parser, token);
+                case "microgrid" -> microgrid = decimal(parser, token);
+                case "soc" -> soc = decimal(parser, token);
+                case "pvStatus" -> pvStatus = text(parser, token);
+                case "betteryStatus" -> batteryStatus = text(parser, token);
+                case "loadStatus" -> loadStatus = text(parser, token);
+                case "gridStatus" -> gridStatus = text(parser, token);
+                default -> parser.skipChildren();
+            }
+        }
+        return new SemsPowerflow(pv, battery, load, grid, genset, microgrid, soc,
+                                 pvStatus, batteryStatus, loadStatus, gridStatus);
+    }
+
+    private static String text(JsonParser parser, JsonToken token) throws IOException {
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return token == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    // only JSON numbers, like JsonNode#doubleValue on numeric nodes
+    private static Double number(JsonParser parser, JsonToken token) throws IOException {
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        return token.isNumeric() ? parser.getDoubleValue() : null;
+    }
+
+    // same rules as JsonNode#asBoolean
+    private static boolean bool(JsonParser parser, JsonToken token) throws IOException {
+        return switch (token) {
+            case VALUE_TRUE -> true;
+            case VALUE_STRING -> "true".equals(parser.getText().trim());
+            case VALUE_NUMBER_INT -> parser.getLongValue() != 0;
+            case START_OBJECT, START_ARRAY -> {
+                parser.skipChildren();
+                yield false;
+            }
+            default -> false;
+        };
+    }
+
+    private static BigDecimal decimal(JsonParser parser, JsonToken token) throws IOException {
+        if (token.isStructStart()) {
+            parser.skipChildren();
+            return null;
+        }
+        if (token.isNumeric()) {
+            return parser.getDecimalValue();
+        }
+        return token == JsonToken.VALUE_STRING ? SemsValues.number(parser.getText()) : null;
+    }
+
+    public record Monitor(SemsStationInfo info, SemsPowerflow powerflow) {
+    }
+}
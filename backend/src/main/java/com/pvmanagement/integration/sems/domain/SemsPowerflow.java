@@ -0,0 +1,21 @@
+package com.pvmanagement.integration.sems.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * The powerflow of a monitor detail payload ({@code data.powerflow}), with the values already parsed.
+ */
+public record SemsPowerflow(
+        BigDecimal pvW,
+        BigDecimal batteryW,
+        BigDecimal loadW,
+        BigDecimal gridW,
+        BigDecimal gensetW,
+        BigDecimal microgridW,
+        BigDecimal socPercent,
+        String pvStatus,
+        String batteryStatus,
+        String loadStatus,
+        String gridStatus
+) {
+}
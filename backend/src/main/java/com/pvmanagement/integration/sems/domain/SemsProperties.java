@@ -3,6 +3,11 @@ package com.pvmanagement.integration.sems.domain;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
 @Component
 @ConfigurationProperties(prefix = "sems")
 public class SemsProperties {
@@ -12,8 +17,18 @@ public class SemsProperties {
     private String version = "v2.1.0";
     private String language = "en";
     private String stationId;
+    private List<String> stationIds = new ArrayList<>();
+    private int maxConcurrency = 8;
+    private int stationRequestsPerMinute = 4;
     private String account;
     private String password;
+    private long refreshIntervalMs = 180_000;
+    private boolean adaptivePolling = true;
+    private Duration minPollInterval = Duration.ofMinutes(1);
+    private Duration idlePollInterval = Duration.ofMinutes(15);
+    private Duration pollDelay = Duration.ofSeconds(20);
+    private Duration tokenTtl = Duration.ofHours(2);
+    private Duration tokenRefreshSkew = Duration.ofMinutes(5);
 
     public String getBaseUrl() {
         return baseUrl;
@@ -55,6 +70,47 @@ public class SemsProperties {
         this.stationId = stationId;
     }
 
+    public List<String> getStationIds() {
+        return stationIds;
+    }
+
+    public void setStationIds(List<String> stationIds) {
+        this.stationIds = stationIds;
+    }
+
+    /**
+     * All stations to sync: {@code station-ids} plus the single {@code station-id}, without blanks and duplicates.
+     */
+    public List<String> resolveStationIds() {
+        var ids = new LinkedHashSet<String>();
+        if (stationIds != null) {
+            stationIds.stream()
+                    .filter(id -> id != null && !id.isBlank())
+                    .map(String::trim)
+                    .forEach(ids::add);
+        }
+        if (stationId != null && !stationId.isBlank()) {
+            ids.add(stationId.trim());
+        }
+        return List.copyOf(ids);
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getStationRequestsPerMinute() {
+        return stationRequestsPerMinute;
+    }
+
+    public void setStationRequestsPerMinute(int stationRequestsPerMinute) {
+        this.stationRequestsPerMinute = stationRequestsPerMinute;
+    }
+
     public String getAccount() {
         return account;
     }
@@ -70,4 +126,65 @@ public class SemsProperties {
     public void setPassword(String password) {
         this.password = password;
     }
+
+    /** How long a SEMS login is assumed to stay valid. */
+    public Duration getTokenTtl() {
+        return tokenTtl;
+    }
+
+    public void setTokenTtl(Duration tokenTtl) {
+        this.tokenTtl = tokenTtl;
+    }
+
+    /** How long before {@link #getTokenTtl()} runs out a new login is made. */
+    public Duration getTokenRefreshSkew() {
+        return tokenRefreshSkew;
+    }
+
+    public void setTokenRefreshSkew(Duration tokenRefreshSkew) {
+        this.tokenRefreshSkew = tokenRefreshSkew;
+    }
+
+    /** Poll interval before a station's cadence is learned, and with adaptive polling off. */
+    public long getRefreshIntervalMs() {
+        return refreshIntervalMs;
+    }
+
+    public void setRefreshIntervalMs(long refreshIntervalMs) {
+        this.refreshIntervalMs = refreshIntervalMs;
+    }
+
+    public boolean isAdaptivePolling() {
+        return adaptivePolling;
+    }
+
+    public void setAdaptivePolling(boolean adaptivePolling) {
+        this.adaptivePolling = adaptivePolling;
+    }
+
+    public Duration getMinPollInterval() {
+        return minPollInterval;
+    }
+
+    public void setMinPollInterval(Duration minPollInterval) {
+        this.minPollInterval = minPollInterval;
+    }
+
+    /** Poll interval while a plant is idle, also the upper bound of a learned cadence. */
+    public Duration getIdlePollInterval() {
+        return idlePollInterval;
+    }
+
+    public void setIdlePollInterval(Duration idlePollInterval) {
+        this.idlePollInterval = idlePollInterval;
+    }
+
+    /** How long after a station's expected report it is polled. */
+    public Duration getPollDelay() {
+        return pollDelay;
+    }
+
+    public void setPollDelay(Duration pollDelay) {
+        this.pollDelay = pollDelay;
+    }
 }
@@ -0,0 +1,17 @@
+package com.pvmanagement.integration.sems.domain;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A SEMS login together with the time it is expected to stop working.
+ */
+public record SemsSession(
+        LoginResponse.Data data,
+        Instant expiresAt
+) {
+    /** True once {@code now} is within {@code skew} of the expected expiry. */
+    public boolean refreshDue(Instant now, Duration skew) {
+        return !now.isBefore(expiresAt.minus(skew));
+    }
+}
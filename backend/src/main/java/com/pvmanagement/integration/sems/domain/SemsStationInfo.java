@@ -0,0 +1,34 @@
+package com.pvmanagement.integration.sems.domain;
+
+/**
+ * The station fields of a monitor detail payload ({@code data.info}) that are ingested.
+ */
+public record SemsStationInfo(
+        String stationname,
+        String time,
+        String address,
+        Double latitude,
+        Double longitude,
+        Double capacityKWp,
+        Double batteryCapacityKWh,
+        String powerstationType,
+        String status,
+        String orgName,
+        String orgCode,
+        String chartsType,
+        String timeSpan,
+        boolean isPowerflow,
+        boolean isStored,
+        String turnonTime,
+        String createTime
+) {
+
+    /**
+     * The same info without the measurement {@code time}, i.e. only what describes the station itself.
+     */
+    public SemsStationInfo withoutTime() {
+        return new SemsStationInfo(stationname, null, address, latitude, longitude, capacityKWp, batteryCapacityKWh,
+                powerstationType, status, orgName, orgCode, chartsType, timeSpan, isPowerflow, isStored, turnonTime,
+                createTime);
+    }
+}
@@ -0,0 +1,157 @@
+package com.pvmanagement.integration.sems.domain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parsing of the loosely typed values in SEMS payloads, shared by the collector and the ingestion.
+ */
+public final class SemsValues {
+
+    private static final Pattern FIRST_NUMBER = Pattern.compile("[-+]?\\d{1,3}(?:[\\d.,]*\\d)?");
+    private static final DateTimeFormatter STATION_TIME = DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm:ss");
+    private static final ZoneId STATION_ZONE = ZoneId.of("Europe/Vienna");
+    // up to 18 digits always fit into a long
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private SemsValues() {
+    }
+
+    /**
+     * Reads numbers that SEMS sends either as JSON numbers or as text with a unit, e.g. {@code "1,234.5(W)"}.
+     *
+     * @return the first number in the value, or {@code null} if there is none
+     */
+    public static BigDecimal number(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        if (node.isNumber()) {
+            return node.decimalValue();
+        }
+        return number(node.asText(null));
+    }
+
+    /**
+     * Single-pass version of {@link #numberByRegex(String)}: takes the first run of digits, dots and commas (with a sign
+     * directly in front), where a comma is a grouping separator if the number also has a dot, and the decimal
+     * separator otherwise. Runs for every value of every ingested row, so it avoids the matcher and intermediate
+     * strings and builds the result from a scaled long.
+     *
+     * @throws NumberFormatException if the number has more than one decimal separator, like the regex path
+     * @see #number(JsonNode)
+     */
+    public static BigDecimal number(String text) {
+        if (text == null) {
+            return null;
+        }
+        int length = text.length();
+        int start = 0;
+        while (start < length && !isDigit(text.charAt(start))) {
+            start++;
+        }
+        if (start == length) {
+            return null;
+        }
+
+        // the run ends at its last digit; trailing separators belong to the surrounding text
+        int end = start;
+        boolean hasDot = false;
+        boolean hasComma = false;
+        boolean pendingDot = false;
+        boolean pendingComma = false;
+        for (int i = start; i < length; i++) {
+            char c = text.charAt(i);
+            if (isDigit(c)) {
+                end = i + 1;
+                hasDot |= pendingDot;
+                hasComma |= pendingComma;
+            }
+            else if (c == '.') {
+                pendingDot = true;
+            }
+            else if (c == ',') {
+                pendingComma = true;
+            }
+            else {
+                break;
+            }
+        }
+        char decimalSeparator = hasDot ? '.' : ',';
+
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (isDigit(c)) {
+                if (++digits > MAX_LONG_DIGITS) {
+                    return numberByRegex(text);
+                }
+                unscaled = unscaled * 10 + (c - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            }
+            else if (c == decimalSeparator) {
+                if (scale >= 0) {
+                    throw new NumberFormatException("More than one decimal separator in " + text);
+                }
+                scale = 0;
+            }
+            // anything else is a grouping comma
+        }
+        if (start > 0 && text.charAt(start - 1) == '-') {
+            unscaled = -unscaled;
+        }
+        return BigDecimal.valueOf(unscaled, Math.max(scale, 0));
+    }
+
+    /**
+     * The original regex-based parsing, kept as the reference for {@link #number(String)}.
+     */
+    static BigDecimal numberByRegex(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        Matcher matcher = FIRST_NUMBER.matcher(text);
+        if (!matcher.find()) {
+            return null;
+        }
+        String num = matcher.group();
+        boolean hasDot = num.indexOf('.') >= 0;
+        boolean hasComma = num.indexOf(',') >= 0;
+        if (hasDot && hasComma) {
+            num = num.replace(",", "");
+        } else if (hasComma) {
+            num = num.replace(',', '.');
+        }
+        return new BigDecimal(num);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Parses the measurement time of a station ({@code data.info.time}), which SEMS reports in local plant time.
+     *
+     * @throws DateTimeParseException if the value is missing or malformed
+     */
+    public static OffsetDateTime stationTime(String value) {
+        if (value == null) {
+            throw new DateTimeParseException("Station time missing", "", 0);
+        }
+        return LocalDateTime.parse(value, STATION_TIME)
+                            .atZone(STATION_ZONE)
+                            .toOffsetDateTime();
+    }
+}
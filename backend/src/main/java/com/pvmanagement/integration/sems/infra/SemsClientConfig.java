@@ -9,9 +9,9 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 @Configuration
 @Profile("collector")
@@ -38,9 +38,8 @@ public class SemsClientConfig {
                         return next.exchange(request);
                     }
 
-                    // Get (possibly cached) token header on a blocking-friendly pool
-                    return Mono.fromCallable(auth::getTokenHeader)
-                            .subscribeOn(Schedulers.boundedElastic())
+                    // (Possibly cached) token header; a login in flight is shared, nothing blocks here
+                    return auth.tokenHeader()
                             .flatMap(tokenHeader -> {
                                 ClientRequest withToken = ClientRequest.from(request)
                                         .headers(h -> h.set("token", tokenHeader))
@@ -49,39 +48,15 @@ public class SemsClientConfig {
                                 return next.exchange(withToken).flatMap(response -> {
                                     // 1) Standard 401 → refresh + retry once (guarded)
                                     if (response.statusCode() == HttpStatus.UNAUTHORIZED && !alreadyRetried) {
-                                        return response.bodyToMono(Void.class)
-                                                .then(Mono.fromRunnable(auth::forceRefresh)
-                                                        .subscribeOn(Schedulers.boundedElastic()))
-                                                .then(Mono.fromCallable(auth::getTokenHeader)
-                                                        .subscribeOn(Schedulers.boundedElastic()))
-                                                .flatMap(newHeader -> {
-                                                    ClientRequest retryReq = ClientRequest.from(request)
-                                                            .headers(h -> {
-                                                                h.set("token", newHeader);
-                                                                h.set(RETRIED_HDR, "1"); // guard to avoid loops
-                                                            })
-                                                            .build();
-                                                    return next.exchange(retryReq);
-                                                });
+                                        return response.releaseBody()
+                                                .then(retryWithFreshToken(request, next, auth, tokenHeader));
                                     }
 
                                     // 2) GoodWe quirk: 200 OK but body says "authorization expired" → refresh + retry once (guarded)
                                     if (!alreadyRetried && response.statusCode().is2xxSuccessful()) {
                                         return response.bodyToMono(String.class).flatMap(body -> {
                                             if (isAuthExpiredBody(body, mapper)) {
-                                                return Mono.fromRunnable(auth::forceRefresh)
-                                                        .subscribeOn(Schedulers.boundedElastic())
-                                                        .then(Mono.fromCallable(auth::getTokenHeader)
-                                                                .subscribeOn(Schedulers.boundedElastic()))
-                                                        .flatMap(newHeader -> {
-                                                            ClientRequest retryReq = ClientRequest.from(request)
-                                                                    .headers(h -> {
-                                                                        h.set("token", newHeader);
-                                                                        h.set(RETRIED_HDR, "1"); // guard
-                                                                    })
-                                                                    .build();
-                                                            return next.exchange(retryReq);
-                                                        });
+                                                return retryWithFreshToken(request, next, auth, tokenHeader);
                                             }
                                             // Not expired → rebuild response because we consumed the body
                                             ClientResponse rebuilt = ClientResponse.create(response.statusCode())
@@ -101,6 +76,22 @@ public class SemsClientConfig {
                 .build();
     }
 
+    private Mono<ClientResponse> retryWithFreshToken(ClientRequest request,
+            ExchangeFunction next,
+            SemsAuthService auth,
+            String staleTokenHeader) {
+        return auth.refreshTokenHeader(staleTokenHeader)
+                .flatMap(newHeader -> {
+                    ClientRequest retryReq = ClientRequest.from(request)
+                            .headers(h -> {
+                                h.set("token", newHeader);
+                                h.set(RETRIED_HDR, "1"); // guard to avoid loops
+                            })
+                            .build();
+                    return next.exchange(retryReq);
+                });
+    }
+
     /** Returns true if body JSON has a msg that indicates expired auth (case-insensitive). */
     private boolean isAuthExpiredBody(String body, ObjectMapper mapper) {
         try {
@@ -0,0 +1,58 @@
+package com.pvmanagement.integration.sems.infra;
+
+import com.pvmanagement.integration.sems.domain.LoginResponse;
+import com.pvmanagement.integration.sems.domain.SemsSession;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Optional;
+
+/**
+ * SEMS sessions in the cache database, shared by all collector instances that log in with the same account.
+ */
+@Repository
+public class SemsSessionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SemsSessionRepository(@Qualifier("cacheJdbcTemplate") JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<SemsSession> find(String account) {
+        return jdbcTemplate.query(
+                "SELECT uid, login_timestamp, token, api, expires_at FROM sems_session WHERE account = ?",
+                (rs, rowNum) -> new SemsSession(
+                        new LoginResponse.Data(
+                                rs.getString("uid"),
+                                rs.getLong("login_timestamp"),
+                                rs.getString("token"),
+                                rs.getString("api")),
+                        rs.getTimestamp("expires_at").toInstant()),
+                account
+        ).stream().findFirst();
+    }
+
+    public void save(String account, SemsSession session) {
+        jdbcTemplate.update("""
+                INSERT INTO sems_session (account, uid, login_timestamp, token, api, expires_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, NOW())
+                ON CONFLICT (account) DO UPDATE SET
+                    uid = EXCLUDED.uid,
+                    login_timestamp = EXCLUDED.login_timestamp,
+                    token = EXCLUDED.token,
+                    api = EXCLUDED.api,
+                    expires_at = EXCLUDED.expires_at,
+                    updated_at = EXCLUDED.updated_at
+                """,
+                account,
+                session.data().uid(),
+                session.data().timestamp(),
+                session.data().token(),
+                session.data().api(),
+                Timestamp.from(session.expiresAt())
+        );
+    }
+}
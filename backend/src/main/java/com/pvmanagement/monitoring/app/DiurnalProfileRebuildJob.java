@@ -0,0 +1,35 @@
+package com.pvmanagement.monitoring.app;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Completes profiles that predate quantile sketches once after startup, so median requests do not have to fall back
+ * to scanning the raw history.
+ */
+@Component
+@Profile("!collector")
+public class DiurnalProfileRebuildJob {
+
+    private static final Logger log = LoggerFactory.getLogger(DiurnalProfileRebuildJob.class);
+
+    private final DiurnalProfileService diurnalProfileService;
+
+    public DiurnalProfileRebuildJob(DiurnalProfileService diurnalProfileService) {
+        this.diurnalProfileService = diurnalProfileService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIncompleteProfiles() {
+        try {
+            diurnalProfileService.rebuildIncompleteProfiles();
+        } catch (Exception ex) {
+            // the read path queues the rebuild of a station again when it finds the profile incomplete
+            log.warn("Failed to queue diurnal profile rebuilds: {}", ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.pvmanagement.monitoring.app;
+
+import com.pvmanagement.monitoring.domain.DiurnalMetric;
+import com.pvmanagement.monitoring.domain.DiurnalProfileKey;
+import com.pvmanagement.monitoring.domain.DiurnalSlotAggregate;
+import com.pvmanagement.monitoring.infra.DiurnalProfileRepository;
+import com.pvmanagement.monitoring.infra.PowerflowStatisticsRepository;
+import com.pvmanagement.timeSeriesStatistics.DiurnalSlots;
+import com.pvmanagement.timeSeriesStatistics.QuantileSketch;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Read side of the materialized diurnal profile that {@code CacheIngestionService} keeps up to date.
+ */
+@Service
+public class DiurnalProfileService {
+
+    private static final Logger log = LoggerFactory.getLogger(DiurnalProfileService.class);
+    private static final int MAX_UNLOCKED_REBUILDS = 3;
+
+    private final DiurnalProfileRepository diurnalProfileRepository;
+    private final PowerflowStatisticsRepository powerflowStatisticsRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final TransactionTemplate snapshotTransactionTemplate;
+    // rebuilds run one at a time off the request path; a station is queued at most once
+    private final ExecutorService rebuilds = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "diurnal-profile-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Set<Long> pendingRebuilds = ConcurrentHashMap.newKeySet();
+
+    public DiurnalProfileService(DiurnalProfileRepository diurnalProfileRepository,
+                                 PowerflowStatisticsRepository powerflowStatisticsRepository,
+                                 PlatformTransactionManager transactionManager) {
+        this.diurnalProfileRepository = diurnalProfileRepository;
+        this.powerflowStatisticsRepository = powerflowStatisticsRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.snapshotTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTransactionTemplate.setReadOnly(true);
+        this.snapshotTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Per-slot sums and counts; aggregating the raw history is only a fallback for stations without
+     * materialized rows.
+     */
+    public List<DiurnalSlotAggregate> slotAggregates(Long powerStationId) {
+        var slotAggregates = diurnalProfileRepository.findByPowerStation(powerStationId);
+        if (slotAggregates.isEmpty()) {
+            slotAggregates = powerflowStatisticsRepository.findDiurnalSlotAggregates(powerStationId);
+        }
+        return slotAggregates;
+    }
+
+    /**
+     * Per-slot quantile sketches. When a slot's stored sketch does not cover all samples (e.g. history that was
+     * ingested before sketches existed), the sketches are computed from the raw history without touching the
+     * profile, and a rebuild of the stored profile is queued in the background.
+     */
+    public Map<Integer, QuantileSketch> slotSketches(Long powerStationId, DiurnalMetric metric) {
+        Map<Integer, QuantileSketch> sketches = new HashMap<>();
+        boolean complete = true;
+        for (var row : diurnalProfileRepository.findSketches(powerStationId, metric)) {
+            if (row.sampleCount() == 0) {
+                continue;
+            }
+            if (row.sketch() == null) {
+                complete = false;
+                break;
+            }
+            var sketch = QuantileSketch.fromBytes(row.sketch());
+            if (sketch.count() != row.sampleCount()) {
+                complete = false;
+                break;
+            }
+            sketches.put(row.slot(), sketch);
+        }
+        if (complete && !sketches.isEmpty()) {
+            return sketches;
+        }
+        requestRebuild(powerStationId);
+        return readOnlyTransactionTemplate.execute(status -> toSketches(accumulate(powerStationId))).get(metric);
+    }
+
+    /**
+     * Queues a {@link #rebuild} of the station unless one is already queued or running.
+     */
+    public void requestRebuild(Long powerStationId) {
+        if (!pendingRebuilds.add(powerStationId)) {
+            return;
+        }
+        rebuilds.execute(() -> {
+            try {
+                rebuild(powerStationId);
+            } catch (Exception ex) {
+                log.warn("Failed to rebuild diurnal profile of power station {}: {}", powerStationId, ex.getMessage());
+            } finally {
+                pendingRebuilds.remove(powerStationId);
+            }
+        });
+    }
+
+    /**
+     * Queues a rebuild of every station whose profile has slots without a sketch, e.g. rows that predate sketches.
+     */
+    public void rebuildIncompleteProfiles() {
+        var stations = diurnalProfileRepository.findPowerStationsWithoutSketches();
+        if (!stations.isEmpty()) {
+            log.info("Queueing diurnal profile rebuild of {} power station(s) without sketches", stations.size());
+        }
+        stations.forEach(this::requestRebuild);
+    }
+
+    @PreDestroy
+    void stop() {
+        rebuilds.shutdownNow();
+    }
+
+    /**
+     * Recomputes sums, counts and sketches of all slots of a station from powerflow_snapshot. The history is scanned
+     * without locking the profile, together with the profile's sample counts as of the scan; the result is then
+     * swapped in with one short write that locks the rows and only goes ahead if no sample was ingested for the
+     * station in the meantime. Otherwise the rebuild starts over, and after {@value #MAX_UNLOCKED_REBUILDS}
+     * attempts holds the lock for the scan, which holds up the station's ingestion for the duration. Use
+     * {@link #requestRebuild} rather than calling this on a request.
+     */
+    public Map<DiurnalMetric, Map<Integer, QuantileSketch>> rebuild(Long powerStationId) {
+        log.info("Rebuilding diurnal profile of power station {} from raw history", powerStationId);
+        for (int attempt = 0; attempt < MAX_UNLOCKED_REBUILDS; attempt++) {
+            var scan = snapshotTransactionTemplate.execute(status -> new HistoryScan(
+                    diurnalProfileRepository.findSampleCounts(powerStationId),
+                    accumulate(powerStationId)));
+            boolean swapped = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (!diurnalProfileRepository.lockSampleCounts(powerStationId).equals(scan.sampleCounts())) {
+                    return false;
+                }
+                replace(powerStationId, scan.accumulators());
+                return true;
+            }));
+            if (swapped) {
+                return toSketches(scan.accumulators());
+            }
+            log.debug("Diurnal profile of power station {} changed during the rebuild, starting over", powerStationId);
+        }
+        return transactionTemplate.execute(status -> {
+            diurnalProfileRepository.lockSampleCounts(powerStationId);
+            var accumulators = accumulate(powerStationId);
+            replace(powerStationId, accumulators);
+            return toSketches(accumulators);
+        });
+    }
+
+    private void replace(Long powerStationId, Map<DiurnalMetric, Accumulator> accumulators) {
+        for (var entry : accumulators.entrySet()) {
+            var accumulator = entry.getValue();
+            for (int slot = 0; slot < DiurnalSlots.SLOTS_PER_DAY; slot++) {
+                if (accumulator.sketches[slot] == null) {
+                    continue;
+                }
+                diurnalProfileRepository.replace(powerStationId,
+                        slot,
+                        entry.getKey(),
+                        accumulator.sums[slot],
+                        accumulator.sketches[slot]);
+            }
+        }
+    }
+
+    // scans the raw history through a cursor, so it has to run inside a transaction
+    private Map<DiurnalMetric, Accumulator> accumulate(Long powerStationId) {
+        Map<DiurnalMetric, Accumulator> accumulators = new EnumMap<>(DiurnalMetric.class);
+        for (var metric : DiurnalMetric.values()) {
+            accumulators.put(metric, new Accumulator());
+        }
+        powerflowStatisticsRepository.forEachSlotSample(powerStationId, (slot, pvW, loadW) -> {
+            accumulators.get(DiurnalMetric.PV).add(slot, pvW);
+            accumulators.get(DiurnalMetric.LOAD).add(slot, loadW);
+        });
+        return accumulators;
+    }
+
+    private static Map<DiurnalMetric, Map<Integer, QuantileSketch>> toSketches(
+            Map<DiurnalMetric, Accumulator> accumulators) {
+        Map<DiurnalMetric, Map<Integer, QuantileSketch>> result = new EnumMap<>(DiurnalMetric.class);
+        accumulators.forEach((metric, accumulator) -> {
+            Map<Integer, QuantileSketch> sketches = new HashMap<>();
+            for (int slot = 0; slot < DiurnalSlots.SLOTS_PER_DAY; slot++) {
+                if (accumulator.sketches[slot] != null) {
+                    sketches.put(slot, accumulator.sketches[slot]);
+                }
+            }
+            result.put(metric, sketches);
+        });
+        return result;
+    }
+
+    // profile rows are written in the same transaction as the snapshots they count, so counts and history read from
+    // one snapshot of the database match
+    private record HistoryScan(Map<DiurnalProfileKey, Long> sampleCounts, Map<DiurnalMetric, Accumulator> accumulators) {
+    }
+
+    private static final class Accumulator {
+        private final BigDecimal[] sums = new BigDecimal[DiurnalSlots.SLOTS_PER_DAY];
+        private final QuantileSketch[] sketches = new QuantileSketch[DiurnalSlots.SLOTS_PER_DAY];
+
+        void add(int slot, BigDecimal value) {
+            if (value == null) {
+                return;
+            }
+            if (sketches[slot] == null) {
+                sketches[slot] = new QuantileSketch();
+                sums[slot] = BigDecimal.ZERO;
+            }
+            sketches[slot].add(value.doubleValue());
+            sums[slot] = sums[slot].add(value);
+        }
+    }
+}
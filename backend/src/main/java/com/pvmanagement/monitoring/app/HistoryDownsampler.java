@@ -0,0 +1,163 @@
+package com.pvmanagement.monitoring.app;
+
+import com.pvmanagement.monitoring.domain.HistoryResponseDto;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Reduces a time-ordered history to at most {@code maxPoints} points with Largest-Triangle-Three-Buckets: the range
+ * is split into equally wide time buckets and every bucket keeps the one measured point that spans the largest
+ * triangle with the point kept for the previous bucket and the average of the next bucket. Unlike averaging, peaks
+ * and dips survive, and every returned point is a real measurement. The first bucket keeps its first point, the
+ * last bucket its last one. The triangle areas of all metrics are added up, so the power metrics outweigh the state
+ * of charge.
+ * <p>
+ * Points are consumed one by one, so only two buckets are held in memory while the history streams from the
+ * database. Points outside {@code [from, to]} are dropped.
+ */
+final class HistoryDownsampler {
+
+    private static final List<Function<HistoryResponseDto, BigDecimal>> METRICS = List.of(
+            HistoryResponseDto::pvW,
+            HistoryResponseDto::batteryW,
+            HistoryResponseDto::loadW,
+            HistoryResponseDto::gridW,
+            HistoryResponseDto::socPercent);
+
+    private HistoryDownsampler() {
+    }
+
+    static List<HistoryResponseDto> downsample(Iterator<HistoryResponseDto> points,
+                                               OffsetDateTime from,
+                                               OffsetDateTime to,
+                                               int maxPoints) {
+        if (maxPoints < 1) {
+            throw new IllegalArgumentException("maxPoints must be positive");
+        }
+        long rangeMillis = Math.max(Duration.between(from, to).toMillis(), 1);
+        long bucketMillis = Math.max((rangeMillis + maxPoints - 1) / maxPoints, 1);
+        long fromMillis = from.toInstant().toEpochMilli();
+
+        var selection = new Selection(fromMillis);
+        List<HistoryResponseDto> bucket = null;
+        long bucketIndex = Long.MIN_VALUE;
+        while (points.hasNext()) {
+            var point = points.next();
+            if (point.timestamp().isBefore(from) || point.timestamp().isAfter(to)) {
+                continue;
+            }
+            // a point at exactly `to` belongs to the last bucket instead of opening one more
+            long index = Math.min(Math.floorDiv(millis(point, fromMillis), bucketMillis), maxPoints - 1);
+            if (bucket == null || index != bucketIndex) {
+                if (bucket != null) {
+                    selection.complete(bucket);
+                }
+                bucket = new ArrayList<>();
+                bucketIndex = index;
+            }
+            bucket.add(point);
+        }
+        if (bucket != null) {
+            selection.complete(bucket);
+        }
+        return selection.finish();
+    }
+
+    private static long millis(HistoryResponseDto point, long fromMillis) {
+        return point.timestamp().toInstant().toEpochMilli() - fromMillis;
+    }
+
+    /**
+     * Picks the point of a bucket once the bucket after it is complete.
+     */
+    private static final class Selection {
+
+        private final long fromMillis;
+        private final List<HistoryResponseDto> result = new ArrayList<>();
+        private HistoryResponseDto previous;
+        private List<HistoryResponseDto> pending;
+
+        Selection(long fromMillis) {
+            this.fromMillis = fromMillis;
+        }
+
+        void complete(List<HistoryResponseDto> bucket) {
+            if (previous == null) {
+                keep(bucket.get(0));
+                return;
+            }
+            if (pending != null) {
+                keep(largestTriangle(pending, average(bucket)));
+            }
+            pending = bucket;
+        }
+
+        List<HistoryResponseDto> finish() {
+            if (pending != null) {
+                keep(pending.get(pending.size() - 1));
+            }
+            return result;
+        }
+
+        private void keep(HistoryResponseDto point) {
+            result.add(point);
+            previous = point;
+        }
+
+        private HistoryResponseDto largestTriangle(List<HistoryResponseDto> bucket, Average next) {
+            HistoryResponseDto largest = bucket.get(0);
+            double largestArea = -1;
+            double ax = millis(previous, fromMillis);
+            for (var point : bucket) {
+                double px = millis(point, fromMillis);
+                double area = 0;
+                for (int metric = 0; metric < METRICS.size(); metric++) {
+                    var a = METRICS.get(metric).apply(previous);
+                    var p = METRICS.get(metric).apply(point);
+                    if (a == null || p == null || Double.isNaN(next.values[metric])) {
+                        continue;
+                    }
+                    double ay = a.doubleValue();
+                    area += Math.abs((ax - next.millis) * (p.doubleValue() - ay)
+                            - (ax - px) * (next.values[metric] - ay));
+                }
+                if (area > largestArea) {
+                    largestArea = area;
+                    largest = point;
+                }
+            }
+            return largest;
+        }
+
+        private Average average(List<HistoryResponseDto> bucket) {
+            double millis = 0;
+            double[] values = new double[METRICS.size()];
+            for (int metric = 0; metric < METRICS.size(); metric++) {
+                double sum = 0;
+                int count = 0;
+                for (var point : bucket) {
+                    var value = METRICS.get(metric).apply(point);
+                    if (value != null) {
+                        sum += value.doubleValue();
+                        count++;
+                    }
+                }
+                values[metric] = count == 0 ? Double.NaN : sum / count;
+            }
+            for (var point : bucket) {
+                millis += millis(point, fromMillis);
+            }
+            return new Average(millis / bucket.size(), values);
+        }
+    }
+
+    // NaN for a metric without values in the bucket
+    private record Average(double millis, double[] values) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.pvmanagement.monitoring.app;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An export whose rows are only read from the database while it is written out.
+ */
+@FunctionalInterface
+public interface HistoryExport {
+
+    void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,69 @@
+package com.pvmanagement.monitoring.app;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pvmanagement.monitoring.domain.CurrentMeasurementsDto;
+import com.pvmanagement.monitoring.domain.PowerflowSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Latest measurement per station, kept current by the cache ingestion as it stores snapshots, so polling the
+ * current values does not query the database. Every new latest measurement is also pushed to
+ * {@link LiveMeasurementStream}.
+ * <p>
+ * Entries expire after {@code app.measurements.latest-cache.ttl}, which bounds how stale an instance that does not
+ * ingest itself can get.
+ */
+@Component
+public class LatestMeasurementCache {
+
+    private final Cache<Long, CurrentMeasurementsDto> latest;
+    private final LiveMeasurementStream liveMeasurementStream;
+
+    public LatestMeasurementCache(@Value("${app.measurements.latest-cache.ttl:PT1M}") Duration ttl,
+                                  LiveMeasurementStream liveMeasurementStream) {
+        this.liveMeasurementStream = liveMeasurementStream;
+        this.latest = Caffeine.newBuilder()
+                              .maximumSize(10_000)
+                              .expireAfterWrite(ttl)
+                              .build();
+    }
+
+    /**
+     * @param loader reads the latest measurement on a miss; a {@code null} result (no snapshots yet) is not cached
+     */
+    public CurrentMeasurementsDto get(Long powerStationId, Function<Long, CurrentMeasurementsDto> loader) {
+        return latest.get(powerStationId, loader);
+    }
+
+    /**
+     * Takes a stored snapshot as the station's latest measurement unless a newer one is already cached, so snapshots
+     * may be offered in any order.
+     */
+    public void offer(Long powerStationId, PowerflowSnapshot snapshot) {
+        var offered = toDto(snapshot);
+        latest.asMap().compute(powerStationId, (id, cached) -> {
+            if (cached != null && !offered.timestamp().isAfter(cached.timestamp())) {
+                return cached;
+            }
+            // published while the entry is locked, so subscribers see measurements in order
+            liveMeasurementStream.publish(powerStationId, offered);
+            return offered;
+        });
+    }
+
+    static CurrentMeasurementsDto toDto(PowerflowSnapshot snapshot) {
+        return new CurrentMeasurementsDto(
+                snapshot.getPowerflowTimestamp(),
+                snapshot.getPvW(),
+                snapshot.getBatteryW(),
+                snapshot.getLoadW(),
+                snapshot.getGridW(),
+                snapshot.getSocPercent()
+        );
+    }
+}
@@ -0,0 +1,68 @@
+package com.pvmanagement.monitoring.app;
+
+import com.pvmanagement.monitoring.domain.CurrentMeasurementsDto;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fans new measurements out to everyone watching a station. A measurement is published once and handed to all
+ * subscribers from memory, no subscriber causes a query.
+ * <p>
+ * Every subscriber gets its own hand-off, so a slow client neither blocks the publisher nor other clients; it skips
+ * to the latest measurement instead of queueing up old ones.
+ */
+@Component
+public class LiveMeasurementStream {
+
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+
+    /**
+     * Measurements of the station published from now on. Never completes on its own.
+     */
+    public Flux<CurrentMeasurementsDto> updates(Long powerStationId) {
+        return Flux.defer(() -> {
+            var channel = channels.compute(powerStationId,
+                    (id, existing) -> (existing == null ? new Channel() : existing).subscribed());
+            return channel.sink.asFlux()
+                    .doFinally(signal -> channels.computeIfPresent(powerStationId,
+                            (id, existing) -> existing.unsubscribed()));
+        }).onBackpressureLatest().publishOn(Schedulers.boundedElastic(), 1);
+    }
+
+    public void publish(Long powerStationId, CurrentMeasurementsDto measurement) {
+        var channel = channels.get(powerStationId);
+        if (channel != null) {
+            channel.emit(measurement);
+        }
+    }
+
+    int subscriberCount(Long powerStationId) {
+        var channel = channels.get(powerStationId);
+        return channel == null ? 0 : channel.subscribers;
+    }
+
+    // subscriber counts change inside Map.compute, so a channel is never dropped while someone is about to subscribe
+    private static final class Channel {
+        private final Sinks.Many<CurrentMeasurementsDto> sink = Sinks.many().multicast().directBestEffort();
+        private int subscribers;
+
+        private Channel subscribed() {
+            subscribers++;
+            return this;
+        }
+
+        private Channel unsubscribed() {
+            subscribers--;
+            return subscribers == 0 ? null : this;
+        }
+
+        private synchronized void emit(CurrentMeasurementsDto measurement) {
+            sink.tryEmitNext(measurement);
+        }
+    }
+}
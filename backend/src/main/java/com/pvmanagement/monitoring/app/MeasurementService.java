@@ -4,47 +4,62 @@ import com.pvmanagement.monitoring.domain.PowerStation;
 import com.pvmanagement.monitoring.domain.CurrentMeasurementsDto;
 import com.pvmanagement.monitoring.domain.HistoryRequestDto;
 import com.pvmanagement.monitoring.domain.HistoryResponseDto;
+import com.pvmanagement.monitoring.domain.RollupResolution;
 import com.pvmanagement.monitoring.infra.PowerStationRepository;
+import com.pvmanagement.monitoring.infra.PowerflowHistoryRepository;
+import com.pvmanagement.monitoring.infra.PowerflowRollupRepository;
 import com.pvmanagement.monitoring.infra.PowerflowSnapshotRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 @Service
 @Transactional(readOnly = true)
 public class MeasurementService {
 
+    static final int HISTORY_PAGE_SIZE = 1000;
+
     private final PowerStationRepository powerStationRepository;
     private final PowerflowSnapshotRepository powerflowSnapshotRepository;
+    private final PowerflowRollupRepository powerflowRollupRepository;
+    private final PowerflowHistoryRepository powerflowHistoryRepository;
+    private final LatestMeasurementCache latestMeasurementCache;
 
     public MeasurementService(PowerStationRepository powerStationRepository,
-                              PowerflowSnapshotRepository powerflowSnapshotRepository
+                              PowerflowSnapshotRepository powerflowSnapshotRepository,
+                              PowerflowRollupRepository powerflowRollupRepository,
+                              PowerflowHistoryRepository powerflowHistoryRepository,
+                              LatestMeasurementCache latestMeasurementCache
     ) {
         this.powerStationRepository = powerStationRepository;
         this.powerflowSnapshotRepository = powerflowSnapshotRepository;
+        this.powerflowRollupRepository = powerflowRollupRepository;
+        this.powerflowHistoryRepository = powerflowHistoryRepository;
+        this.latestMeasurementCache = latestMeasurementCache;
     }
 
+    /**
+     * Served from {@link LatestMeasurementCache}; only a miss opens a transaction and reads the database.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CurrentMeasurementsDto current(Long powerStationId) {
+        return latestMeasurementCache.get(powerStationId, this::loadCurrent);
+    }
+
+    private CurrentMeasurementsDto loadCurrent(Long powerStationId) {
         PowerStation station = powerStationRepository.findById(powerStationId)
                 .orElseThrow(() -> new IllegalArgumentException("Power station not found"));
 
-        var snapshot = powerflowSnapshotRepository.findFirstByPowerStationOrderByPowerflowTimestampDesc(station)
+        return powerflowSnapshotRepository.findFirstByPowerStationOrderByPowerflowTimestampDesc(station)
+                .map(LatestMeasurementCache::toDto)
                 .orElse(null);
-
-        if (snapshot == null) {
-            return null;
-        }
-
-        return new CurrentMeasurementsDto(
-                snapshot.getPowerflowTimestamp(),
-                snapshot.getPvW(),
-                snapshot.getBatteryW(),
-                snapshot.getLoadW(),
-                snapshot.getGridW(),
-                snapshot.getSocPercent()
-        );
     }
 
     public List<HistoryResponseDto> history(Long powerStationId, HistoryRequestDto request) {
@@ -54,6 +69,10 @@ public class MeasurementService {
         OffsetDateTime from = request.from();
         OffsetDateTime to = request.to();
 
+        if (request.maxPoints() != null) {
+            return budgetedHistory(station, from, to, request.maxPoints());
+        }
+
         var history = powerflowSnapshotRepository
                 .findByPowerStationAndPowerflowTimestampBetweenOrderByPowerflowTimestampAsc(station, from, to)
                 .stream()
@@ -68,4 +87,92 @@ public class MeasurementService {
 
         return history;
     }
+
+    /**
+     * Raw history of a range as lazily fetched pages of at most {@link #HISTORY_PAGE_SIZE} snapshots. The station is
+     * resolved right away, the pages are only queried while iterating, each with its own short keyset query, so no
+     * connection or transaction is held while the caller writes a page out.
+     */
+    public Iterator<List<HistoryResponseDto>> historyPages(Long powerStationId, HistoryRequestDto request) {
+        PowerStation station = powerStationRepository.findById(powerStationId)
+                .orElseThrow(() -> new IllegalArgumentException("Power station not found"));
+        return new HistoryPages(station.getId(), request.from(), request.to());
+    }
+
+    /**
+     * Serves the range from the finest rollup whose buckets fit into {@code maxPoints}, so long ranges never touch
+     * the raw table. Short ranges that need more detail than 15-minute buckets are downsampled from the raw snapshots.
+     */
+    private List<HistoryResponseDto> budgetedHistory(PowerStation station,
+                                                     OffsetDateTime from,
+                                                     OffsetDateTime to,
+                                                     int maxPoints) {
+        var range = Duration.between(from, to);
+        if (RollupResolution.FIFTEEN_MINUTES.bucketsFor(range) <= maxPoints) {
+            try (var points = powerflowSnapshotRepository.streamHistory(station, from, to)) {
+                return HistoryDownsampler.downsample(points.iterator(), from, to, maxPoints);
+            }
+        }
+
+        var resolution = Arrays.stream(RollupResolution.values())
+                .filter(it -> it.bucketsFor(range) <= maxPoints)
+                .findFirst()
+                .orElse(RollupResolution.DAY);
+        // first bucket overlapping the range starts at or before from
+        var firstBucket = resolution.bucketStart(from);
+        var history = powerflowRollupRepository.findHistory(station.getId(), resolution, firstBucket, to);
+        if (history.size() <= maxPoints) {
+            return history;
+        }
+        // even daily buckets exceed the budget
+        return HistoryDownsampler.downsample(history.iterator(), firstBucket, to, maxPoints);
+    }
+
+    private final class HistoryPages implements Iterator<List<HistoryResponseDto>> {
+
+        private final Long powerStationId;
+        private final OffsetDateTime from;
+        private final OffsetDateTime to;
+        private OffsetDateTime lastTimestamp;
+        private List<HistoryResponseDto> next;
+        private boolean exhausted;
+
+        private HistoryPages(Long powerStationId, OffsetDateTime from, OffsetDateTime to) {
+            this.powerStationId = powerStationId;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !exhausted) {
+                next = fetch();
+            }
+            return next != null;
+        }
+
+        @Override
+        public List<HistoryResponseDto> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var page = next;
+            next = null;
+            return page;
+        }
+
+        private List<HistoryResponseDto> fetch() {
+            var page = lastTimestamp == null
+                    ? powerflowHistoryRepository.findFirstPage(powerStationId, from, to, HISTORY_PAGE_SIZE)
+                    : powerflowHistoryRepository.findPageAfter(powerStationId, lastTimestamp, to, HISTORY_PAGE_SIZE);
+            if (page.size() < HISTORY_PAGE_SIZE) {
+                exhausted = true;
+            }
+            if (page.isEmpty()) {
+                return null;
+            }
+            lastTimestamp = page.get(page.size() - 1).timestamp();
+            return page;
+        }
+    }
 }
@@ -1,29 +1,55 @@
 package com.pvmanagement.monitoring.app;
 
+import com.pvmanagement.monitoring.domain.DashboardOverviewDto;
+import com.pvmanagement.monitoring.domain.HistoryWindowDto;
 import com.pvmanagement.monitoring.domain.PowerStation;
 import com.pvmanagement.monitoring.domain.CurrentMeasurementsDto;
 import com.pvmanagement.monitoring.domain.DashboardSummaryDto;
 import com.pvmanagement.monitoring.domain.HistoryResponseDto;
 import com.pvmanagement.monitoring.domain.PowerStationDto;
+import com.pvmanagement.monitoring.domain.RollupResolution;
+import com.pvmanagement.monitoring.domain.SemSyncStatus;
 import com.pvmanagement.monitoring.infra.PowerStationRepository;
+import com.pvmanagement.monitoring.infra.PowerflowRollupRepository;
 import com.pvmanagement.monitoring.infra.PowerflowSnapshotRepository;
+import com.pvmanagement.monitoring.infra.SemSyncStatusRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @Transactional(readOnly = true)
 public class PowerStationService {
 
+    static final Duration HISTORY_WINDOW = Duration.ofHours(24);
+    private static final RollupResolution WINDOW_RESOLUTION = RollupResolution.FIFTEEN_MINUTES;
+    private static final String WINDOW_TOKEN_PREFIX = "w1:";
+
     private final PowerStationRepository powerStationRepository;
     private final PowerflowSnapshotRepository powerflowSnapshotRepository;
+    private final PowerflowRollupRepository powerflowRollupRepository;
+    private final LatestMeasurementCache latestMeasurementCache;
+    private final SemSyncStatusRepository semSyncStatusRepository;
 
-    public PowerStationService(PowerStationRepository powerStationRepository, PowerflowSnapshotRepository powerflowSnapshotRepository) {
+    public PowerStationService(PowerStationRepository powerStationRepository,
+                               PowerflowSnapshotRepository powerflowSnapshotRepository,
+                               PowerflowRollupRepository powerflowRollupRepository,
+                               LatestMeasurementCache latestMeasurementCache,
+                               SemSyncStatusRepository semSyncStatusRepository) {
         this.powerStationRepository = powerStationRepository;
         this.powerflowSnapshotRepository = powerflowSnapshotRepository;
+        this.powerflowRollupRepository = powerflowRollupRepository;
+        this.latestMeasurementCache = latestMeasurementCache;
+        this.semSyncStatusRepository = semSyncStatusRepository;
     }
 
     public PowerStationDto getPowerStation(Long id) {
@@ -40,9 +66,16 @@ public class PowerStationService {
     }
 
     public DashboardSummaryDto buildDashboard(Long powerStationId) {
+        return buildDashboard(powerStationId, null);
+    }
+
+    /**
+     * @param maxPoints optional upper bound for the number of history points, the whole history is downsampled to
+     *                  fit when set
+     */
+    public DashboardSummaryDto buildDashboard(Long powerStationId, Integer maxPoints) {
         var station = powerStationRepository.findById(powerStationId)
                 .orElseThrow(() -> new IllegalArgumentException("Power station not found"));
-        var snapshot = powerflowSnapshotRepository.findFirstByPowerStationOrderByPowerflowTimestampDesc(station);
         OffsetDateTime to = OffsetDateTime.now(ZoneOffset.UTC);
         OffsetDateTime from = OffsetDateTime.of(1970,
                 1,
@@ -52,33 +85,114 @@ public class PowerStationService {
                 0,
                 0,
                 ZoneOffset.UTC);
-        var history =
-                powerflowSnapshotRepository.findByPowerStationAndPowerflowTimestampBetweenOrderByPowerflowTimestampAsc(station,
-                        from,
-                        to);
-
-        CurrentMeasurementsDto current = snapshot.map(snap -> new CurrentMeasurementsDto(snap.getPowerflowTimestamp(),
-                        snap.getPvW(),
-                        snap.getBatteryW(),
-                        snap.getLoadW(),
-                        snap.getGridW(),
-                        snap.getSocPercent()))
-                .orElse(null);
+        CurrentMeasurementsDto current = latestMeasurementCache.get(station.getId(), id ->
+                powerflowSnapshotRepository.findFirstByPowerStationOrderByPowerflowTimestampDesc(station)
+                        .map(LatestMeasurementCache::toDto)
+                        .orElse(null));
 
-        List<HistoryResponseDto> historyResponse = history.stream()
-                .map(point -> new HistoryResponseDto(point.getPowerflowTimestamp(),
-                        point.getPvW(),
-                        point.getBatteryW(),
-                        point.getLoadW(),
-                        point.getGridW(),
-                        point.getSocPercent()))
-                .toList();
+        List<HistoryResponseDto> historyResponse;
+        if (maxPoints != null) {
+            // size the buckets by the recorded range rather than by the epoch
+            var first = powerflowSnapshotRepository.findFirstByPowerStationOrderByPowerflowTimestampAsc(station);
+            if (first.isEmpty()) {
+                historyResponse = List.of();
+            }
+            else {
+                from = first.get().getPowerflowTimestamp();
+                try (var points = powerflowSnapshotRepository.streamHistory(station, from, to)) {
+                    historyResponse = HistoryDownsampler.downsample(points.iterator(), from, to, maxPoints);
+                }
+            }
+        }
+        else {
+            historyResponse = powerflowSnapshotRepository
+                    .findByPowerStationAndPowerflowTimestampBetweenOrderByPowerflowTimestampAsc(station, from, to)
+                    .stream()
+                    .map(point -> new HistoryResponseDto(point.getPowerflowTimestamp(),
+                            point.getPvW(),
+                            point.getBatteryW(),
+                            point.getLoadW(),
+                            point.getGridW(),
+                            point.getSocPercent()))
+                    .toList();
+        }
 
         return new DashboardSummaryDto(toDto(station),
                 current,
                 historyResponse);
     }
 
+    /**
+     * Station, current values and the last {@link #HISTORY_WINDOW} in 15-minute buckets from the rollup, so the cost
+     * stays the same however long the station has been recording. Older windows are fetched on demand with
+     * {@link #historyWindow(Long, String)}.
+     */
+    public DashboardOverviewDto buildDashboardOverview(Long powerStationId) {
+        var station = powerStationRepository.findById(powerStationId)
+                .orElseThrow(() -> new IllegalArgumentException("Power station not found"));
+        CurrentMeasurementsDto current = latestMeasurementCache.get(station.getId(), id ->
+                powerflowSnapshotRepository.findFirstByPowerStationOrderByPowerflowTimestampDesc(station)
+                        .map(LatestMeasurementCache::toDto)
+                        .orElse(null));
+        // the open bucket belongs to the window, so the window ends with the bucket after it
+        var to = WINDOW_RESOLUTION.bucketStart(OffsetDateTime.now(ZoneOffset.UTC))
+                .plus(WINDOW_RESOLUTION.bucketLength());
+        return new DashboardOverviewDto(toDto(station), current, window(station, to));
+    }
+
+    /**
+     * The history window a continuation token points at, as returned in {@link HistoryWindowDto#olderWindow()}.
+     */
+    public HistoryWindowDto historyWindow(Long powerStationId, String token) {
+        var station = powerStationRepository.findById(powerStationId)
+                .orElseThrow(() -> new IllegalArgumentException("Power station not found"));
+        return window(station, decodeWindowToken(token));
+    }
+
+    /**
+     * Latest recorded sync of the station, empty while none has been flushed yet. Syncs are written behind, so the
+     * status may lag by up to one flush interval.
+     */
+    public Optional<SemSyncStatus> getSyncStatus(Long powerStationId) {
+        if (!powerStationRepository.existsById(powerStationId)) {
+            throw new IllegalArgumentException("Power station not found");
+        }
+        return semSyncStatusRepository.findByPowerStation(powerStationId);
+    }
+
+    private HistoryWindowDto window(PowerStation station, OffsetDateTime to) {
+        var from = to.minus(HISTORY_WINDOW);
+        // bucket starts are aligned, so ending one second early leaves the bucket at 'to' to the next window
+        var history = powerflowRollupRepository.findHistory(station.getId(), WINDOW_RESOLUTION, from, to.minusSeconds(1));
+        var older = powerflowSnapshotRepository.findFirstByPowerStationOrderByPowerflowTimestampAsc(station)
+                .filter(first -> first.getPowerflowTimestamp().isBefore(from))
+                .map(first -> encodeWindowToken(from))
+                .orElse(null);
+        return new HistoryWindowDto(from, to, history, older);
+    }
+
+    static String encodeWindowToken(OffsetDateTime to) {
+        var token = WINDOW_TOKEN_PREFIX + to.toEpochSecond();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static OffsetDateTime decodeWindowToken(String token) {
+        OffsetDateTime to;
+        try {
+            var decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            to = decoded.startsWith(WINDOW_TOKEN_PREFIX)
+                    ? OffsetDateTime.ofInstant(Instant.ofEpochSecond(
+                            Long.parseLong(decoded.substring(WINDOW_TOKEN_PREFIX.length()))), ZoneOffset.UTC)
+                    : null;
+        } catch (IllegalArgumentException | DateTimeException ex) {
+            to = null;
+        }
+        if (to == null || !to.equals(WINDOW_RESOLUTION.bucketStart(to))) {
+            throw new IllegalArgumentException("Invalid history window token");
+        }
+        return to;
+    }
+
     private Double toDouble(Number value) {
         return value == null ?
                 null :
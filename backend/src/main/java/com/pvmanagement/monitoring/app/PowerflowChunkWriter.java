@@ -0,0 +1,133 @@
+package com.pvmanagement.monitoring.app;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encodes snapshots as length-delimited {@code PowerflowChunk} protobuf messages (see
+ * {@code proto/powerflow_export.proto}) without a protobuf runtime. Points are buffered in primitive arrays and
+ * written as one chunk with packed fields every {@code chunkSize} points, so memory stays constant however long the
+ * range is.
+ */
+final class PowerflowChunkWriter {
+
+    private static final int START_FIELD = 1;
+    private static final int TIMESTAMP_DELTA_FIELD = 2;
+    private static final int FIRST_METRIC_FIELD = 3;
+    private static final int METRICS = 5;
+    private static final int WIRE_TYPE_VARINT = 0;
+    private static final int WIRE_TYPE_LENGTH_DELIMITED = 2;
+
+    private final OutputStream out;
+    private final int chunkSize;
+    private final long[] timestamps;
+    private final double[][] metrics;
+    private final ByteBuffer buffer;
+    private int size;
+
+    PowerflowChunkWriter(OutputStream out, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1");
+        }
+        this.out = out;
+        this.chunkSize = chunkSize;
+        this.timestamps = new long[chunkSize];
+        this.metrics = new double[METRICS][chunkSize];
+        // worst case: 10 byte varints for every delta, 8 bytes per double, plus tags, lengths and the length prefix
+        this.buffer = ByteBuffer.allocate(16 + chunkSize * (10 + 8 * METRICS) + (1 + METRICS) * 11)
+                                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @throws UncheckedIOException if a full chunk cannot be written
+     */
+    void write(long epochMillis, double pvW, double batteryW, double loadW, double gridW, double socPercent) {
+        timestamps[size] = epochMillis;
+        metrics[0][size] = pvW;
+        metrics[1][size] = batteryW;
+        metrics[2][size] = loadW;
+        metrics[3][size] = gridW;
+        metrics[4][size] = socPercent;
+        if (++size == chunkSize) {
+            try {
+                flushChunk();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    /**
+     * Writes the last, partial chunk.
+     */
+    void finish() throws IOException {
+        if (size > 0) {
+            flushChunk();
+        }
+        out.flush();
+    }
+
+    private void flushChunk() throws IOException {
+        buffer.clear();
+        writeTag(START_FIELD, WIRE_TYPE_VARINT);
+        writeVarint(timestamps[0]);
+
+        int deltasLength = 0;
+        for (int i = 0; i < size; i++) {
+            deltasLength += varintSize(zigZag(delta(i)));
+        }
+        writeTag(TIMESTAMP_DELTA_FIELD, WIRE_TYPE_LENGTH_DELIMITED);
+        writeVarint(deltasLength);
+        for (int i = 0; i < size; i++) {
+            writeVarint(zigZag(delta(i)));
+        }
+
+        for (int metric = 0; metric < METRICS; metric++) {
+            writeTag(FIRST_METRIC_FIELD + metric, WIRE_TYPE_LENGTH_DELIMITED);
+            writeVarint((long) size * Double.BYTES);
+            for (int i = 0; i < size; i++) {
+                buffer.putDouble(metrics[metric][i]);
+            }
+        }
+
+        int messageLength = buffer.position();
+        // the length prefix is encoded behind the message and written out first
+        int prefixLength = varintSize(messageLength);
+        writeVarint(messageLength);
+        out.write(buffer.array(), messageLength, prefixLength);
+        out.write(buffer.array(), 0, messageLength);
+        size = 0;
+    }
+
+    private long delta(int index) {
+        return index == 0 ? 0 : timestamps[index] - timestamps[index - 1];
+    }
+
+    private void writeTag(int field, int wireType) {
+        writeVarint((long) field << 3 | wireType);
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int varintSize(long value) {
+        int bytes = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+}
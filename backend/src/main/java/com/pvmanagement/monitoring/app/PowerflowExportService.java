@@ -0,0 +1,55 @@
+package com.pvmanagement.monitoring.app;
+
+import com.pvmanagement.monitoring.domain.HistoryRequestDto;
+import com.pvmanagement.monitoring.infra.PowerStationRepository;
+import com.pvmanagement.monitoring.infra.PowerflowHistoryRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+
+/**
+ * Raw history export for bulk consumers such as analytics jobs, in the protobuf format of
+ * {@code proto/powerflow_export.proto}. Snapshots go straight from a database cursor into the encoder, no row objects
+ * or JSON on the way, and the export holds one connection and a read-only transaction while it is written.
+ */
+@Service
+public class PowerflowExportService {
+
+    public static final String MEDIA_TYPE = "application/x-protobuf";
+
+    static final int FETCH_SIZE = 5000;
+    static final int CHUNK_SIZE = 4096;
+
+    private final PowerStationRepository powerStationRepository;
+    private final PowerflowHistoryRepository powerflowHistoryRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public PowerflowExportService(PowerStationRepository powerStationRepository,
+                                  PowerflowHistoryRepository powerflowHistoryRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.powerStationRepository = powerStationRepository;
+        this.powerflowHistoryRepository = powerflowHistoryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Resolves the station right away, the snapshots in {@code [from, to]} are only read when the export is written.
+     */
+    public HistoryExport exportHistory(Long powerStationId, HistoryRequestDto request) {
+        var station = powerStationRepository.findById(powerStationId)
+                .orElseThrow(() -> new IllegalArgumentException("Power station not found"));
+        return out -> {
+            var writer = new PowerflowChunkWriter(out, CHUNK_SIZE);
+            try {
+                transactionTemplate.executeWithoutResult(status -> powerflowHistoryRepository.scanRange(
+                        station.getId(), request.from(), request.to(), FETCH_SIZE, writer::write));
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            writer.finish();
+        };
+    }
+}
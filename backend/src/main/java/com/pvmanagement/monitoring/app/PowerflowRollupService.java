@@ -0,0 +1,108 @@
+package com.pvmanagement.monitoring.app;
+
+import com.pvmanagement.integration.cache.infra.IngestionStateRepository;
+import com.pvmanagement.monitoring.domain.RollupResolution;
+import com.pvmanagement.monitoring.infra.PowerflowRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Incrementally folds new powerflow snapshots into the 15-minute, hourly and daily rollup tables.
+ * <p>
+ * Progress is tracked as the highest folded {@code powerflow_id} in {@code ingestion_state}. Snapshots are only
+ * written by the single-threaded cache ingestion, so ids become visible in ascending order and the cursor never
+ * skips a row. Writers that break this order, like a parallel backfill, {@link #pause()} the rollups while they run.
+ */
+@Service
+@Profile("!collector")
+@ConditionalOnProperty(value = "app.rollup.enabled", havingValue = "true", matchIfMissing = true)
+public class PowerflowRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(PowerflowRollupService.class);
+
+    private final PowerflowRollupRepository powerflowRollupRepository;
+    private final IngestionStateRepository ingestionStateRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String cursorId;
+    private final int batchSize;
+    private int pauses;
+
+    public PowerflowRollupService(PowerflowRollupRepository powerflowRollupRepository,
+                                  IngestionStateRepository ingestionStateRepository,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${app.rollup.cursor-id:powerflow_rollup}") String cursorId,
+                                  @Value("${app.rollup.batch-size:50000}") int batchSize) {
+        this.powerflowRollupRepository = powerflowRollupRepository;
+        this.ingestionStateRepository = ingestionStateRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cursorId = cursorId;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.rollup.interval:PT5M}")
+    public synchronized void rollUp() {
+        if (pauses > 0) {
+            log.debug("Rollups are paused");
+            return;
+        }
+        int batches = 0;
+        while (Boolean.TRUE.equals(transactionTemplate.execute(status -> rollUpBatch()))) {
+            batches++;
+        }
+        if (batches > 0) {
+            log.debug("Folded {} batch(es) of powerflow snapshots into the rollups", batches);
+        }
+    }
+
+    /**
+     * Stops folding until every pause has been {@link #resume() resumed}. Waits for a run in progress, so no run
+     * overlaps with the caller's writes.
+     */
+    public synchronized void pause() {
+        pauses++;
+    }
+
+    public synchronized void resume() {
+        if (pauses == 0) {
+            throw new IllegalStateException("Rollups are not paused");
+        }
+        pauses--;
+    }
+
+    /**
+     * Recomputes the buckets of a station that overlap {@code [from, to]} from the snapshots folded so far, e.g.
+     * after snapshots were overwritten in place, which the id cursor does not pick up again. Snapshots past the
+     * cursor are left to the next {@link #rollUp()}, so none is counted twice.
+     */
+    public synchronized void recompute(Long powerStationId, OffsetDateTime from, OffsetDateTime to) {
+        transactionTemplate.executeWithoutResult(status -> {
+            long cursor = ingestionStateRepository.findLastId(cursorId).orElse(0L);
+            for (var resolution : RollupResolution.values()) {
+                powerflowRollupRepository.refold(resolution, powerStationId, from, to, cursor);
+            }
+        });
+    }
+
+    // rollups and cursor are committed together, so a failed batch is simply retried on the next run
+    private boolean rollUpBatch() {
+        long cursor = ingestionStateRepository.findLastId(cursorId).orElse(0L);
+        Long batchEnd = powerflowRollupRepository.findBatchEnd(cursor, batchSize);
+        if (batchEnd == null) {
+            return false;
+        }
+        for (var resolution : RollupResolution.values()) {
+            powerflowRollupRepository.fold(resolution, cursor, batchEnd);
+        }
+        ingestionStateRepository.upsertLastId(cursorId, batchEnd);
+        return true;
+    }
+}
@@ -0,0 +1,115 @@
+package com.pvmanagement.monitoring.app;
+
+import com.pvmanagement.monitoring.domain.SemSyncStatus;
+import com.pvmanagement.monitoring.infra.SemSyncStatusRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind recorder for station syncs.
+ * <p>
+ * Syncs are coalesced in memory per station and flushed periodically: one batched upsert of the latest status per
+ * station into {@code sem_sync_status} and one batched history row per station into {@code sem_sync_log}. A flush
+ * that fails keeps its syncs for the next one. History older than {@code compact-after} is thinned out to one row
+ * per station and day, and dropped entirely after {@code retention}.
+ */
+@Service
+@Profile("!collector")
+public class SemSyncLogRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(SemSyncLogRecorder.class);
+
+    private final SemSyncStatusRepository semSyncStatusRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration compactAfter;
+    private final Duration retention;
+    private final Map<Long, SemSyncStatus> pending = new ConcurrentHashMap<>();
+
+    public SemSyncLogRecorder(SemSyncStatusRepository semSyncStatusRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.sync-log.compact-after:P2D}") Duration compactAfter,
+                              @Value("${app.sync-log.retention:P30D}") Duration retention) {
+        if (compactAfter.compareTo(retention) > 0) {
+            throw new IllegalArgumentException("app.sync-log.compact-after must not exceed app.sync-log.retention");
+        }
+        this.semSyncStatusRepository = semSyncStatusRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.compactAfter = compactAfter;
+        this.retention = retention;
+    }
+
+    /**
+     * Records a sync of the given station. Inside a transaction the sync only counts once it commits.
+     */
+    public void record(Long powerStationId, String status, String message) {
+        var sync = SemSyncStatus.of(powerStationId, status, message, OffsetDateTime.now());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            enqueue(sync);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                enqueue(sync);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.sync-log.flush-interval:PT1M}")
+    @PreDestroy
+    public void flush() {
+        List<SemSyncStatus> batch = new ArrayList<>(pending.size());
+        for (var powerStationId : pending.keySet()) {
+            var status = pending.remove(powerStationId);
+            if (status != null) {
+                batch.add(status);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                semSyncStatusRepository.upsertLatest(batch);
+                semSyncStatusRepository.appendHistory(batch);
+            });
+        } catch (Exception ex) {
+            log.warn("Failed to flush sync status of {} station(s), retrying with the next flush: {}",
+                    batch.size(), ex.getMessage());
+            // syncs recorded meanwhile are the later ones
+            batch.forEach(failed -> pending.merge(failed.powerStationId(), failed,
+                    (recordedMeanwhile, ignored) -> failed.merge(recordedMeanwhile)));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.sync-log.retention-interval:PT6H}")
+    public void applyRetention() {
+        var now = Instant.now();
+        int deleted = semSyncStatusRepository.deleteHistoryBefore(now.minus(retention));
+        int compacted = semSyncStatusRepository.compactHistoryBefore(now.minus(compactAfter));
+        if (deleted + compacted > 0) {
+            log.debug("Removed {} expired and {} compacted sync log row(s)", deleted, compacted);
+        }
+    }
+
+    private void enqueue(SemSyncStatus sync) {
+        pending.merge(sync.powerStationId(), sync, SemSyncStatus::merge);
+    }
+}
@@ -0,0 +1,17 @@
+package com.pvmanagement.monitoring.domain;
+
+/**
+ * {@link DashboardSummaryDto} with the history in {@link ColumnarHistoryDto columnar} form.
+ */
+public record ColumnarDashboardSummaryDto(
+        PowerStationDto powerStation,
+        CurrentMeasurementsDto currentMeasurements,
+        ColumnarHistoryDto history
+) {
+
+    public static ColumnarDashboardSummaryDto of(DashboardSummaryDto summary) {
+        return new ColumnarDashboardSummaryDto(summary.powerStation(),
+                summary.currentMeasurements(),
+                ColumnarHistoryDto.of(summary.history()));
+    }
+}
@@ -0,0 +1,48 @@
+package com.pvmanagement.monitoring.domain;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * History as one array per field instead of one object per point, served for
+ * {@value #MEDIA_TYPE} (or {@code ?format=columnar}).
+ * <p>
+ * Point {@code i} was measured at {@code start + timestampDeltas[0] + ... + timestampDeltas[i]} epoch milliseconds,
+ * so {@code timestampDeltas[0]} is always 0. {@code start} is {@code null} for an empty history. Missing values are
+ * {@code null} entries.
+ */
+public record ColumnarHistoryDto(Long start,
+                                 long[] timestampDeltas,
+                                 BigDecimal[] pvW,
+                                 BigDecimal[] batteryW,
+                                 BigDecimal[] loadW,
+                                 BigDecimal[] gridW,
+                                 BigDecimal[] socPercent) {
+
+    public static final String MEDIA_TYPE = "application/vnd.pvmanagement.columnar+json";
+
+    public static ColumnarHistoryDto of(List<HistoryResponseDto> history) {
+        int size = history.size();
+        var timestampDeltas = new long[size];
+        var pvW = new BigDecimal[size];
+        var batteryW = new BigDecimal[size];
+        var loadW = new BigDecimal[size];
+        var gridW = new BigDecimal[size];
+        var socPercent = new BigDecimal[size];
+
+        Long start = size == 0 ? null : history.get(0).timestamp().toInstant().toEpochMilli();
+        long previous = start == null ? 0 : start;
+        for (int i = 0; i < size; i++) {
+            var point = history.get(i);
+            long timestamp = point.timestamp().toInstant().toEpochMilli();
+            timestampDeltas[i] = timestamp - previous;
+            previous = timestamp;
+            pvW[i] = point.pvW();
+            batteryW[i] = point.batteryW();
+            loadW[i] = point.loadW();
+            gridW[i] = point.gridW();
+            socPercent[i] = point.socPercent();
+        }
+        return new ColumnarHistoryDto(start, timestampDeltas, pvW, batteryW, loadW, gridW, socPercent);
+    }
+}
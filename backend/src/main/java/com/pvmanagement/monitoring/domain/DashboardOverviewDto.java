@@ -0,0 +1,11 @@
+package com.pvmanagement.monitoring.domain;
+
+/**
+ * Dashboard whose cost does not grow with the station's age: the current values and the most recent history window.
+ */
+public record DashboardOverviewDto(
+        PowerStationDto powerStation,
+        CurrentMeasurementsDto currentMeasurements,
+        HistoryWindowDto recentHistory
+) {
+}
@@ -0,0 +1,28 @@
+package com.pvmanagement.monitoring.domain;
+
+/**
+ * Powerflow metrics that are kept in the materialized diurnal profile, keyed by their snapshot column.
+ */
+public enum DiurnalMetric {
+    PV("pv_w"),
+    LOAD("load_w");
+
+    private final String column;
+
+    DiurnalMetric(String column) {
+        this.column = column;
+    }
+
+    public String column() {
+        return column;
+    }
+
+    public static DiurnalMetric ofColumn(String column) {
+        for (var metric : values()) {
+            if (metric.column.equals(column)) {
+                return metric;
+            }
+        }
+        throw new IllegalArgumentException("Unknown diurnal metric " + column);
+    }
+}
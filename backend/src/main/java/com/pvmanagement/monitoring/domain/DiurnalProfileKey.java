@@ -0,0 +1,18 @@
+package com.pvmanagement.monitoring.domain;
+
+import java.util.Comparator;
+
+/**
+ * Identifies one row of the materialized diurnal profile.
+ */
+public record DiurnalProfileKey(Long powerStationId,
+                                int slot,
+                                DiurnalMetric metric) {
+
+    /**
+     * Primary key order of the profile table, the order in which rows are locked.
+     */
+    public static final Comparator<DiurnalProfileKey> ORDER = Comparator.comparing(DiurnalProfileKey::powerStationId)
+                                                                        .thenComparingInt(DiurnalProfileKey::slot)
+                                                                        .thenComparing(key -> key.metric().column());
+}
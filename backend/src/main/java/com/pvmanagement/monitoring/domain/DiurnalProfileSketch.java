@@ -0,0 +1,10 @@
+package com.pvmanagement.monitoring.domain;
+
+/**
+ * Stored quantile sketch of one slot and metric, together with the number of samples the slot has seen.
+ * A sketch is complete when its own count matches {@code sampleCount}.
+ */
+public record DiurnalProfileSketch(int slot,
+                                   long sampleCount,
+                                   byte[] sketch) {
+}
@@ -0,0 +1,13 @@
+package com.pvmanagement.monitoring.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * Per-slot sums and non-null sample counts of PV production and load, aggregated over a station's full history.
+ */
+public record DiurnalSlotAggregate(int slot,
+                                  BigDecimal pvSum,
+                                  long pvCount,
+                                  BigDecimal loadSum,
+                                  long loadCount) {
+}
@@ -1,11 +1,21 @@
 package com.pvmanagement.monitoring.domain;
 
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 
 import java.time.OffsetDateTime;
 
+/**
+ * @param maxPoints optional upper bound for the number of returned points; the range is downsampled on the server
+ *                  when set, otherwise every snapshot is returned
+ */
 public record HistoryRequestDto(
         @NotNull(message = "from is required") OffsetDateTime from,
-        @NotNull(message = "to is required") OffsetDateTime to
+        @NotNull(message = "to is required") OffsetDateTime to,
+        @Positive(message = "maxPoints must be positive") Integer maxPoints
 ) {
+
+    public HistoryRequestDto(OffsetDateTime from, OffsetDateTime to) {
+        this(from, to, null);
+    }
 }
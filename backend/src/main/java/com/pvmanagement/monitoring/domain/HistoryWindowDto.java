@@ -0,0 +1,16 @@
+package com.pvmanagement.monitoring.domain;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * One window of pre-aggregated history covering {@code [from, to)}. {@code olderWindow} is the continuation token of
+ * the window right before this one, {@code null} when no older measurements exist.
+ */
+public record HistoryWindowDto(
+        OffsetDateTime from,
+        OffsetDateTime to,
+        List<HistoryResponseDto> history,
+        String olderWindow
+) {
+}
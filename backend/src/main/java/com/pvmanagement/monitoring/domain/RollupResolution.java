@@ -0,0 +1,48 @@
+package com.pvmanagement.monitoring.domain;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Bucket sizes of the powerflow rollup tables, finest first.
+ */
+public enum RollupResolution {
+    FIFTEEN_MINUTES("powerflow_rollup_15m", Duration.ofMinutes(15)),
+    HOUR("powerflow_rollup_1h", Duration.ofHours(1)),
+    DAY("powerflow_rollup_1d", Duration.ofDays(1));
+
+    private final String table;
+    private final Duration bucketLength;
+
+    RollupResolution(String table, Duration bucketLength) {
+        this.table = table;
+        this.bucketLength = bucketLength;
+    }
+
+    public String table() {
+        return table;
+    }
+
+    public Duration bucketLength() {
+        return bucketLength;
+    }
+
+    /**
+     * Number of buckets needed to cover {@code range}.
+     */
+    public long bucketsFor(Duration range) {
+        long seconds = bucketLength.toSeconds();
+        return (range.toSeconds() + seconds - 1) / seconds + 1;
+    }
+
+    /**
+     * Start of the bucket containing {@code timestamp}, in UTC.
+     */
+    public OffsetDateTime bucketStart(OffsetDateTime timestamp) {
+        long seconds = bucketLength.toSeconds();
+        long epochSecond = Math.floorDiv(timestamp.toEpochSecond(), seconds) * seconds;
+        return OffsetDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneOffset.UTC);
+    }
+}
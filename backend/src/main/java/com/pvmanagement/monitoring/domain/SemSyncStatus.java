@@ -0,0 +1,42 @@
+package com.pvmanagement.monitoring.domain;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Sync status of one station, coalesced over {@code attempts} recorded syncs: status and message are the ones of
+ * the latest sync, {@code lastSuccessAt} the time of the latest successful one.
+ */
+public record SemSyncStatus(Long powerStationId,
+                            String status,
+                            String message,
+                            OffsetDateTime lastAttemptAt,
+                            OffsetDateTime lastSuccessAt,
+                            long attempts) {
+
+    public static final String SUCCESS = "SUCCESS";
+
+    public static SemSyncStatus of(Long powerStationId, String status, String message, OffsetDateTime at) {
+        return new SemSyncStatus(powerStationId, status, message, at, SUCCESS.equals(status) ? at : null, 1);
+    }
+
+    /**
+     * Folds a later recorded sync of the same station into this one. On equal attempt times {@code other} wins, so a
+     * failure recorded in the same tick as an earlier success is not lost.
+     */
+    public SemSyncStatus merge(SemSyncStatus other) {
+        var latest = other.lastAttemptAt.isBefore(lastAttemptAt) ? this : other;
+        return new SemSyncStatus(powerStationId,
+                latest.status,
+                latest.message,
+                latest.lastAttemptAt,
+                later(lastSuccessAt, other.lastSuccessAt),
+                attempts + other.attempts);
+    }
+
+    private static OffsetDateTime later(OffsetDateTime a, OffsetDateTime b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,207 @@
+package com.pvmanagement.monitoring.infra;
+
+import com.pvmanagement.monitoring.domain.DiurnalMetric;
+import com.pvmanagement.monitoring.domain.DiurnalProfileKey;
+import com.pvmanagement.monitoring.domain.DiurnalProfileSketch;
+import com.pvmanagement.monitoring.domain.DiurnalSlotAggregate;
+import com.pvmanagement.timeSeriesStatistics.QuantileSketch;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Repository
+public class DiurnalProfileRepository {
+
+    private static final RowMapper<DiurnalSlotAggregate> ROW_MAPPER = (rs, rowNum) -> new DiurnalSlotAggregate(
+            rs.getInt("slot"),
+            rs.getBigDecimal("pv_sum"),
+            rs.getLong("pv_count"),
+            rs.getBigDecimal("load_sum"),
+            rs.getLong("load_count")
+    );
+
+    // three bind parameters per key, Postgres accepts at most 65535 per statement
+    private static final int MAX_KEYS_PER_STATEMENT = 65_535 / 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DiurnalProfileRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<DiurnalSlotAggregate> findByPowerStation(Long powerStationId) {
+        return jdbcTemplate.query(
+                """
+                SELECT slot,
+                       SUM(CASE WHEN metric = 'pv_w' THEN sample_sum END) AS pv_sum,
+                       COALESCE(SUM(CASE WHEN metric = 'pv_w' THEN sample_count END), 0) AS pv_count,
+                       SUM(CASE WHEN metric = 'load_w' THEN sample_sum END) AS load_sum,
+                       COALESCE(SUM(CASE WHEN metric = 'load_w' THEN sample_count END), 0) AS load_count
+                FROM diurnal_profile
+                WHERE powerstation_id = ?
+                GROUP BY slot
+                ORDER BY slot
+                """,
+                ROW_MAPPER,
+                powerStationId
+        );
+    }
+
+    public List<DiurnalProfileSketch> findSketches(Long powerStationId, DiurnalMetric metric) {
+        return jdbcTemplate.query(
+                "SELECT slot, sample_count, sketch FROM diurnal_profile WHERE powerstation_id = ? AND metric = ? ORDER BY slot",
+                (rs, rowNum) -> new DiurnalProfileSketch(rs.getInt("slot"), rs.getLong("sample_count"), rs.getBytes("sketch")),
+                powerStationId,
+                metric.column()
+        );
+    }
+
+    /**
+     * Folds the samples of several slots into their running sums, counts and quantile sketches with two statements
+     * in total: one creates missing rows and locks and reads all of them, one writes the merged rows back. Has to run
+     * inside a transaction. Rows are locked in primary key order, so concurrent calls do not deadlock.
+     */
+    public void accumulate(Map<DiurnalProfileKey, List<BigDecimal>> samples) {
+        Map<DiurnalProfileKey, List<BigDecimal>> sorted = new TreeMap<>(DiurnalProfileKey.ORDER);
+        samples.forEach((key, values) -> {
+            if (!values.isEmpty()) {
+                sorted.put(key, values);
+            }
+        });
+        var keys = new ArrayList<>(sorted.keySet());
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_STATEMENT) {
+            var batch = keys.subList(from, Math.min(from + MAX_KEYS_PER_STATEMENT, keys.size()));
+            write(merge(lockAndRead(batch), sorted));
+        }
+    }
+
+    // the no-op update locks existing rows like new ones, so every row of the batch is held until the commit
+    private Map<DiurnalProfileKey, DiurnalProfileSketch> lockAndRead(List<DiurnalProfileKey> keys) {
+        List<Object> args = new ArrayList<>(keys.size() * 3);
+        for (var key : keys) {
+            args.add(key.powerStationId());
+            args.add(key.slot());
+            args.add(key.metric().column());
+        }
+        Map<DiurnalProfileKey, DiurnalProfileSketch> rows = new HashMap<>();
+        jdbcTemplate.query(
+                """
+                INSERT INTO diurnal_profile (powerstation_id, slot, metric)
+                VALUES %s
+                ON CONFLICT (powerstation_id, slot, metric) DO UPDATE SET sample_count = diurnal_profile.sample_count
+                RETURNING powerstation_id, slot, metric, sample_count, sketch
+                """.formatted(String.join(", ", Collections.nCopies(keys.size(), "(?, ?, ?)"))),
+                (RowCallbackHandler) rs -> {
+                    var key = new DiurnalProfileKey(rs.getLong("powerstation_id"),
+                            rs.getInt("slot"),
+                            DiurnalMetric.ofColumn(rs.getString("metric")));
+                    rows.put(key, new DiurnalProfileSketch(key.slot(), rs.getLong("sample_count"), rs.getBytes("sketch")));
+                },
+                args.toArray()
+        );
+        return rows;
+    }
+
+    private static List<Object[]> merge(Map<DiurnalProfileKey, DiurnalProfileSketch> rows,
+            Map<DiurnalProfileKey, List<BigDecimal>> samples) {
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        rows.forEach((key, row) -> {
+            var values = samples.get(key);
+            var sum = values.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+            byte[] sketchBytes = null;
+            // a slot with samples from before the sketch existed is completed by a rebuild and keeps no sketch
+            if (row.sketch() != null || row.sampleCount() == 0) {
+                var sketch = row.sketch() == null ? new QuantileSketch() : QuantileSketch.fromBytes(row.sketch());
+                for (var value : values) {
+                    sketch.add(value.doubleValue());
+                }
+                sketchBytes = sketch.toBytes();
+            }
+            updates.add(new Object[]{sum, values.size(), sketchBytes, key.powerStationId(), key.slot(), key.metric().column()});
+        });
+        return updates;
+    }
+
+    private void write(List<Object[]> updates) {
+        jdbcTemplate.batchUpdate(
+                """
+                UPDATE diurnal_profile
+                SET sample_sum = sample_sum + ?, sample_count = sample_count + ?, sketch = ?
+                WHERE powerstation_id = ? AND slot = ? AND metric = ?
+                """,
+                updates
+        );
+    }
+
+    /**
+     * Stations with slots that have samples but no sketch, e.g. rows written before sketches existed.
+     */
+    public List<Long> findPowerStationsWithoutSketches() {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT powerstation_id FROM diurnal_profile WHERE sample_count > 0 AND sketch IS NULL",
+                Long.class
+        );
+    }
+
+    /**
+     * Sample count of every profile row of a station.
+     */
+    public Map<DiurnalProfileKey, Long> findSampleCounts(Long powerStationId) {
+        return querySampleCounts("SELECT slot, metric, sample_count FROM diurnal_profile WHERE powerstation_id = ?",
+                powerStationId);
+    }
+
+    /**
+     * Like {@link #findSampleCounts}, and locks the rows until the surrounding transaction ends.
+     */
+    public Map<DiurnalProfileKey, Long> lockSampleCounts(Long powerStationId) {
+        return querySampleCounts("""
+                SELECT slot, metric, sample_count FROM diurnal_profile
+                WHERE powerstation_id = ?
+                ORDER BY slot, metric
+                FOR UPDATE
+                """, powerStationId);
+    }
+
+    private Map<DiurnalProfileKey, Long> querySampleCounts(String sql, Long powerStationId) {
+        Map<DiurnalProfileKey, Long> counts = new HashMap<>();
+        jdbcTemplate.query(sql,
+                (RowCallbackHandler) rs -> counts.put(
+                        new DiurnalProfileKey(powerStationId, rs.getInt("slot"), DiurnalMetric.ofColumn(rs.getString("metric"))),
+                        rs.getLong("sample_count")),
+                powerStationId
+        );
+        return counts;
+    }
+
+    /**
+     * Overwrites the sum, count and sketch of one slot, e.g. after recomputing it from the raw history.
+     */
+    public void replace(Long powerStationId, int slot, DiurnalMetric metric, BigDecimal sum, QuantileSketch sketch) {
+        jdbcTemplate.update(
+                """
+                INSERT INTO diurnal_profile (powerstation_id, slot, metric, sample_sum, sample_count, sketch)
+                VALUES (?, ?, ?, ?, ?, ?)
+                ON CONFLICT (powerstation_id, slot, metric) DO UPDATE SET
+                    sample_sum = EXCLUDED.sample_sum,
+                    sample_count = EXCLUDED.sample_count,
+                    sketch = EXCLUDED.sketch
+                """,
+                powerStationId,
+                slot,
+                metric.column(),
+                sum,
+                sketch.count(),
+                sketch.toBytes()
+        );
+    }
+}
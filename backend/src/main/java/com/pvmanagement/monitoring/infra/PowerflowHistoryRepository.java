@@ -0,0 +1,126 @@
+package com.pvmanagement.monitoring.infra;
+
+import com.pvmanagement.monitoring.domain.HistoryResponseDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Keyset pagination over a station's snapshots. (powerstation_id, powerflow_timestamp) is unique, so the last
+ * timestamp of a page identifies exactly where the next page starts, and every page is a short index range scan no
+ * matter how deep into the history it is.
+ */
+@Repository
+public class PowerflowHistoryRepository {
+
+    private static final RowMapper<HistoryResponseDto> ROW_MAPPER = (rs, rowNum) -> new HistoryResponseDto(
+            rs.getObject("powerflow_timestamp", OffsetDateTime.class).withOffsetSameInstant(ZoneOffset.UTC),
+            rs.getBigDecimal("pv_w"),
+            rs.getBigDecimal("battery_w"),
+            rs.getBigDecimal("load_w"),
+            rs.getBigDecimal("grid_w"),
+            rs.getBigDecimal("soc_percent")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PowerflowHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * First page of the range {@code [from, to]}.
+     */
+    public List<HistoryResponseDto> findFirstPage(Long powerStationId,
+                                                  OffsetDateTime from,
+                                                  OffsetDateTime to,
+                                                  int limit) {
+        return findPage(">=", powerStationId, from, to, limit);
+    }
+
+    /**
+     * Page following the snapshot at {@code after}, up to and including {@code to}.
+     */
+    public List<HistoryResponseDto> findPageAfter(Long powerStationId,
+                                                  OffsetDateTime after,
+                                                  OffsetDateTime to,
+                                                  int limit) {
+        return findPage(">", powerStationId, after, to, limit);
+    }
+
+    /**
+     * Hands every snapshot of the range {@code [from, to]} to {@code handler} in timestamp order while reading them
+     * through a cursor of {@code fetchSize} rows, so the range is never held in memory. Must run inside a
+     * transaction, the PostgreSQL driver only fetches in batches when autocommit is off. Missing values are
+     * {@link Double#NaN}.
+     */
+    public void scanRange(Long powerStationId,
+                          OffsetDateTime from,
+                          OffsetDateTime to,
+                          int fetchSize,
+                          PointHandler handler) {
+        jdbcTemplate.query(
+                connection -> {
+                    var statement = connection.prepareStatement(
+                            """
+                            SELECT powerflow_timestamp, pv_w, battery_w, load_w, grid_w, soc_percent
+                            FROM powerflow_snapshot
+                            WHERE powerstation_id = ?
+                              AND powerflow_timestamp BETWEEN ? AND ?
+                            ORDER BY powerflow_timestamp
+                            """);
+                    statement.setFetchSize(fetchSize);
+                    statement.setLong(1, powerStationId);
+                    statement.setObject(2, from);
+                    statement.setObject(3, to);
+                    return statement;
+                },
+                (ResultSet rs) -> handler.accept(
+                        rs.getObject("powerflow_timestamp", OffsetDateTime.class).toInstant().toEpochMilli(),
+                        doubleOrNaN(rs, "pv_w"),
+                        doubleOrNaN(rs, "battery_w"),
+                        doubleOrNaN(rs, "load_w"),
+                        doubleOrNaN(rs, "grid_w"),
+                        doubleOrNaN(rs, "soc_percent"))
+        );
+    }
+
+    private static double doubleOrNaN(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+
+    private List<HistoryResponseDto> findPage(String lowerBound,
+                                              Long powerStationId,
+                                              OffsetDateTime from,
+                                              OffsetDateTime to,
+                                              int limit) {
+        return jdbcTemplate.query(
+                """
+                SELECT powerflow_timestamp, pv_w, battery_w, load_w, grid_w, soc_percent
+                FROM powerflow_snapshot
+                WHERE powerstation_id = ?
+                  AND powerflow_timestamp %s ?
+                  AND powerflow_timestamp <= ?
+                ORDER BY powerflow_timestamp
+                LIMIT ?
+                """.formatted(lowerBound),
+                ROW_MAPPER,
+                powerStationId,
+                from,
+                to,
+                limit
+        );
+    }
+
+    @FunctionalInterface
+    public interface PointHandler {
+        void accept(long epochMillis, double pvW, double batteryW, double loadW, double gridW, double socPercent);
+    }
+}
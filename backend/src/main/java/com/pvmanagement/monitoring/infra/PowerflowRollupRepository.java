@@ -0,0 +1,224 @@
+package com.pvmanagement.monitoring.infra;
+
+import com.pvmanagement.monitoring.domain.HistoryResponseDto;
+import com.pvmanagement.monitoring.domain.RollupResolution;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Objects;
+
+@Repository
+public class PowerflowRollupRepository {
+
+    private static final RowMapper<HistoryResponseDto> HISTORY_ROW_MAPPER = (rs, rowNum) -> new HistoryResponseDto(
+            rs.getObject("bucket_start", OffsetDateTime.class).withOffsetSameInstant(ZoneOffset.UTC),
+            scaled(rs.getBigDecimal("pv_w")),
+            scaled(rs.getBigDecimal("battery_w")),
+            scaled(rs.getBigDecimal("load_w")),
+            scaled(rs.getBigDecimal("grid_w")),
+            scaled(rs.getBigDecimal("soc_percent"))
+    );
+
+    // %1$s rollup table, %2$d bucket length in seconds, %3$s condition on powerflow_snapshot
+    private static final String FOLD = """
+            INSERT INTO %1$s AS r (powerstation_id, bucket_start, sample_count,
+                                    pv_w_sum, pv_w_count, pv_w_min, pv_w_max,
+                                    battery_w_sum, battery_w_count, battery_w_min, battery_w_max,
+                                    load_w_sum, load_w_count, load_w_min, load_w_max,
+                                    grid_w_sum, grid_w_count, grid_w_min, grid_w_max,
+                                    soc_percent_sum, soc_percent_count, soc_percent_min, soc_percent_max)
+            SELECT powerstation_id,
+                   to_timestamp(floor(EXTRACT(EPOCH FROM powerflow_timestamp) / %2$d) * %2$d) AS bucket_start,
+                   COUNT(*) AS sample_count,
+                   SUM(pv_w) AS pv_w_sum,
+                   COUNT(pv_w) AS pv_w_count,
+                   MIN(pv_w) AS pv_w_min,
+                   MAX(pv_w) AS pv_w_max,
+                   SUM(battery_w) AS battery_w_sum,
+                   COUNT(battery_w) AS battery_w_count,
+                   MIN(battery_w) AS battery_w_min,
+                   MAX(battery_w) AS battery_w_max,
+                   SUM(load_w) AS load_w_sum,
+                   COUNT(load_w) AS load_w_count,
+                   MIN(load_w) AS load_w_min,
+                   MAX(load_w) AS load_w_max,
+                   SUM(grid_w) AS grid_w_sum,
+                   COUNT(grid_w) AS grid_w_count,
+                   MIN(grid_w) AS grid_w_min,
+                   MAX(grid_w) AS grid_w_max,
+                   SUM(soc_percent) AS soc_percent_sum,
+                   COUNT(soc_percent) AS soc_percent_count,
+                   MIN(soc_percent) AS soc_percent_min,
+                   MAX(soc_percent) AS soc_percent_max
+            FROM powerflow_snapshot
+            WHERE %3$s
+            GROUP BY 1, 2
+            ON CONFLICT (powerstation_id, bucket_start) DO UPDATE SET
+                sample_count = r.sample_count + EXCLUDED.sample_count,
+                pv_w_sum = COALESCE(r.pv_w_sum + EXCLUDED.pv_w_sum, r.pv_w_sum, EXCLUDED.pv_w_sum),
+                pv_w_count = r.pv_w_count + EXCLUDED.pv_w_count,
+                pv_w_min = LEAST(r.pv_w_min, EXCLUDED.pv_w_min),
+                pv_w_max = GREATEST(r.pv_w_max, EXCLUDED.pv_w_max),
+                battery_w_sum = COALESCE(r.battery_w_sum + EXCLUDED.battery_w_sum, r.battery_w_sum, EXCLUDED.battery_w_sum),
+                battery_w_count = r.battery_w_count + EXCLUDED.battery_w_count,
+                battery_w_min = LEAST(r.battery_w_min, EXCLUDED.battery_w_min),
+                battery_w_max = GREATEST(r.battery_w_max, EXCLUDED.battery_w_max),
+                load_w_sum = COALESCE(r.load_w_sum + EXCLUDED.load_w_sum, r.load_w_sum, EXCLUDED.load_w_sum),
+                load_w_count = r.load_w_count + EXCLUDED.load_w_count,
+                load_w_min = LEAST(r.load_w_min, EXCLUDED.load_w_min),
+                load_w_max = GREATEST(r.load_w_max, EXCLUDED.load_w_max),
+                grid_w_sum = COALESCE(r.grid_w_sum + EXCLUDED.grid_w_sum, r.grid_w_sum, EXCLUDED.grid_w_sum),
+                grid_w_count = r.grid_w_count + EXCLUDED.grid_w_count,
+                grid_w_min = LEAST(r.grid_w_min, EXCLUDED.grid_w_min),
+                grid_w_max = GREATEST(r.grid_w_max, EXCLUDED.grid_w_max),
+                soc_percent_sum = COALESCE(r.soc_percent_sum + EXCLUDED.soc_percent_sum, r.soc_percent_sum, EXCLUDED.soc_percent_sum),
+                soc_percent_count = r.soc_percent_count + EXCLUDED.soc_percent_count,
+                soc_percent_min = LEAST(r.soc_percent_min, EXCLUDED.soc_percent_min),
+                soc_percent_max = GREATEST(r.soc_percent_max, EXCLUDED.soc_percent_max)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String cursorId;
+
+    public PowerflowRollupRepository(JdbcTemplate jdbcTemplate,
+                                     @Value("${app.rollup.cursor-id:powerflow_rollup}") String cursorId) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cursorId = cursorId;
+    }
+
+    /**
+     * Upper bound of the next batch of at most {@code limit} snapshots after {@code afterId}, or {@code null} when
+     * there are no newer snapshots.
+     */
+    public Long findBatchEnd(long afterId, int limit) {
+        return jdbcTemplate.queryForObject(
+                """
+                SELECT MAX(powerflow_id)
+                FROM (SELECT powerflow_id
+                      FROM powerflow_snapshot
+                      WHERE powerflow_id > ?
+                      ORDER BY powerflow_id
+                      LIMIT ?) batch
+                """,
+                Long.class,
+                afterId,
+                limit
+        );
+    }
+
+    /**
+     * Folds the snapshots with {@code afterId < powerflow_id <= upToId} into the buckets of one resolution.
+     */
+    public void fold(RollupResolution resolution, long afterId, long upToId) {
+        jdbcTemplate.update(foldSql(resolution, "powerflow_id > ? AND powerflow_id <= ?"), afterId, upToId);
+    }
+
+    /**
+     * Replaces the buckets of a station that overlap {@code [from, to]} with a fold of its snapshots with
+     * {@code powerflow_id <= upToId}, for snapshots that were changed in place after they had been folded. Newer
+     * snapshots are left to {@link #fold}.
+     */
+    public void refold(RollupResolution resolution,
+                       Long powerStationId,
+                       OffsetDateTime from,
+                       OffsetDateTime to,
+                       long upToId) {
+        var bucketsFrom = resolution.bucketStart(from);
+        var bucketsTo = resolution.bucketStart(to).plus(resolution.bucketLength());
+        jdbcTemplate.update(
+                "DELETE FROM %s WHERE powerstation_id = ? AND bucket_start >= ? AND bucket_start < ?"
+                        .formatted(resolution.table()),
+                powerStationId,
+                bucketsFrom,
+                bucketsTo
+        );
+        jdbcTemplate.update(
+                foldSql(resolution, """
+                        powerstation_id = ? AND powerflow_id <= ?
+                          AND powerflow_timestamp >= ? AND powerflow_timestamp < ?"""),
+                powerStationId,
+                upToId,
+                bucketsFrom,
+                bucketsTo
+        );
+    }
+
+    /**
+     * Bucket averages of a station, one point per bucket that starts within {@code [from, to]}. Snapshots the rollup
+     * job has not folded yet, i.e. those past its {@code powerflow_id} cursor, are aggregated on the fly and merged
+     * into their buckets, so the newest buckets do not lag behind by up to {@code app.rollup.interval}.
+     */
+    public List<HistoryResponseDto> findHistory(Long powerStationId,
+                                                RollupResolution resolution,
+                                                OffsetDateTime from,
+                                                OffsetDateTime to) {
+        long bucketSeconds = resolution.bucketLength().toSeconds();
+        long foldedUpToId = findFoldedUpToId();
+        return jdbcTemplate.query(
+                """
+                SELECT bucket_start,
+                       SUM(pv_w_sum) / NULLIF(SUM(pv_w_count), 0) AS pv_w,
+                       SUM(battery_w_sum) / NULLIF(SUM(battery_w_count), 0) AS battery_w,
+                       SUM(load_w_sum) / NULLIF(SUM(load_w_count), 0) AS load_w,
+                       SUM(grid_w_sum) / NULLIF(SUM(grid_w_count), 0) AS grid_w,
+                       SUM(soc_percent_sum) / NULLIF(SUM(soc_percent_count), 0) AS soc_percent
+                FROM (SELECT bucket_start,
+                             pv_w_sum, pv_w_count,
+                             battery_w_sum, battery_w_count,
+                             load_w_sum, load_w_count,
+                             grid_w_sum, grid_w_count,
+                             soc_percent_sum, soc_percent_count
+                      FROM %s
+                      WHERE powerstation_id = ? AND bucket_start BETWEEN ? AND ?
+                      UNION ALL
+                      SELECT to_timestamp(floor(EXTRACT(EPOCH FROM powerflow_timestamp) / %d) * %d) AS bucket_start,
+                             SUM(pv_w), COUNT(pv_w),
+                             SUM(battery_w), COUNT(battery_w),
+                             SUM(load_w), COUNT(load_w),
+                             SUM(grid_w), COUNT(grid_w),
+                             SUM(soc_percent), COUNT(soc_percent)
+                      FROM powerflow_snapshot
+                      WHERE powerflow_id > ? AND powerstation_id = ?
+                        AND powerflow_timestamp >= ? AND powerflow_timestamp < ?
+                      GROUP BY 1) buckets
+                WHERE bucket_start BETWEEN ? AND ?
+                GROUP BY bucket_start
+                ORDER BY bucket_start
+                """.formatted(resolution.table(), bucketSeconds, bucketSeconds),
+                HISTORY_ROW_MAPPER,
+                powerStationId,
+                from,
+                to,
+                foldedUpToId,
+                powerStationId,
+                resolution.bucketStart(from),
+                resolution.bucketStart(to).plus(resolution.bucketLength()),
+                from,
+                to
+        );
+    }
+
+    private static String foldSql(RollupResolution resolution, String condition) {
+        return FOLD.formatted(resolution.table(), resolution.bucketLength().toSeconds(), condition);
+    }
+
+    private long findFoldedUpToId() {
+        List<Long> rows = jdbcTemplate.query(
+                "SELECT last_id FROM ingestion_state WHERE id = ?",
+                (rs, rowNum) -> rs.getObject("last_id", Long.class),
+                cursorId
+        );
+        return rows.stream().filter(Objects::nonNull).findFirst().orElse(0L);
+    }
+
+    private static BigDecimal scaled(BigDecimal value) {
+        return value == null ? null : value.setScale(3, RoundingMode.HALF_UP);
+    }
+}
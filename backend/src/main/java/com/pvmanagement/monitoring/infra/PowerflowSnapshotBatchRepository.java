@@ -0,0 +1,132 @@
+package com.pvmanagement.monitoring.infra;
+
+import com.pvmanagement.monitoring.domain.PowerflowSnapshot;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set-based snapshot writes for ingestion. Snapshots use IDENTITY ids, which keeps Hibernate from batching inserts,
+ * so a whole chunk is written with one multi-row INSERT instead.
+ */
+@Repository
+public class PowerflowSnapshotBatchRepository {
+
+    private static final String COLUMNS = """
+            powerstation_id, powerflow_timestamp, pv_w, pv_status, battery_w, battery_status, load_w, load_status,
+            grid_w, grid_status, genset_w, microgrid_w, soc_percent""";
+    private static final int COLUMN_COUNT = 13;
+    private static final String ON_CONFLICT_SKIP = "DO NOTHING";
+    private static final String ON_CONFLICT_OVERWRITE = """
+            DO UPDATE SET pv_w = EXCLUDED.pv_w, pv_status = EXCLUDED.pv_status,
+                          battery_w = EXCLUDED.battery_w, battery_status = EXCLUDED.battery_status,
+                          load_w = EXCLUDED.load_w, load_status = EXCLUDED.load_status,
+                          grid_w = EXCLUDED.grid_w, grid_status = EXCLUDED.grid_status,
+                          genset_w = EXCLUDED.genset_w, microgrid_w = EXCLUDED.microgrid_w,
+                          soc_percent = EXCLUDED.soc_percent""";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    // Postgres accepts at most 65535 bind parameters per statement
+    private static final int MAX_ROWS_PER_STATEMENT = 65_535 / COLUMN_COUNT;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PowerflowSnapshotBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Inserts all snapshots with one multi-row statement per {@value #MAX_ROWS_PER_STATEMENT} rows, skipping the ones whose station and timestamp are already stored.
+     *
+     * @param snapshots snapshots with their power station set
+     * @return the snapshots that were actually inserted
+     */
+    public List<PowerflowSnapshot> insertIgnoringDuplicates(List<PowerflowSnapshot> snapshots) {
+        return write(snapshots, false);
+    }
+
+    /**
+     * Like {@link #insertIgnoringDuplicates}, but a snapshot whose station and timestamp are already stored replaces
+     * the stored values; of several snapshots with the same key the last one wins. Replaced rows keep their
+     * {@code powerflow_id}, so rollups and profiles that already counted them have to be recomputed by the caller.
+     *
+     * @param snapshots snapshots with their power station set
+     * @return the snapshots that were inserted or replaced
+     */
+    public List<PowerflowSnapshot> upsert(List<PowerflowSnapshot> snapshots) {
+        return write(snapshots, true);
+    }
+
+    private List<PowerflowSnapshot> write(List<PowerflowSnapshot> snapshots, boolean overwrite) {
+        Map<SnapshotKey, PowerflowSnapshot> byKey = new LinkedHashMap<>();
+        for (var snapshot : snapshots) {
+            if (overwrite) {
+                byKey.put(SnapshotKey.of(snapshot), snapshot);
+            }
+            else {
+                byKey.putIfAbsent(SnapshotKey.of(snapshot), snapshot);
+            }
+        }
+        if (byKey.isEmpty()) {
+            return List.of();
+        }
+
+        var pending = new ArrayList<>(byKey.values());
+        Set<SnapshotKey> written = new HashSet<>();
+        for (int from = 0; from < pending.size(); from += MAX_ROWS_PER_STATEMENT) {
+            written.addAll(insert(pending.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, pending.size())),
+                    overwrite ? ON_CONFLICT_OVERWRITE : ON_CONFLICT_SKIP));
+        }
+
+        return byKey.entrySet().stream()
+                .filter(it -> written.contains(it.getKey()))
+                .map(Map.Entry::getValue)
+                .toList();
+    }
+
+    private List<SnapshotKey> insert(List<PowerflowSnapshot> snapshots, String onConflict) {
+        List<Object> args = new ArrayList<>(snapshots.size() * COLUMN_COUNT);
+        for (var snapshot : snapshots) {
+            args.add(snapshot.getPowerStation().getId());
+            args.add(Timestamp.from(snapshot.getPowerflowTimestamp().toInstant()));
+            args.add(snapshot.getPvW());
+            args.add(snapshot.getPvStatus());
+            args.add(snapshot.getBatteryW());
+            args.add(snapshot.getBatteryStatus());
+            args.add(snapshot.getLoadW());
+            args.add(snapshot.getLoadStatus());
+            args.add(snapshot.getGridW());
+            args.add(snapshot.getGridStatus());
+            args.add(snapshot.getGensetW());
+            args.add(snapshot.getMicrogridW());
+            args.add(snapshot.getSocPercent());
+        }
+
+        return jdbcTemplate.query(
+                """
+                INSERT INTO powerflow_snapshot (%s)
+                VALUES %s
+                ON CONFLICT (powerstation_id, powerflow_timestamp) %s
+                RETURNING powerstation_id, powerflow_timestamp
+                """.formatted(COLUMNS, String.join(", ", Collections.nCopies(snapshots.size(), ROW_PLACEHOLDER)),
+                        onConflict),
+                (rs, rowNum) -> new SnapshotKey(rs.getLong("powerstation_id"),
+                        rs.getTimestamp("powerflow_timestamp").toInstant()),
+                args.toArray()
+        );
+    }
+
+    private record SnapshotKey(Long powerStationId, Instant timestamp) {
+        static SnapshotKey of(PowerflowSnapshot snapshot) {
+            return new SnapshotKey(snapshot.getPowerStation().getId(), snapshot.getPowerflowTimestamp().toInstant());
+        }
+    }
+}
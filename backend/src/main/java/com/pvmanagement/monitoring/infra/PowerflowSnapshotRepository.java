@@ -1,17 +1,48 @@
 package com.pvmanagement.monitoring.infra;
 
+import com.pvmanagement.monitoring.domain.HistoryResponseDto;
 import com.pvmanagement.monitoring.domain.PowerStation;
 import com.pvmanagement.monitoring.domain.PowerflowSnapshot;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface PowerflowSnapshotRepository extends JpaRepository<PowerflowSnapshot, Long> {
     Optional<PowerflowSnapshot> findFirstByPowerStationOrderByPowerflowTimestampDesc(PowerStation powerStation);
+    Optional<PowerflowSnapshot> findFirstByPowerStationOrderByPowerflowTimestampAsc(PowerStation powerStation);
     List<PowerflowSnapshot> findByPowerStationAndPowerflowTimestampBetweenOrderByPowerflowTimestampAsc(PowerStation powerStation,
                                                                                    OffsetDateTime from,
                                                                                    OffsetDateTime to);
+
+    /**
+     * Same range as {@link #findByPowerStationAndPowerflowTimestampBetweenOrderByPowerflowTimestampAsc} but projected
+     * straight into DTOs and fetched in chunks. Has to be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT new com.pvmanagement.monitoring.domain.HistoryResponseDto(
+                s.powerflowTimestamp, s.pvW, s.batteryW, s.loadW, s.gridW, s.socPercent)
+            FROM PowerflowSnapshot s
+            WHERE s.powerStation = :powerStation
+              AND s.powerflowTimestamp BETWEEN :from AND :to
+            ORDER BY s.powerflowTimestamp ASC
+            """)
+    Stream<HistoryResponseDto> streamHistory(@Param("powerStation") PowerStation powerStation,
+                                             @Param("from") OffsetDateTime from,
+                                             @Param("to") OffsetDateTime to);
+
     boolean existsByPowerStationAndPowerflowTimestamp(PowerStation powerStation, OffsetDateTime powerflowTimestamp);
 }
@@ -0,0 +1,80 @@
+package com.pvmanagement.monitoring.infra;
+
+import com.pvmanagement.monitoring.domain.DiurnalSlotAggregate;
+import com.pvmanagement.timeSeriesStatistics.DiurnalSlots;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Repository
+public class PowerflowStatisticsRepository {
+
+    private static final RowMapper<DiurnalSlotAggregate> DIURNAL_ROW_MAPPER = (rs, rowNum) -> new DiurnalSlotAggregate(
+            rs.getInt("slot"),
+            rs.getBigDecimal("pv_sum"),
+            rs.getLong("pv_count"),
+            rs.getBigDecimal("load_sum"),
+            rs.getLong("load_count")
+    );
+
+    private static final int SAMPLE_FETCH_SIZE = 5_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PowerflowStatisticsRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Aggregates a station's whole powerflow history into at most 96 rows, one per {@link DiurnalSlots} slot.
+     */
+    public List<DiurnalSlotAggregate> findDiurnalSlotAggregates(Long powerStationId) {
+        return jdbcTemplate.query(
+                """
+                SELECT %s AS slot,
+                       SUM(pv_w) AS pv_sum,
+                       COUNT(pv_w) AS pv_count,
+                       SUM(load_w) AS load_sum,
+                       COUNT(load_w) AS load_count
+                FROM powerflow_snapshot
+                WHERE powerstation_id = ?
+                GROUP BY 1
+                ORDER BY 1
+                """.formatted(DiurnalSlots.SQL_SLOT_EXPRESSION),
+                DIURNAL_ROW_MAPPER,
+                powerStationId
+        );
+    }
+
+    /**
+     * Streams every sample of a station with its {@link DiurnalSlots} slot, without materializing the history.
+     * Run inside a transaction so the driver can use a cursor.
+     */
+    public void forEachSlotSample(Long powerStationId, SlotSampleHandler handler) {
+        jdbcTemplate.query(
+                con -> {
+                    var statement = con.prepareStatement("""
+                            SELECT %s AS slot, pv_w, load_w
+                            FROM powerflow_snapshot
+                            WHERE powerstation_id = ?
+                            """.formatted(DiurnalSlots.SQL_SLOT_EXPRESSION));
+                    statement.setFetchSize(SAMPLE_FETCH_SIZE);
+                    statement.setLong(1, powerStationId);
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> handler.accept(
+                        rs.getInt("slot"),
+                        rs.getBigDecimal("pv_w"),
+                        rs.getBigDecimal("load_w"))
+        );
+    }
+
+    @FunctionalInterface
+    public interface SlotSampleHandler {
+        void accept(int slot, BigDecimal pvW, BigDecimal loadW);
+    }
+}
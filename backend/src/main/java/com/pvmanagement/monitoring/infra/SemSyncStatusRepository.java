@@ -0,0 +1,131 @@
+package com.pvmanagement.monitoring.infra;
+
+import com.pvmanagement.monitoring.domain.SemSyncStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Set-based writes of the sync bookkeeping: the latest status per station in {@code sem_sync_status} and the
+ * history in {@code sem_sync_log}, and lookups of the latest status.
+ */
+@Repository
+public class SemSyncStatusRepository {
+
+    private static final RowMapper<SemSyncStatus> ROW_MAPPER = (rs, rowNum) -> new SemSyncStatus(
+            rs.getLong("powerstation_id"),
+            rs.getString("status"),
+            rs.getString("message"),
+            rs.getObject("last_attempt_at", OffsetDateTime.class),
+            rs.getObject("last_success_at", OffsetDateTime.class),
+            rs.getLong("sync_count"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SemSyncStatusRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<SemSyncStatus> findByPowerStation(Long powerStationId) {
+        return jdbcTemplate.query(
+                        """
+                        SELECT powerstation_id, status, message, last_attempt_at, last_success_at, sync_count
+                        FROM sem_sync_status
+                        WHERE powerstation_id = ?
+                        """,
+                        ROW_MAPPER,
+                        powerStationId)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Upserts the latest status of every station in one batch. A status older than the stored one does not
+     * overwrite it, but its attempts are still counted.
+     */
+    public void upsertLatest(List<SemSyncStatus> statuses) {
+        jdbcTemplate.batchUpdate(
+                """
+                INSERT INTO sem_sync_status (powerstation_id, status, message, last_attempt_at, last_success_at, sync_count)
+                VALUES (?, ?, ?, ?, ?, ?)
+                ON CONFLICT (powerstation_id) DO UPDATE SET
+                    status = CASE WHEN EXCLUDED.last_attempt_at >= sem_sync_status.last_attempt_at
+                                  THEN EXCLUDED.status ELSE sem_sync_status.status END,
+                    message = CASE WHEN EXCLUDED.last_attempt_at >= sem_sync_status.last_attempt_at
+                                   THEN EXCLUDED.message ELSE sem_sync_status.message END,
+                    last_attempt_at = GREATEST(sem_sync_status.last_attempt_at, EXCLUDED.last_attempt_at),
+                    last_success_at = GREATEST(sem_sync_status.last_success_at, EXCLUDED.last_success_at),
+                    sync_count = sem_sync_status.sync_count + EXCLUDED.sync_count
+                """,
+                statuses,
+                statuses.size(),
+                (ps, status) -> {
+                    ps.setLong(1, status.powerStationId());
+                    ps.setString(2, status.status());
+                    ps.setString(3, status.message());
+                    ps.setTimestamp(4, timestamp(status.lastAttemptAt()));
+                    ps.setTimestamp(5, timestamp(status.lastSuccessAt()));
+                    ps.setLong(6, status.attempts());
+                }
+        );
+    }
+
+    /**
+     * Appends one history row per status in one batch.
+     */
+    public void appendHistory(List<SemSyncStatus> statuses) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO sem_sync_log (powerstation_id, last_success_at, status, message) VALUES (?, ?, ?, ?)",
+                statuses,
+                statuses.size(),
+                (ps, status) -> {
+                    ps.setLong(1, status.powerStationId());
+                    ps.setTimestamp(2, timestamp(status.lastAttemptAt()));
+                    ps.setString(3, status.status());
+                    ps.setString(4, status.message());
+                }
+        );
+    }
+
+    /**
+     * Deletes history rows older than {@code before}.
+     *
+     * @return number of deleted rows
+     */
+    public int deleteHistoryBefore(Instant before) {
+        return jdbcTemplate.update("DELETE FROM sem_sync_log WHERE last_success_at < ?", Timestamp.from(before));
+    }
+
+    /**
+     * Thins history rows older than {@code before} out to the latest row per station and UTC day.
+     *
+     * @return number of deleted rows
+     */
+    public int compactHistoryBefore(Instant before) {
+        return jdbcTemplate.update(
+                """
+                DELETE FROM sem_sync_log
+                WHERE id IN (SELECT id
+                             FROM (SELECT id,
+                                          ROW_NUMBER() OVER (
+                                              PARTITION BY powerstation_id,
+                                                           date_trunc('day', last_success_at AT TIME ZONE 'UTC')
+                                              ORDER BY last_success_at DESC, id DESC) AS rn
+                                   FROM sem_sync_log
+                                   WHERE last_success_at < ?) ranked
+                             WHERE rn > 1)
+                """,
+                Timestamp.from(before)
+        );
+    }
+
+    private static Timestamp timestamp(OffsetDateTime value) {
+        return value == null ? null : Timestamp.from(value.toInstant());
+    }
+}
@@ -0,0 +1,53 @@
+package com.pvmanagement.monitoring.web;
+
+import com.pvmanagement.integration.cache.app.CacheBackfillService;
+import com.pvmanagement.integration.cache.domain.CacheBackfillProgress;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+
+@RestController
+@Profile("!collector")
+@ConditionalOnProperty(value = "app.ingestion.enabled", havingValue = "true", matchIfMissing = true)
+@RequestMapping("/api/ingestion/backfill")
+public class CacheBackfillController {
+
+    private final CacheBackfillService cacheBackfillService;
+
+    public CacheBackfillController(CacheBackfillService cacheBackfillService) {
+        this.cacheBackfillService = cacheBackfillService;
+    }
+
+    /**
+     * Re-ingests the cache entries fetched in {@code [from, to)}; progress is reported by {@link #progress()} and the
+     * {@code backfill} actuator endpoint. With {@code overwrite}, stored snapshots are replaced by the re-parsed
+     * values and the affected rollups and diurnal profiles are recomputed; otherwise only missing snapshots are added.
+     */
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CacheBackfillProgress> start(@RequestParam Instant from,
+                                                       @RequestParam Instant to,
+                                                       @RequestParam(defaultValue = "false") boolean overwrite) {
+        try {
+            cacheBackfillService.start(from, to, overwrite);
+        } catch (IllegalStateException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(cacheBackfillService.progress().orElse(null));
+        }
+        return ResponseEntity.accepted().body(cacheBackfillService.progress().orElse(null));
+    }
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CacheBackfillProgress> progress() {
+        return ResponseEntity.of(cacheBackfillService.progress());
+    }
+}
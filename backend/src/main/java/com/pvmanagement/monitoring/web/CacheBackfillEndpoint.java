@@ -0,0 +1,31 @@
+package com.pvmanagement.monitoring.web;
+
+import com.pvmanagement.integration.cache.app.CacheBackfillService;
+import com.pvmanagement.integration.cache.domain.CacheBackfillProgress;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Read-only progress of the current or last cache backfill at {@code /actuator/backfill}; backfills are started
+ * through {@link CacheBackfillController}.
+ */
+@Component
+@Profile("!collector")
+@ConditionalOnProperty(value = "app.ingestion.enabled", havingValue = "true", matchIfMissing = true)
+@Endpoint(id = "backfill")
+public class CacheBackfillEndpoint {
+
+    private final CacheBackfillService cacheBackfillService;
+
+    public CacheBackfillEndpoint(CacheBackfillService cacheBackfillService) {
+        this.cacheBackfillService = cacheBackfillService;
+    }
+
+    @ReadOperation
+    public CacheBackfillProgress progress() {
+        return cacheBackfillService.progress().orElse(null);
+    }
+}
@@ -1,32 +1,106 @@
 package com.pvmanagement.monitoring.web;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pvmanagement.monitoring.domain.ColumnarHistoryDto;
 import com.pvmanagement.monitoring.domain.CurrentMeasurementsDto;
 import com.pvmanagement.monitoring.domain.HistoryRequestDto;
 import com.pvmanagement.monitoring.domain.HistoryResponseDto;
+import com.pvmanagement.monitoring.app.LiveMeasurementStream;
 import com.pvmanagement.monitoring.app.MeasurementService;
+import com.pvmanagement.monitoring.app.PowerflowExportService;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RestController
 @RequestMapping("/api/measurements")
 public class MeasurementController {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private final MeasurementService measurementService;
+    private final ObjectMapper objectMapper;
+    private final LiveMeasurementStream liveMeasurementStream;
+    private final PowerflowExportService powerflowExportService;
+    private final Duration heartbeat;
 
-    public MeasurementController(MeasurementService measurementService) {
+    public MeasurementController(MeasurementService measurementService,
+                                 ObjectMapper objectMapper,
+                                 LiveMeasurementStream liveMeasurementStream,
+                                 PowerflowExportService powerflowExportService,
+                                 @Value("${app.measurements.stream.heartbeat:PT30S}") Duration heartbeat) {
         this.measurementService = measurementService;
+        this.objectMapper = objectMapper;
+        this.liveMeasurementStream = liveMeasurementStream;
+        this.powerflowExportService = powerflowExportService;
+        this.heartbeat = heartbeat;
     }
 
+    /**
+     * Tagged with the measurement's timestamp, so a poll with a matching {@code If-None-Match} gets a 304.
+     */
     @GetMapping("/current/{powerStationId}")
-    public CurrentMeasurementsDto current(@PathVariable Long powerStationId) {
-        return measurementService.current(powerStationId);
+    public ResponseEntity<CurrentMeasurementsDto> current(@PathVariable Long powerStationId) {
+        var current = measurementService.current(powerStationId);
+        if (current == null) {
+            return ResponseEntity.ok().build();
+        }
+        return ResponseEntity.ok()
+                .eTag(Long.toString(current.timestamp().toInstant().toEpochMilli()))
+                .cacheControl(CacheControl.noCache())
+                .body(current);
+    }
+
+    /**
+     * Pushes the station's measurements as server-sent events: the current one right away, then every new one as it
+     * is ingested, with a comment line every {@code app.measurements.stream.heartbeat} to keep idle connections open.
+     */
+    @GetMapping(value = "/current/{powerStationId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<CurrentMeasurementsDto>> streamCurrent(@PathVariable Long powerStationId) {
+        // listen before reading the current value, so a measurement published in between is not lost; it waits in
+        // the buffer until the current value has been sent
+        Sinks.Many<CurrentMeasurementsDto> buffered = Sinks.many().unicast().onBackpressureBuffer();
+        var listening = liveMeasurementStream.updates(powerStationId)
+                .subscribe(buffered::tryEmitNext, buffered::tryEmitError, buffered::tryEmitComplete);
+        CurrentMeasurementsDto current;
+        try {
+            current = measurementService.current(powerStationId);
+        } catch (RuntimeException ex) {
+            listening.dispose();
+            throw ex;
+        }
+        var lastSent = new AtomicReference<>(current == null ? null : current.timestamp());
+        var newer = buffered.asFlux()
+                .onBackpressureLatest()
+                .filter(measurement -> lastSent.get() == null
+                        || measurement.timestamp().isAfter(lastSent.get()))
+                .doOnNext(measurement -> lastSent.set(measurement.timestamp()));
+        var updates = Flux.concat(Mono.justOrEmpty(current), newer)
+                .doFinally(signal -> listening.dispose());
+        return updates.publish(measurements -> Flux.merge(
+                measurements.map(measurement -> ServerSentEvent.builder(measurement).build()),
+                Flux.interval(heartbeat)
+                        .map(tick -> ServerSentEvent.<CurrentMeasurementsDto>builder().comment("heartbeat").build())
+                        .takeUntilOther(measurements.ignoreElements())));
     }
 
     @PostMapping("/history/{powerStationId}")
@@ -34,4 +108,70 @@ public class MeasurementController {
                                             @Valid @RequestBody HistoryRequestDto request) {
         return measurementService.history(powerStationId, request);
     }
+
+    /**
+     * Same rows as {@link #history} in columnar form, selected by {@code Accept}.
+     */
+    @PostMapping(value = "/history/{powerStationId}", produces = ColumnarHistoryDto.MEDIA_TYPE)
+    public ColumnarHistoryDto columnarHistory(@PathVariable Long powerStationId,
+                                              @Valid @RequestBody HistoryRequestDto request) {
+        return ColumnarHistoryDto.of(measurementService.history(powerStationId, request));
+    }
+
+    /**
+     * {@link #columnarHistory} for clients that cannot set {@code Accept}, selected by {@code ?format=columnar}.
+     */
+    @PostMapping(value = "/history/{powerStationId}", params = "format=columnar")
+    public ResponseEntity<ColumnarHistoryDto> columnarHistoryByFormat(@PathVariable Long powerStationId,
+                                                                      @Valid @RequestBody HistoryRequestDto request) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ColumnarHistoryDto.MEDIA_TYPE))
+                .body(columnarHistory(powerStationId, request));
+    }
+
+    /**
+     * Same rows as {@link #history} as newline-delimited JSON, written page by page so multi-year exports run in
+     * constant memory.
+     */
+    @PostMapping(value = "/history/{powerStationId}/stream", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamHistory(@PathVariable Long powerStationId,
+                                                               @Valid @RequestBody HistoryRequestDto request) {
+        var pages = measurementService.historyPages(powerStationId, request);
+        StreamingResponseBody body = out -> {
+            var writer = objectMapper.writer()
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .withRootValueSeparator("\n");
+            boolean written = false;
+            try (var rows = writer.writeValues(out)) {
+                while (pages.hasNext()) {
+                    rows.writeAll(pages.next());
+                    rows.flush();
+                    written = true;
+                }
+            }
+            // the separator only goes between records, NDJSON ends every record with a newline
+            if (written) {
+                out.write('\n');
+                out.flush();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
+    /**
+     * Raw history of the range as length-delimited protobuf chunks, streamed from a database cursor for bulk
+     * consumers; see {@link PowerflowExportService}.
+     */
+    @PostMapping(value = "/history/{powerStationId}/export", produces = PowerflowExportService.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportHistory(@PathVariable Long powerStationId,
+                                                               @Valid @RequestBody HistoryRequestDto request) {
+        var export = powerflowExportService.exportHistory(powerStationId, request);
+        StreamingResponseBody body = export::writeTo;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(PowerflowExportService.MEDIA_TYPE))
+                .body(body);
+    }
 }
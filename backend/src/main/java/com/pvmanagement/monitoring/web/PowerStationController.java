@@ -1,11 +1,20 @@
 package com.pvmanagement.monitoring.web;
 
+import com.pvmanagement.monitoring.domain.ColumnarDashboardSummaryDto;
+import com.pvmanagement.monitoring.domain.ColumnarHistoryDto;
+import com.pvmanagement.monitoring.domain.DashboardOverviewDto;
 import com.pvmanagement.monitoring.domain.DashboardSummaryDto;
+import com.pvmanagement.monitoring.domain.HistoryWindowDto;
 import com.pvmanagement.monitoring.domain.PowerStationDto;
+import com.pvmanagement.monitoring.domain.SemSyncStatus;
 import com.pvmanagement.monitoring.app.PowerStationService;
+import jakarta.validation.constraints.Positive;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
@@ -31,7 +40,49 @@ public class PowerStationController {
     }
 
     @GetMapping("/{id}/dashboard")
-    public DashboardSummaryDto dashboard(@PathVariable Long id) {
-        return powerStationService.buildDashboard(id);
+    public DashboardSummaryDto dashboard(@PathVariable Long id,
+                                         @RequestParam(required = false) @Positive Integer maxPoints) {
+        return powerStationService.buildDashboard(id, maxPoints);
+    }
+
+    /**
+     * Same dashboard as {@link #dashboard} with a columnar history, selected by {@code Accept}.
+     */
+    @GetMapping(value = "/{id}/dashboard", produces = ColumnarHistoryDto.MEDIA_TYPE)
+    public ColumnarDashboardSummaryDto columnarDashboard(@PathVariable Long id,
+                                                         @RequestParam(required = false) @Positive Integer maxPoints) {
+        return ColumnarDashboardSummaryDto.of(powerStationService.buildDashboard(id, maxPoints));
+    }
+
+    /**
+     * {@link #columnarDashboard} for clients that cannot set {@code Accept}, selected by {@code ?format=columnar}.
+     */
+    @GetMapping(value = "/{id}/dashboard", params = "format=columnar")
+    public ResponseEntity<ColumnarDashboardSummaryDto> columnarDashboardByFormat(
+            @PathVariable Long id,
+            @RequestParam(required = false) @Positive Integer maxPoints) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(ColumnarHistoryDto.MEDIA_TYPE))
+                .body(columnarDashboard(id, maxPoints));
+    }
+
+    @GetMapping("/{id}/dashboard/overview")
+    public DashboardOverviewDto dashboardOverview(@PathVariable Long id) {
+        return powerStationService.buildDashboardOverview(id);
+    }
+
+    @GetMapping("/{id}/dashboard/history")
+    public HistoryWindowDto dashboardHistory(@PathVariable Long id, @RequestParam String window) {
+        return powerStationService.historyWindow(id, window);
+    }
+
+    /**
+     * Latest SEMS sync of the station, {@code 204 No Content} while none has been recorded.
+     */
+    @GetMapping("/{id}/sync-status")
+    public ResponseEntity<SemSyncStatus> syncStatus(@PathVariable Long id) {
+        return powerStationService.getSyncStatus(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
     }
 }
@@ -0,0 +1,63 @@
+package com.pvmanagement.panelSizeOptimizer;
+
+/**
+ * Capacity sweep over aligned diurnal profiles.
+ * <p>
+ * Production and consumption are kept as primitive arrays indexed by 15-minute slot, so fit, excess and
+ * lack for every candidate capacity are computed in a single pass without boxing or intermediate lists.
+ */
+public class PsoEngine {
+
+    private final double[] production;
+    private final double[] consumption;
+
+    /**
+     * @param production  production per slot in kWh at the reference capacity
+     * @param consumption consumption per slot in kWh, aligned with {@code production}
+     */
+    public PsoEngine(double[] production, double[] consumption) {
+        if (production.length != consumption.length) {
+            throw new IllegalArgumentException("Production and consumption profiles must have the same number of slots");
+        }
+        this.production = production;
+        this.consumption = consumption;
+    }
+
+    /**
+     * Scales the production profile to each target capacity and sums, per capacity, the energy that is consumed
+     * directly (fit), fed into the grid (excess) and drawn from the grid (lack).
+     *
+     * @param referenceCapacity capacity the production profile was measured with
+     * @param capacities        target capacities
+     * @param fit               output, one entry per capacity
+     * @param excess            output, one entry per capacity
+     * @param lack              output, one entry per capacity
+     */
+    public void sweep(double referenceCapacity,
+            double[] capacities,
+            double[] fit,
+            double[] excess,
+            double[] lack) {
+        for (int k = 0; k < capacities.length; k++) {
+            double scale = capacities[k] / referenceCapacity;
+            double fitSum = 0;
+            double excessSum = 0;
+            double lackSum = 0;
+            for (int i = 0; i < production.length; i++) {
+                double p = production[i] * scale;
+                double c = consumption[i];
+                if (p >= c) {
+                    fitSum += c;
+                    excessSum += p - c;
+                }
+                else {
+                    fitSum += p;
+                    lackSum += c - p;
+                }
+            }
+            fit[k] = fitSum;
+            excess[k] = excessSum;
+            lack[k] = lackSum;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.pvmanagement.panelSizeOptimizer;
+
+/**
+ * The power station has not recorded enough data to compute an optimization from.
+ */
+public class PsoInsufficientDataException extends RuntimeException {
+    public PsoInsufficientDataException(String message) {
+        super(message);
+    }
+}
@@ -1,5 +1,6 @@
 package com.pvmanagement.panelSizeOptimizer;
 
+import com.pvmanagement.timeSeriesStatistics.AggregationType;
 import lombok.Builder;
 
 import java.math.BigDecimal;
@@ -10,5 +11,6 @@ public record PsoRequest(String electricityCosts,
         String currentCapacity,
         String performanceRatio,
         String reininvesttime,
-        String panelcost) {
+        String panelcost,
+        AggregationType aggregationType) {
 }
@@ -1,18 +1,20 @@
 package com.pvmanagement.panelSizeOptimizer;
 
+import com.pvmanagement.monitoring.app.DiurnalProfileService;
+import com.pvmanagement.monitoring.domain.DiurnalMetric;
 import com.pvmanagement.monitoring.infra.PowerStationRepository;
-import com.pvmanagement.monitoring.infra.PowerflowSnapshotRepository;
+import com.pvmanagement.timeSeriesStatistics.AggregationType;
 import com.pvmanagement.timeSeriesStatistics.DayTimeValue;
-import com.pvmanagement.timeSeriesStatistics.TimeValue;
+import com.pvmanagement.timeSeriesStatistics.DiurnalSlots;
+import com.pvmanagement.timeSeriesStatistics.SlotSum;
 import com.pvmanagement.timeSeriesStatistics.TssService;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static com.pvmanagement.panelSizeOptimizer.PsoUtils.linearList;
@@ -21,12 +23,12 @@ import static com.pvmanagement.panelSizeOptimizer.PsoUtils.linearList;
 public class PsoService {
 
     private final PowerStationRepository powerStationRepository;
-    private final PowerflowSnapshotRepository powerflowSnapshotRepository;
+    private final DiurnalProfileService diurnalProfileService;
     private final TssService tssService;
 
-    public PsoService(PowerStationRepository powerStationRepository, PowerflowSnapshotRepository powerflowSnapshotRepository, TssService tssService) {
+    public PsoService(PowerStationRepository powerStationRepository, DiurnalProfileService diurnalProfileService, TssService tssService) {
         this.powerStationRepository = powerStationRepository;
-        this.powerflowSnapshotRepository = powerflowSnapshotRepository;
+        this.diurnalProfileService = diurnalProfileService;
         this.tssService = tssService;
     }
 
@@ -50,84 +52,41 @@ public class PsoService {
 
         var station = powerStationRepository.findById(powerStationId)
                 .orElseThrow(() -> new IllegalArgumentException("Power station not found"));
-        OffsetDateTime to = OffsetDateTime.now(ZoneOffset.UTC);
-        OffsetDateTime from = OffsetDateTime.of(1970,
-                1,
-                1,
-                0,
-                0,
-                0,
-                0,
-                ZoneOffset.UTC);
-        var history =
-                powerflowSnapshotRepository.findByPowerStationAndPowerflowTimestampBetweenOrderByPowerflowTimestampAsc(station,
-                        from,
-                        to);
-
-        var productionHistory = history.stream()
-                .map(snapshot -> new TimeValue(snapshot.getPowerflowTimestamp(),
-                        snapshot.getPvW()))
-                .toList();
 
-        var consumptionHistory = history.stream()
-                .map(snapshot -> new TimeValue(snapshot.getPowerflowTimestamp(),
-                        snapshot.getLoadW()))
-                .toList();
-
-        List<DayTimeValue> diurnalAggregatedProduction = tssService.computeDiurnalMeanProfile(productionHistory);
-
-        var dailyMeanProduction = diurnalAggregatedProduction.stream()
-                .map(DayTimeValue::value)
-                .reduce(BigDecimal.ZERO,
-                        BigDecimal::add);
-
-        var diurnalProductionProfile = diurnalAggregatedProduction.stream()
-                .map(it -> DayTimeValue.builder()
-                        .value(it.value()
-                                .multiply(new BigDecimal("4")))
-                        .timestamp(it.timestamp())
-                        .build())
-                .toList();
+        List<DayTimeValue> diurnalAggregatedProduction;
+        List<DayTimeValue> diurnalAggregatedConsumption;
+        if (request.aggregationType() == AggregationType.median) {
+            diurnalAggregatedProduction = tssService.computeDiurnalQuantileProfileFromSketches(
+                    diurnalProfileService.slotSketches(station.getId(), DiurnalMetric.PV), 0.5);
+            diurnalAggregatedConsumption = tssService.computeDiurnalQuantileProfileFromSketches(
+                    diurnalProfileService.slotSketches(station.getId(), DiurnalMetric.LOAD), 0.5);
+        }
+        else {
+            var slotAggregates = diurnalProfileService.slotAggregates(station.getId());
+            diurnalAggregatedProduction = tssService.computeDiurnalMeanProfileFromSlotSums(slotAggregates.stream()
+                    .map(it -> new SlotSum(it.slot(), it.pvSum(), it.pvCount()))
+                    .toList());
+            diurnalAggregatedConsumption = tssService.computeDiurnalMeanProfileFromSlotSums(slotAggregates.stream()
+                    .map(it -> new SlotSum(it.slot(), it.loadSum(), it.loadCount()))
+                    .toList());
+        }
+
+        // a station without production data cannot be sized; one without consumption data feeds everything into the grid
+        if (diurnalAggregatedProduction.isEmpty()) {
+            throw new PsoInsufficientDataException("No production data recorded for power station " + powerStationId);
+        }
+        // both profiles are built on the same 15-minute grid, so slot i of one lines up with slot i of the other
+        List<DayTimeValue> grid = diurnalAggregatedProduction;
+        double[] production = toSlotValues(diurnalAggregatedProduction);
+        double[] consumption = toSlotValues(diurnalAggregatedConsumption);
+        var engine = new PsoEngine(production, consumption);
+
+        var dailyMeanProduction = BigDecimal.valueOf(sum(production));
 
         var efficiencyFactor = dailyMeanProduction.divide(new BigDecimal(request.currentCapacity()).multiply(new BigDecimal("24")),
                 6,
                 RoundingMode.HALF_UP);
 
-        List<DayTimeValue> diurnalAggregatedConsumption = tssService.computeDiurnalMeanProfile(consumptionHistory);
-
-        var diurnalConsumptionProfile = diurnalAggregatedConsumption.stream()
-                .map(it -> DayTimeValue.builder()
-                        .value(it.value()
-                                .multiply(new BigDecimal("4")))
-                        .timestamp(it.timestamp())
-                        .build())
-                .toList();
-
-        // value-true for intergrating over 15-minutes intervals
-        var diurnalAggregatedProductions = pvCapacities.stream()
-                .map(targetCapacity -> diurnalAggregatedProduction.stream()
-                        .map(it -> DayTimeValue.builder()
-                                .timestamp(it.timestamp())
-                                .value(it.value()
-                                        .multiply(targetCapacity.divide(new BigDecimal(request.currentCapacity()),
-                                                10,
-                                                RoundingMode.HALF_UP)))
-                                .build())
-                        .toList())
-                .toList();
-
-        var diurnalProductionProfiles = pvCapacities.stream()
-                .map(targetCapacity -> diurnalProductionProfile.stream()
-                        .map(it -> DayTimeValue.builder()
-                                .timestamp(it.timestamp())
-                                .value(it.value()
-                                        .multiply(targetCapacity.divide(new BigDecimal(request.currentCapacity()),
-                                                10,
-                                                RoundingMode.HALF_UP)))
-                                .build())
-                        .toList())
-                .toList();
-
         var fitFactor = new BigDecimal(request.panelcost()).divide(efficiencyFactor,
                         10,
                         RoundingMode.HALF_UP)
@@ -137,118 +96,34 @@ public class PsoService {
 
         var lackFactor = new BigDecimal(request.electricityCosts());
 
-        var fits = diurnalAggregatedProductions.stream()
-                .map(productionProfile -> {
-                    return productionProfile.stream()
-                            .map(p -> {
-
-                                var c = diurnalAggregatedConsumption.stream()
-                                        .filter(it -> it.timestamp()
-                                                .equals(p.timestamp()))
-                                        .findFirst()
-                                        .orElse(null);
-                                if (c == null) {
-                                    return null;
-                                }
-                                if (p.value()
-                                        .compareTo(c.value()) >= 0) {
-                                    return c.value();
-                                }
-                                else {
-                                    return p.value();
-                                }
-                            })
-                            .toList();
-                })
-                .toList();
-
-        var totalFits = fits.stream()
-                .map(fitProfile -> {
-                    return fitProfile.stream()
-                            .reduce(BigDecimal.ZERO,
-                                    BigDecimal::add);
-                })
-                .toList();
-
-        List<BigDecimal> fitAmounts = totalFits.stream()
-                .map(totalFit -> totalFit.multiply(fitFactor))
-                .toList();
-
-        var excesses = diurnalAggregatedProductions.stream()
-                .map(productionProfile -> {
-                    return productionProfile.stream()
-                            .map(p -> {
-                                var c = diurnalAggregatedConsumption.stream()
-                                        .filter(it -> it.timestamp()
-                                                .equals(p.timestamp()))
-                                        .findFirst()
-                                        .orElse(null);
-                                if (c == null) {
-                                    return null;
-                                }
-                                if (p.value()
-                                        .compareTo(c.value()) >= 0) {
-                                    return p.value()
-                                            .subtract(c.value());
-                                }
-                                else {
-                                    return BigDecimal.ZERO;
-                                }
-                            })
-                            .toList();
-                })
-                .toList();
-
-        var totalExcesses = excesses.stream()
-                .map(profile -> profile.stream()
-                        .reduce(BigDecimal.ZERO,
-                                BigDecimal::add))
-                .toList();
-
-        var excessAmounts = totalExcesses.stream()
-                .map(totalExcess -> totalExcess.multiply(excessFactor))
-                .toList();
-
-        var lacks = diurnalAggregatedProductions.stream()
-                .map(profile -> {
-                    return profile.stream()
-                            .map(p -> {
-                                var c = diurnalAggregatedConsumption.stream()
-                                        .filter(it -> it.timestamp()
-                                                .equals(p.timestamp()))
-                                        .findFirst()
-                                        .orElse(null);
-                                if (c == null) {
-                                    return null;
-                                }
-                                if (p.value()
-                                        .compareTo(c.value()) < 0) {
-                                    return c.value()
-                                            .subtract(p.value());
-                                }
-                                else {
-                                    return BigDecimal.ZERO;
-                                }
-                            })
-                            .toList();
-                })
-                .toList();
-
-        var totalLacks = lacks.stream()
-                .map(profile -> profile.stream()
-                        .reduce(BigDecimal.ZERO,
-                                BigDecimal::add))
-                .toList();
-
-        var lackAmounts = totalLacks.stream()
-                .map(val -> val.multiply(lackFactor))
-                .toList();
-
-        var totalAmounts = IntStream.range(0,
-                        fitAmounts.size())
-                .mapToObj(i -> fitAmounts.get(i)
-                        .add(excessAmounts.get(i))
-                        .add(lackAmounts.get(i)))
+        double referenceCapacity = Double.parseDouble(request.currentCapacity());
+        double[] capacities = pvCapacities.stream()
+                .mapToDouble(BigDecimal::doubleValue)
+                .toArray();
+        double[] fits = new double[capacities.length];
+        double[] excesses = new double[capacities.length];
+        double[] lacks = new double[capacities.length];
+        engine.sweep(referenceCapacity, capacities, fits, excesses, lacks);
+
+        List<BigDecimal> fitAmounts = new ArrayList<>(capacities.length);
+        List<BigDecimal> excessAmounts = new ArrayList<>(capacities.length);
+        List<BigDecimal> lackAmounts = new ArrayList<>(capacities.length);
+        List<BigDecimal> totalAmounts = new ArrayList<>(capacities.length);
+        for (int k = 0; k < capacities.length; k++) {
+            var fitAmount = BigDecimal.valueOf(fits[k]).multiply(fitFactor);
+            var excessAmount = BigDecimal.valueOf(excesses[k]).multiply(excessFactor);
+            var lackAmount = BigDecimal.valueOf(lacks[k]).multiply(lackFactor);
+            fitAmounts.add(fitAmount);
+            excessAmounts.add(excessAmount);
+            lackAmounts.add(lackAmount);
+            totalAmounts.add(fitAmount.add(excessAmount).add(lackAmount));
+        }
+
+        // value * 4 turns the kWh of a 15-minute slot into the mean power in kW
+        var diurnalConsumptionProfile = toPowerProfile(grid, consumption, 1.0);
+
+        var diurnalProductionProfiles = Arrays.stream(capacities)
+                .mapToObj(capacity -> toPowerProfile(grid, production, capacity / referenceCapacity))
                 .toList();
 
         return PsoResponse.builder()
@@ -263,5 +138,31 @@ public class PsoService {
                 .build();
     }
 
+    // one value per DiurnalSlots slot; an empty profile has no data for any slot and counts as zero
+    private static double[] toSlotValues(List<DayTimeValue> profile) {
+        double[] values = new double[DiurnalSlots.SLOTS_PER_DAY];
+        for (int i = 0; i < profile.size(); i++) {
+            values[i] = profile.get(i).value().doubleValue();
+        }
+        return values;
+    }
 
+    private static double sum(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static List<DayTimeValue> toPowerProfile(List<DayTimeValue> grid, double[] values, double scale) {
+        List<DayTimeValue> profile = new ArrayList<>(values.length);
+        for (int i = 0; i < values.length; i++) {
+            profile.add(DayTimeValue.builder()
+                    .timestamp(grid.get(i).timestamp())
+                    .value(BigDecimal.valueOf(values[i] * 4 * scale))
+                    .build());
+        }
+        return profile;
+    }
 }
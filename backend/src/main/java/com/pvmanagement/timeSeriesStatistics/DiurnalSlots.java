@@ -0,0 +1,36 @@
+package com.pvmanagement.timeSeriesStatistics;
+
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+
+/**
+ * The 15-minute grid diurnal profiles are built on. Slot {@code i} covers the UTC time of day {@code i * 15}
+ * minutes; samples are assigned to the nearest slot (e.g. 10:07 -> 10:00, 10:09 -> 10:15, 23:55 -> 00:00).
+ */
+public final class DiurnalSlots {
+
+    public static final int SLOT_MINUTES = 15;
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+
+    /**
+     * SQL counterpart of {@link #slotOf(OffsetDateTime)} for a TIMESTAMPTZ column named {@code powerflow_timestamp}.
+     */
+    public static final String SQL_SLOT_EXPRESSION = """
+            MOD(CAST(ROUND(EXTRACT(EPOCH FROM date_trunc('minute', powerflow_timestamp AT TIME ZONE 'UTC')
+                    - date_trunc('day', powerflow_timestamp AT TIME ZONE 'UTC')) / 900.0) AS INTEGER), 96)""";
+
+    private DiurnalSlots() {
+    }
+
+    public static int slotOf(OffsetDateTime timestamp) {
+        var utc = timestamp.withOffsetSameInstant(ZoneOffset.UTC);
+        int minutes = utc.getHour() * 60 + utc.getMinute();
+        return (int) (Math.round(minutes / (double) SLOT_MINUTES) % SLOTS_PER_DAY);
+    }
+
+    public static OffsetTime timeOf(int slot, ZoneOffset offset) {
+        return OffsetTime.of(LocalTime.MIDNIGHT, offset).plusMinutes((long) slot * SLOT_MINUTES);
+    }
+}
@@ -0,0 +1,278 @@
+package com.pvmanagement.timeSeriesStatistics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Streaming quantile sketch with bounded memory (DDSketch-style log-scale buckets).
+ * <p>
+ * Every value is counted in the bucket {@code ceil(log_gamma(|x|))}, so any quantile is answered within the
+ * configured relative accuracy, independent of how many samples were added. Sketches with the same accuracy can be
+ * merged (e.g. per-day sketches into a long-term one) and round-trip through {@link #toBytes()} for storage.
+ */
+public class QuantileSketch {
+
+    public static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+    private static final int DEFAULT_MAX_BINS = 2048;
+    // magnitudes below this are counted as zero (e.g. PV output at night)
+    private static final double MIN_INDEXABLE = 1e-6;
+    private static final byte FORMAT_VERSION = 1;
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final int maxBins;
+    private final Bins positive = new Bins();
+    private final Bins negative = new Bins();
+    private long zeroCount;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_RELATIVE_ACCURACY, DEFAULT_MAX_BINS);
+    }
+
+    public QuantileSketch(double relativeAccuracy, int maxBins) {
+        if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("Relative accuracy must be between 0 and 1");
+        }
+        if (maxBins < 1) {
+            throw new IllegalArgumentException("A sketch needs at least one bin");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+        this.maxBins = maxBins;
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Cannot add " + value + " to a quantile sketch");
+        }
+        if (value >= MIN_INDEXABLE) {
+            positive.add(index(value), 1, maxBins);
+        }
+        else if (value <= -MIN_INDEXABLE) {
+            negative.add(index(-value), 1, maxBins);
+        }
+        else {
+            zeroCount++;
+        }
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds all samples of {@code other} to this sketch.
+     */
+    public void merge(QuantileSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge sketches with different relative accuracy");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        positive.addAll(other.positive, maxBins);
+        negative.addAll(other.negative, maxBins);
+        zeroCount += other.zeroCount;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.5 for the median
+     * @return the estimated value at the quantile, or {@code NaN} when the sketch is empty
+     */
+    public double quantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (quantile == 0) {
+            return min;
+        }
+        if (quantile == 1) {
+            return max;
+        }
+
+        long rank = (long) (quantile * (count - 1));
+        long seen = 0;
+        if (negative.counts != null) {
+            // most negative values first, i.e. highest magnitude bucket first
+            for (int i = negative.counts.length - 1; i >= 0; i--) {
+                seen += negative.counts[i];
+                if (seen > rank) {
+                    return clamp(-value(negative.offset + i));
+                }
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return clamp(0);
+        }
+        if (positive.counts != null) {
+            for (int i = 0; i < positive.counts.length; i++) {
+                seen += positive.counts[i];
+                if (seen > rank) {
+                    return clamp(value(positive.offset + i));
+                }
+            }
+        }
+        return max;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public byte[] toBytes() {
+        var bytes = new ByteArrayOutputStream();
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeDouble(relativeAccuracy);
+            out.writeInt(maxBins);
+            writeVarLong(out, count);
+            writeVarLong(out, zeroCount);
+            out.writeDouble(min);
+            out.writeDouble(max);
+            positive.write(out);
+            negative.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        try (var in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported quantile sketch format " + version);
+            }
+            var sketch = new QuantileSketch(in.readDouble(), in.readInt());
+            sketch.count = readVarLong(in);
+            sketch.zeroCount = readVarLong(in);
+            sketch.min = in.readDouble();
+            sketch.max = in.readDouble();
+            sketch.positive.read(in);
+            sketch.negative.read(in);
+            return sketch;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt quantile sketch", e);
+        }
+    }
+
+    private int index(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / logGamma);
+    }
+
+    private double value(int index) {
+        return 2 * Math.pow(gamma, index) / (gamma + 1);
+    }
+
+    private double clamp(double value) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length number");
+    }
+
+    /**
+     * Dense bucket counts for a contiguous range of bucket indexes. When the range would exceed the bin limit the
+     * lowest buckets are collapsed, which keeps the accuracy of the upper quantiles.
+     */
+    private static final class Bins {
+
+        private long[] counts;
+        private int offset;
+
+        void add(int index, long n, int maxBins) {
+            if (counts == null) {
+                counts = new long[1];
+                offset = index;
+            }
+            else if (index < offset || index >= offset + counts.length) {
+                index = grow(index, maxBins);
+            }
+            counts[index - offset] += n;
+        }
+
+        void addAll(Bins other, int maxBins) {
+            if (other.counts == null) {
+                return;
+            }
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.offset + i, other.counts[i], maxBins);
+                }
+            }
+        }
+
+        private int grow(int index, int maxBins) {
+            int lo = Math.min(offset, index);
+            int hi = Math.max(offset + counts.length - 1, index);
+            if (hi - lo + 1 > maxBins) {
+                lo = hi - maxBins + 1;
+            }
+            long[] resized = new long[hi - lo + 1];
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    resized[Math.max(offset + i, lo) - lo] += counts[i];
+                }
+            }
+            counts = resized;
+            offset = lo;
+            return Math.max(index, lo);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            if (counts == null) {
+                out.writeInt(0);
+                return;
+            }
+            out.writeInt(counts.length);
+            out.writeInt(offset);
+            for (long c : counts) {
+                writeVarLong(out, c);
+            }
+        }
+
+        void read(DataInputStream in) throws IOException {
+            int length = in.readInt();
+            if (length == 0) {
+                return;
+            }
+            offset = in.readInt();
+            counts = new long[length];
+            for (int i = 0; i < length; i++) {
+                counts[i] = readVarLong(in);
+            }
+        }
+    }
+}
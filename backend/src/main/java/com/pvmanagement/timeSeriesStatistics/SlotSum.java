@@ -0,0 +1,12 @@
+package com.pvmanagement.timeSeriesStatistics;
+
+import java.math.BigDecimal;
+
+/**
+ * Sum and number of samples that fell into one slot of the {@link DiurnalSlots} grid.
+ */
+public record SlotSum(int slot,
+        BigDecimal sum,
+        long count
+) {
+}
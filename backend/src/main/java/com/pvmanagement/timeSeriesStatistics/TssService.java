@@ -4,11 +4,8 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.LocalTime;
-import java.time.OffsetTime;
 import java.time.ZoneOffset;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @Service
 public class TssService {
@@ -36,52 +33,127 @@ public class TssService {
             return new ArrayList<>();
         }
 
-        // Group by 15-minute rounded OffsetTime
-        Map<OffsetTime, List<BigDecimal>> grouped = withoutNull.stream()
-                .collect(Collectors.groupingBy(
-                        t -> roundTo15Min(t.timestamp().toOffsetTime()),
-                        TreeMap::new,
-                        Collectors.mapping(TimeValue::value, Collectors.toList())
-                ));
-
-        // Compute mean per group into a map: time -> mean
-        Map<OffsetTime, BigDecimal> meanByTime = new TreeMap<>();
-        for (var entry : grouped.entrySet()) {
-            BigDecimal sum = entry.getValue().stream()
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            BigDecimal mean = sum.divide(
-                    BigDecimal.valueOf(entry.getValue().size()),
-                    6,
-                    RoundingMode.HALF_UP
-            );
-            meanByTime.put(entry.getKey(), mean);
+        // Group by 15-minute slot
+        BigDecimal[] sums = new BigDecimal[DiurnalSlots.SLOTS_PER_DAY];
+        long[] counts = new long[DiurnalSlots.SLOTS_PER_DAY];
+        for (var timeValue : withoutNull) {
+            int slot = DiurnalSlots.slotOf(timeValue.timestamp());
+            sums[slot] = sums[slot] == null ? timeValue.value() : sums[slot].add(timeValue.value());
+            counts[slot]++;
         }
 
-        // Build a full-day profile in 15-minute steps, fill missing with zero
-        List<DayTimeValue> diurnalMean = new ArrayList<>(96);
+        List<SlotSum> slotSums = new ArrayList<>();
+        for (int slot = 0; slot < DiurnalSlots.SLOTS_PER_DAY; slot++) {
+            if (counts[slot] > 0) {
+                slotSums.add(new SlotSum(slot, sums[slot], counts[slot]));
+            }
+        }
 
         // Use offset of first timestamp as base
-        ZoneOffset offset = series.get(0).timestamp().getOffset();
-        OffsetTime current = OffsetTime.of(LocalTime.MIDNIGHT, offset);
+        return toDiurnalMeanProfile(slotSums, series.get(0).timestamp().getOffset());
+    }
 
-        for (int i = 0; i < 24 * 60; i += 15) {
-            OffsetTime t = current.plusMinutes(i);
-            BigDecimal value = meanByTime.getOrDefault(t, BigDecimal.ZERO);
+    /**
+     * Computes the diurnal mean profile in kWh in 15-minute intervals from per-slot sums that were aggregated
+     * elsewhere (e.g. in the database).
+     *
+     * @param slotSums sums and counts of power samples (W) per {@link DiurnalSlots} slot; missing slots count as zero
+     * @return 96 values in kWh, one per 15-minute interval starting at midnight UTC
+     */
+    public List<DayTimeValue> computeDiurnalMeanProfileFromSlotSums(List<SlotSum> slotSums) {
+        if (slotSums == null || slotSums.stream().noneMatch(it -> it.count() > 0 && it.sum() != null)) {
+            return new ArrayList<>();
+        }
+        return toDiurnalMeanProfile(slotSums, ZoneOffset.UTC);
+    }
 
-            diurnalMean.add(DayTimeValue.builder()
-                    .timestamp(t)
-                    .value(value.multiply(new BigDecimal("0.00025")))
-                    .build());
+    /**
+     * Computes a diurnal quantile profile (e.g. the median for {@code quantile = 0.5}) in kWh in 15-minute
+     * intervals. Samples are folded into one bounded-size {@link QuantileSketch} per slot instead of being kept.
+     *
+     * @param series   array of Timeseries records
+     * @param quantile between 0 and 1
+     * @return 96 values in kWh, one per 15-minute interval
+     */
+    public List<DayTimeValue> computeDiurnalQuantileProfile(List<TimeValue> series, double quantile) {
+        if (series == null || series.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, QuantileSketch> sketches = new HashMap<>();
+        for (var timeValue : series) {
+            if (timeValue.value() == null) {
+                continue;
+            }
+            sketches.computeIfAbsent(DiurnalSlots.slotOf(timeValue.timestamp()), slot -> new QuantileSketch())
+                    .add(timeValue.value().doubleValue());
         }
 
-        return diurnalMean;
+        if (sketches.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return toDiurnalQuantileProfile(sketches, quantile, series.get(0).timestamp().getOffset());
     }
 
-    // Helper: rounds a LocalTime to the nearest 15-minute interval (e.g. 10:07 -> 10:00, 10:09 -> 10:15)
-    private static OffsetTime roundTo15Min(OffsetTime time) {
-        int minutes = time.getHour() * 60 + time.getMinute();
-        int rounded = (int) (Math.round(minutes / 15.0) * 15);
-        return OffsetTime.of(rounded / 60 % 24, rounded % 60,0,0, ZoneOffset.UTC);
+    /**
+     * Computes a diurnal quantile profile in kWh in 15-minute intervals from per-slot sketches that were built
+     * elsewhere (e.g. kept up to date during ingestion).
+     *
+     * @param sketches sketches of power samples (W) keyed by {@link DiurnalSlots} slot; missing slots count as zero
+     * @param quantile between 0 and 1
+     * @return 96 values in kWh, one per 15-minute interval starting at midnight UTC
+     */
+    public List<DayTimeValue> computeDiurnalQuantileProfileFromSketches(Map<Integer, QuantileSketch> sketches,
+            double quantile) {
+        if (sketches == null || sketches.values().stream().allMatch(it -> it.count() == 0)) {
+            return new ArrayList<>();
+        }
+        return toDiurnalQuantileProfile(sketches, quantile, ZoneOffset.UTC);
+    }
+
+    private List<DayTimeValue> toDiurnalQuantileProfile(Map<Integer, QuantileSketch> sketches,
+            double quantile,
+            ZoneOffset offset) {
+        BigDecimal[] values = new BigDecimal[DiurnalSlots.SLOTS_PER_DAY];
+        Arrays.fill(values, BigDecimal.ZERO);
+        for (var entry : sketches.entrySet()) {
+            if (entry.getValue().count() > 0) {
+                values[entry.getKey()] = BigDecimal.valueOf(entry.getValue().quantile(quantile))
+                        .setScale(6, RoundingMode.HALF_UP);
+            }
+        }
+        return toDiurnalProfile(values, offset);
+    }
+
+    private List<DayTimeValue> toDiurnalMeanProfile(List<SlotSum> slotSums, ZoneOffset offset) {
+        // Compute mean per slot, missing slots stay zero
+        BigDecimal[] means = new BigDecimal[DiurnalSlots.SLOTS_PER_DAY];
+        Arrays.fill(means, BigDecimal.ZERO);
+        for (var slotSum : slotSums) {
+            if (slotSum.count() == 0 || slotSum.sum() == null) {
+                continue;
+            }
+            means[slotSum.slot()] = slotSum.sum().divide(
+                    BigDecimal.valueOf(slotSum.count()),
+                    6,
+                    RoundingMode.HALF_UP
+            );
+        }
+
+        return toDiurnalProfile(means, offset);
+    }
+
+    // Build a full-day profile in 15-minute steps, converting mean power (W) into energy per slot (kWh)
+    private List<DayTimeValue> toDiurnalProfile(BigDecimal[] powerBySlot, ZoneOffset offset) {
+        List<DayTimeValue> profile = new ArrayList<>(DiurnalSlots.SLOTS_PER_DAY);
+        for (int slot = 0; slot < DiurnalSlots.SLOTS_PER_DAY; slot++) {
+            profile.add(DayTimeValue.builder()
+                    .timestamp(DiurnalSlots.timeOf(slot, offset))
+                    .value(powerBySlot[slot].multiply(new BigDecimal("0.00025")))
+                    .build());
+        }
+
+        return profile;
     }
 
 }
@@ -0,0 +1,34 @@
+-- Schema of the shared cache database (homewatts_cache), migrated by the collector.
+-- Caches created by infrastructure/postgres/01-init-dbs.sql before these migrations existed are baselined
+-- at version 0, so every statement here has to be safe to run against them.
+
+-- Shared cache table for external API responses, used by both prod & staging.
+CREATE TABLE IF NOT EXISTS external_api_cache (
+  id            BIGSERIAL PRIMARY KEY,
+  cache_key     TEXT NOT NULL UNIQUE,
+  response_json JSONB,
+  status_code   INT,
+  error_message TEXT,
+  fetched_at    TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+  ttl_seconds   INT NOT NULL DEFAULT 300
+);
+
+-- Payloads are stored as JSONB (payload_format 'json') or as Smile binary in
+-- response_payload (payload_format 'smile').
+ALTER TABLE external_api_cache ADD COLUMN IF NOT EXISTS payload_format TEXT NOT NULL DEFAULT 'json';
+ALTER TABLE external_api_cache ADD COLUMN IF NOT EXISTS response_payload BYTEA;
+
+-- Ingestion catches up in (fetched_at, id) keyset order.
+CREATE INDEX IF NOT EXISTS idx_external_api_cache_fetched_at_id
+  ON external_api_cache (fetched_at, id);
+
+-- Current SEMS login per account, shared by all collector instances.
+CREATE TABLE IF NOT EXISTS sems_session (
+  account         TEXT PRIMARY KEY,
+  uid             TEXT,
+  login_timestamp BIGINT,
+  token           TEXT NOT NULL,
+  api             TEXT,
+  expires_at      TIMESTAMPTZ NOT NULL,
+  updated_at      TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
@@ -0,0 +1,33 @@
+-- Running per-slot sums of the powerflow metrics used by the diurnal profiles.
+-- slot is the 15-minute slot of the UTC time of day (0..95), rounded to the nearest slot.
+
+CREATE TABLE diurnal_profile (
+    powerstation_id BIGINT NOT NULL REFERENCES powerstation(powerstation_id) ON DELETE CASCADE,
+    slot SMALLINT NOT NULL,
+    metric VARCHAR(32) NOT NULL,
+    sample_sum NUMERIC(24,3) NOT NULL DEFAULT 0,
+    sample_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (powerstation_id, slot, metric)
+);
+
+INSERT INTO diurnal_profile (powerstation_id, slot, metric, sample_sum, sample_count)
+SELECT powerstation_id,
+       MOD(CAST(ROUND(EXTRACT(EPOCH FROM date_trunc('minute', powerflow_timestamp AT TIME ZONE 'UTC')
+               - date_trunc('day', powerflow_timestamp AT TIME ZONE 'UTC')) / 900.0) AS INTEGER), 96),
+       'pv_w',
+       SUM(pv_w),
+       COUNT(pv_w)
+FROM powerflow_snapshot
+WHERE pv_w IS NOT NULL
+GROUP BY 1, 2;
+
+INSERT INTO diurnal_profile (powerstation_id, slot, metric, sample_sum, sample_count)
+SELECT powerstation_id,
+       MOD(CAST(ROUND(EXTRACT(EPOCH FROM date_trunc('minute', powerflow_timestamp AT TIME ZONE 'UTC')
+               - date_trunc('day', powerflow_timestamp AT TIME ZONE 'UTC')) / 900.0) AS INTEGER), 96),
+       'load_w',
+       SUM(load_w),
+       COUNT(load_w)
+FROM powerflow_snapshot
+WHERE load_w IS NOT NULL
+GROUP BY 1, 2;
@@ -0,0 +1,5 @@
+-- Serialized QuantileSketch of all samples in the slot, used for median/quantile profiles.
+-- Rows seeded before this column existed stay NULL until the profile is rebuilt from powerflow_snapshot.
+
+ALTER TABLE diurnal_profile
+    ADD COLUMN sketch BYTEA;
@@ -0,0 +1,87 @@
+-- Time-bucketed rollups of powerflow_snapshot in 15-minute, hourly and daily UTC buckets.
+-- Sums and counts are stored instead of averages so new samples can be folded in incrementally;
+-- avg = <metric>_sum / <metric>_count and energy (Wh) = avg * bucket length in hours.
+-- The rows are filled by PowerflowRollupService, which follows powerflow_id via ingestion_state.last_id.
+
+CREATE TABLE powerflow_rollup_15m (
+    powerstation_id BIGINT NOT NULL REFERENCES powerstation(powerstation_id) ON DELETE CASCADE,
+    bucket_start TIMESTAMPTZ NOT NULL,
+    sample_count BIGINT NOT NULL DEFAULT 0,
+    pv_w_sum NUMERIC(24,3),
+    pv_w_count BIGINT NOT NULL DEFAULT 0,
+    pv_w_min NUMERIC(12,3),
+    pv_w_max NUMERIC(12,3),
+    battery_w_sum NUMERIC(24,3),
+    battery_w_count BIGINT NOT NULL DEFAULT 0,
+    battery_w_min NUMERIC(12,3),
+    battery_w_max NUMERIC(12,3),
+    load_w_sum NUMERIC(24,3),
+    load_w_count BIGINT NOT NULL DEFAULT 0,
+    load_w_min NUMERIC(12,3),
+    load_w_max NUMERIC(12,3),
+    grid_w_sum NUMERIC(24,3),
+    grid_w_count BIGINT NOT NULL DEFAULT 0,
+    grid_w_min NUMERIC(12,3),
+    grid_w_max NUMERIC(12,3),
+    soc_percent_sum NUMERIC(24,3),
+    soc_percent_count BIGINT NOT NULL DEFAULT 0,
+    soc_percent_min NUMERIC(12,3),
+    soc_percent_max NUMERIC(12,3),
+    PRIMARY KEY (powerstation_id, bucket_start)
+);
+
+CREATE TABLE powerflow_rollup_1h (
+    powerstation_id BIGINT NOT NULL REFERENCES powerstation(powerstation_id) ON DELETE CASCADE,
+    bucket_start TIMESTAMPTZ NOT NULL,
+    sample_count BIGINT NOT NULL DEFAULT 0,
+    pv_w_sum NUMERIC(24,3),
+    pv_w_count BIGINT NOT NULL DEFAULT 0,
+    pv_w_min NUMERIC(12,3),
+    pv_w_max NUMERIC(12,3),
+    battery_w_sum NUMERIC(24,3),
+    battery_w_count BIGINT NOT NULL DEFAULT 0,
+    battery_w_min NUMERIC(12,3),
+    battery_w_max NUMERIC(12,3),
+    load_w_sum NUMERIC(24,3),
+    load_w_count BIGINT NOT NULL DEFAULT 0,
+    load_w_min NUMERIC(12,3),
+    load_w_max NUMERIC(12,3),
+    grid_w_sum NUMERIC(24,3),
+    grid_w_count BIGINT NOT NULL DEFAULT 0,
+    grid_w_min NUMERIC(12,3),
+    grid_w_max NUMERIC(12,3),
+    soc_percent_sum NUMERIC(24,3),
+    soc_percent_count BIGINT NOT NULL DEFAULT 0,
+    soc_percent_min NUMERIC(12,3),
+    soc_percent_max NUMERIC(12,3),
+    PRIMARY KEY (powerstation_id, bucket_start)
+);
+
+CREATE TABLE powerflow_rollup_1d (
+    powerstation_id BIGINT NOT NULL REFERENCES powerstation(powerstation_id) ON DELETE CASCADE,
+    bucket_start TIMESTAMPTZ NOT NULL,
+    sample_count BIGINT NOT NULL DEFAULT 0,
+    pv_w_sum NUMERIC(24,3),
+    pv_w_count BIGINT NOT NULL DEFAULT 0,
+    pv_w_min NUMERIC(12,3),
+    pv_w_max NUMERIC(12,3),
+    battery_w_sum NUMERIC(24,3),
+    battery_w_count BIGINT NOT NULL DEFAULT 0,
+    battery_w_min NUMERIC(12,3),
+    battery_w_max NUMERIC(12,3),
+    load_w_sum NUMERIC(24,3),
+    load_w_count BIGINT NOT NULL DEFAULT 0,
+    load_w_min NUMERIC(12,3),
+    load_w_max NUMERIC(12,3),
+    grid_w_sum NUMERIC(24,3),
+    grid_w_count BIGINT NOT NULL DEFAULT 0,
+    grid_w_min NUMERIC(12,3),
+    grid_w_max NUMERIC(12,3),
+    soc_percent_sum NUMERIC(24,3),
+    soc_percent_count BIGINT NOT NULL DEFAULT 0,
+    soc_percent_min NUMERIC(12,3),
+    soc_percent_max NUMERIC(12,3),
+    PRIMARY KEY (powerstation_id, bucket_start)
+);
+
+ALTER TABLE ingestion_state ADD COLUMN last_id BIGINT;
@@ -0,0 +1,20 @@
+-- Latest sync status per station, upserted by SemSyncLogRecorder on every flush.
+-- sem_sync_log keeps the history: at most one row per station and flush, thinned out and expired by the
+-- recorder's retention job.
+
+CREATE TABLE sem_sync_status (
+    powerstation_id BIGINT PRIMARY KEY REFERENCES powerstation(powerstation_id) ON DELETE CASCADE,
+    status VARCHAR(32),
+    message TEXT,
+    last_attempt_at TIMESTAMPTZ NOT NULL,
+    last_success_at TIMESTAMPTZ,
+    sync_count BIGINT NOT NULL DEFAULT 0
+);
+
+-- Latest log per station (SemSyncLogRepository) and the per-station scans of the retention job.
+CREATE INDEX idx_sem_sync_log_station_success
+    ON sem_sync_log (powerstation_id, last_success_at DESC);
+
+-- Expiring old history by age alone.
+CREATE INDEX idx_sem_sync_log_success
+    ON sem_sync_log (last_success_at);
@@ -0,0 +1,186 @@
+package com.pvmanagement.integration.cache.app;
+
+import com.pvmanagement.integration.cache.domain.CacheBackfillProgress;
+import com.pvmanagement.integration.cache.domain.CachePayload;
+import com.pvmanagement.integration.cache.domain.ExternalApiCacheEntry;
+import com.pvmanagement.integration.cache.domain.IngestionCursor;
+import com.pvmanagement.integration.cache.infra.ExternalApiCacheRepository;
+import com.pvmanagement.integration.cache.infra.IngestionStateRepository;
+import com.pvmanagement.monitoring.app.DiurnalProfileService;
+import com.pvmanagement.monitoring.app.PowerflowRollupService;
+import com.pvmanagement.monitoring.domain.PowerStation;
+import com.pvmanagement.monitoring.domain.PowerflowSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CacheBackfillServiceTest {
+
+    private static final Instant DAY_1 = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Instant DAY_2 = Instant.parse("2024-01-02T00:00:00Z");
+    private static final Instant DAY_3 = Instant.parse("2024-01-03T00:00:00Z");
+    private static final String CHECKPOINT_1 = "cache_backfill:2024-01-01T00:00:00Z/2024-01-02T00:00:00Z";
+    private static final String CHECKPOINT_2 = "cache_backfill:2024-01-02T00:00:00Z/2024-01-03T00:00:00Z";
+
+    @Mock
+    private ExternalApiCacheRepository cacheRepository;
+
+    @Mock
+    private IngestionStateRepository ingestionStateRepository;
+
+    @Mock
+    private CacheIngestionService cacheIngestionService;
+
+    @Mock
+    private ObjectProvider<PowerflowRollupService> rollupServiceProvider;
+
+    @Mock
+    private PowerflowRollupService rollupService;
+
+    @Mock
+    private DiurnalProfileService diurnalProfileService;
+
+    private CacheBackfillService service;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(rollupServiceProvider.getIfAvailable()).thenReturn(rollupService);
+        service = new CacheBackfillService(cacheRepository,
+                ingestionStateRepository,
+                cacheIngestionService,
+                rollupServiceProvider,
+                diurnalProfileService,
+                2,
+                Duration.ofDays(1),
+                2);
+    }
+
+    @Test
+    void partitionsAreBackfilledChunkByChunkWithTheirOwnCheckpoint() {
+        var first = entry(1L, DAY_1.plusSeconds(60));
+        var second = entry(2L, DAY_1.plusSeconds(120));
+        var third = entry(3L, DAY_1.plusSeconds(180));
+        var afterSecond = IngestionCursor.after(second);
+        var fourth = entry(4L, DAY_2.plusSeconds(60));
+
+        when(ingestionStateRepository.findCursor(anyString())).thenReturn(Optional.empty());
+        when(cacheRepository.findChunkBetween(DAY_1, DAY_2, null, 2)).thenReturn(List.of(first, second));
+        when(cacheRepository.findChunkBetween(DAY_1, DAY_2, afterSecond, 2)).thenReturn(List.of(third));
+        when(cacheRepository.findChunkBetween(DAY_2, DAY_3, null, 2)).thenReturn(List.of(fourth));
+
+        var progress = service.start(DAY_1, DAY_3).join();
+
+        assertThat(progress.state()).isEqualTo(CacheBackfillProgress.State.COMPLETED);
+        assertThat(progress.partitions()).isEqualTo(2);
+        assertThat(progress.partitionsDone()).isEqualTo(2);
+        assertThat(progress.entriesProcessed()).isEqualTo(4);
+        verify(cacheIngestionService).ingestChunk(List.of(first, second), CHECKPOINT_1, afterSecond, false);
+        verify(cacheIngestionService).ingestChunk(List.of(third), CHECKPOINT_1, IngestionCursor.after(third), false);
+        verify(cacheIngestionService).ingestChunk(List.of(fourth), CHECKPOINT_2, IngestionCursor.after(fourth), false);
+        verify(ingestionStateRepository).delete(CHECKPOINT_1);
+        verify(ingestionStateRepository).delete(CHECKPOINT_2);
+        verify(diurnalProfileService, never()).requestRebuild(any());
+
+        InOrder rollups = inOrder(rollupService);
+        rollups.verify(rollupService).pause();
+        rollups.verify(rollupService).resume();
+    }
+
+    @Test
+    void partitionResumesFromItsCheckpoint() {
+        var checkpoint = new IngestionCursor(DAY_1.plusSeconds(120), 2L);
+        var third = entry(3L, DAY_1.plusSeconds(180));
+
+        when(ingestionStateRepository.findCursor(CHECKPOINT_1)).thenReturn(Optional.of(checkpoint));
+        when(cacheRepository.findChunkBetween(DAY_1, DAY_2, checkpoint, 2)).thenReturn(List.of(third));
+
+        var progress = service.start(DAY_1, DAY_2).join();
+
+        assertThat(progress.entriesProcessed()).isEqualTo(1);
+        verify(cacheIngestionService).ingestChunk(List.of(third), CHECKPOINT_1, IngestionCursor.after(third), false);
+    }
+
+    @Test
+    void failedPartitionKeepsCheckpoints() {
+        var first = entry(1L, DAY_1.plusSeconds(60));
+
+        when(ingestionStateRepository.findCursor(anyString())).thenReturn(Optional.empty());
+        when(cacheRepository.findChunkBetween(DAY_1, DAY_2, null, 2)).thenReturn(List.of(first));
+        when(cacheRepository.findChunkBetween(DAY_2, DAY_3, null, 2)).thenReturn(List.of());
+        doThrow(new IllegalStateException("database unavailable"))
+                .when(cacheIngestionService).ingestChunk(anyList(), eq(CHECKPOINT_1), any(), anyBoolean());
+
+        var progress = service.start(DAY_1, DAY_3).join();
+
+        assertThat(progress.state()).isEqualTo(CacheBackfillProgress.State.FAILED);
+        assertThat(progress.partitionsDone()).isEqualTo(1);
+        assertThat(progress.partitionsFailed()).isEqualTo(1);
+        verify(ingestionStateRepository, never()).delete(anyString());
+        verify(rollupService).resume();
+    }
+
+    @Test
+    void overwriteStartsOverAndRecomputesWhatItRewrote() {
+        var first = entry(1L, DAY_1.plusSeconds(60));
+        var second = entry(2L, DAY_1.plusSeconds(120));
+        var early = snapshot(7L, OffsetDateTime.parse("2024-01-01T00:01:00Z"));
+        var late = snapshot(7L, OffsetDateTime.parse("2024-01-01T00:02:00Z"));
+
+        when(cacheRepository.findChunkBetween(DAY_1, DAY_2, null, 2)).thenReturn(List.of(first, second));
+        when(cacheIngestionService.ingestChunk(List.of(first, second), CHECKPOINT_1, IngestionCursor.after(second), true))
+                .thenReturn(List.of(late, early));
+
+        var progress = service.start(DAY_1, DAY_2, true).join();
+
+        assertThat(progress.state()).isEqualTo(CacheBackfillProgress.State.COMPLETED);
+        verify(ingestionStateRepository, never()).findCursor(anyString());
+        InOrder rollups = inOrder(rollupService);
+        rollups.verify(rollupService).pause();
+        rollups.verify(rollupService).recompute(7L, early.getPowerflowTimestamp(), late.getPowerflowTimestamp());
+        rollups.verify(rollupService).resume();
+        verify(diurnalProfileService).requestRebuild(7L);
+    }
+
+    @Test
+    void rejectsEmptyRange() {
+        assertThatThrownBy(() -> service.start(DAY_2, DAY_1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ExternalApiCacheEntry entry(Long id, Instant fetchedAt) {
+        return new ExternalApiCacheEntry(id, "powerflow:" + id, CachePayload.json("{}"), 200, null, fetchedAt, 300);
+    }
+
+    private static PowerflowSnapshot snapshot(Long powerStationId, OffsetDateTime timestamp) {
+        var station = new PowerStation();
+        station.setId(powerStationId);
+        var snapshot = new PowerflowSnapshot();
+        snapshot.setPowerStation(station);
+        snapshot.setPowerflowTimestamp(timestamp);
+        return snapshot;
+    }
+}
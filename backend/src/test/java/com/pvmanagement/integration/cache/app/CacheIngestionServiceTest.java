@@ -0,0 +1,313 @@
+package com.pvmanagement.integration.cache.app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pvmanagement.integration.cache.domain.CachePayload;
+import com.pvmanagement.integration.cache.domain.ExternalApiCacheEntry;
+import com.pvmanagement.integration.cache.domain.IngestionCursor;
+import com.pvmanagement.integration.cache.infra.CachePayloadCodec;
+import com.pvmanagement.integration.cache.infra.ExternalApiCacheRepository;
+import com.pvmanagement.integration.cache.infra.IngestionStateRepository;
+import com.pvmanagement.monitoring.app.LatestMeasurementCache;
+import com.pvmanagement.monitoring.app.SemSyncLogRecorder;
+import com.pvmanagement.monitoring.domain.DiurnalMetric;
+import com.pvmanagement.monitoring.domain.DiurnalProfileKey;
+import com.pvmanagement.monitoring.domain.PowerStation;
+import com.pvmanagement.monitoring.domain.PowerflowSnapshot;
+import com.pvmanagement.monitoring.infra.DiurnalProfileRepository;
+import com.pvmanagement.monitoring.infra.PowerStationRepository;
+import com.pvmanagement.monitoring.infra.PowerflowSnapshotBatchRepository;
+import com.pvmanagement.monitoring.infra.PowerflowSnapshotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CacheIngestionServiceTest {
+
+    private static final Instant FETCHED_AT = Instant.parse("2024-01-15T11:00:30Z");
+
+    @Mock
+    private ExternalApiCacheRepository cacheRepository;
+
+    @Mock
+    private PowerStationRepository powerStationRepository;
+
+    @Mock
+    private PowerflowSnapshotRepository powerflowSnapshotRepository;
+
+    @Mock
+    private SemSyncLogRecorder semSyncLogRecorder;
+
+    @Mock
+    private LatestMeasurementCache latestMeasurementCache;
+
+    @Mock
+    private IngestionStateRepository ingestionStateRepository;
+
+    @Mock
+    private DiurnalProfileRepository diurnalProfileRepository;
+
+    @Mock
+    private PowerflowSnapshotBatchRepository powerflowSnapshotBatchRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CacheIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new CacheIngestionService(cacheRepository,
+                powerStationRepository,
+                powerflowSnapshotRepository,
+                semSyncLogRecorder,
+                latestMeasurementCache,
+                ingestionStateRepository,
+                diurnalProfileRepository,
+                powerflowSnapshotBatchRepository,
+                transactionManager,
+                new CachePayloadCodec(new ObjectMapper(), "json"),
+                "cursor",
+                true,
+                500);
+    }
+
+    @Test
+    void batchModeWritesChunkSetBased() {
+        var first = entry(1L, "01/15/2024 12:00:00", "1200(W)", FETCHED_AT);
+        var second = entry(2L, "01/15/2024 12:03:00", "1,5kW", FETCHED_AT.plusSeconds(180));
+
+        when(ingestionStateRepository.findCursor("cursor")).thenReturn(Optional.empty());
+        when(cacheRepository.findChunkAfter(null, 500)).thenReturn(List.of(first, second));
+        when(powerStationRepository.findByStationname("Home")).thenReturn(Optional.empty());
+        when(powerStationRepository.save(any(PowerStation.class))).thenAnswer(invocation -> {
+            PowerStation station = invocation.getArgument(0);
+            station.setId(7L);
+            return station;
+        });
+        // the second snapshot is already stored
+        when(powerflowSnapshotBatchRepository.insertIgnoringDuplicates(anyList()))
+                .thenAnswer(invocation -> List.of(invocation.<List<PowerflowSnapshot>>getArgument(0).get(0)));
+
+        service.ingestFromCache();
+
+        verify(powerStationRepository, times(1)).save(any(PowerStation.class));
+        verify(powerflowSnapshotRepository, never()).save(any());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PowerflowSnapshot>> snapshots = ArgumentCaptor.forClass(List.class);
+        verify(powerflowSnapshotBatchRepository).insertIgnoringDuplicates(snapshots.capture());
+        assertThat(snapshots.getValue()).extracting(PowerflowSnapshot::getPvW)
+                .containsExactly(new BigDecimal("1200"), new BigDecimal("1.5"));
+
+        // 12:00 Vienna is 11:00 UTC, slot 44
+        verify(diurnalProfileRepository).accumulate(
+                Map.of(new DiurnalProfileKey(7L, 44, DiurnalMetric.PV), List.of(new BigDecimal("1200"))));
+        verify(semSyncLogRecorder, times(1)).record(7L, "SUCCESS", null);
+        verify(latestMeasurementCache).offer(7L, snapshots.getValue().get(0));
+        verify(ingestionStateRepository).upsertCursor("cursor", new IngestionCursor(FETCHED_AT.plusSeconds(180), 2L));
+    }
+
+    @Test
+    void overwriteReplacesStoredSnapshotsWithoutAddingProfileSamples() {
+        var first = entry(1L, "01/15/2024 12:00:00", "1200(W)", FETCHED_AT);
+        var next = IngestionCursor.after(first);
+        when(powerStationRepository.findByStationname("Home")).thenReturn(Optional.empty());
+        when(powerStationRepository.save(any(PowerStation.class))).thenAnswer(invocation -> {
+            PowerStation station = invocation.getArgument(0);
+            station.setId(7L);
+            return station;
+        });
+        when(powerflowSnapshotBatchRepository.upsert(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        var written = service.ingestChunk(List.of(first), "checkpoint", next, true);
+
+        assertThat(written).extracting(PowerflowSnapshot::getPvW).containsExactly(new BigDecimal("1200"));
+        verify(powerflowSnapshotBatchRepository, never()).insertIgnoringDuplicates(anyList());
+        verify(diurnalProfileRepository, never()).accumulate(any());
+        verify(ingestionStateRepository).upsertCursor("checkpoint", next);
+    }
+
+    @Test
+    void unchangedStationIsWrittenOnlyOnce() {
+        var first = entry(1L, "01/15/2024 12:00:00", "1200(W)", FETCHED_AT);
+        var second = entry(2L, "01/15/2024 12:03:00", "1300(W)", FETCHED_AT.plusSeconds(180));
+        var afterFirst = new IngestionCursor(FETCHED_AT, 1L);
+        var reference = new PowerStation();
+        reference.setId(7L);
+
+        when(ingestionStateRepository.findCursor("cursor"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(afterFirst));
+        when(cacheRepository.findChunkAfter(null, 500)).thenReturn(List.of(first));
+        when(cacheRepository.findChunkAfter(afterFirst, 500)).thenReturn(List.of(second));
+        when(powerStationRepository.findByStationname("Home")).thenReturn(Optional.empty());
+        when(powerStationRepository.save(any(PowerStation.class))).thenAnswer(invocation -> {
+            PowerStation station = invocation.getArgument(0);
+            station.setId(7L);
+            return station;
+        });
+        when(powerStationRepository.getReferenceById(7L)).thenReturn(reference);
+        when(powerflowSnapshotBatchRepository.insertIgnoringDuplicates(anyList())).thenReturn(List.of());
+
+        service.ingestFromCache();
+        service.ingestFromCache();
+
+        verify(powerStationRepository, times(1)).save(any(PowerStation.class));
+        verify(powerStationRepository).getReferenceById(7L);
+    }
+
+    @Test
+    void stationIsLookedUpAgainAfterSnapshotsForItFail() {
+        var first = entry(1L, "01/15/2024 12:00:00", "1200(W)", FETCHED_AT);
+        var second = entry(2L, "01/15/2024 12:03:00", "1300(W)", FETCHED_AT.plusSeconds(180));
+        var third = entry(3L, "01/15/2024 12:06:00", "1400(W)", FETCHED_AT.plusSeconds(360));
+        var afterFirst = new IngestionCursor(FETCHED_AT, 1L);
+        var stale = new PowerStation();
+        stale.setId(7L);
+
+        when(ingestionStateRepository.findCursor("cursor"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(afterFirst));
+        when(cacheRepository.findChunkAfter(null, 500)).thenReturn(List.of(first));
+        when(cacheRepository.findChunkAfter(afterFirst, 500)).thenReturn(List.of(second, third));
+        when(powerStationRepository.findByStationname("Home")).thenReturn(Optional.empty());
+        when(powerStationRepository.save(any(PowerStation.class))).thenAnswer(invocation -> {
+            PowerStation station = invocation.getArgument(0);
+            station.setId(7L);
+            return station;
+        });
+        when(powerStationRepository.getReferenceById(7L)).thenReturn(stale);
+        when(powerflowSnapshotBatchRepository.insertIgnoringDuplicates(anyList()))
+                .thenReturn(List.of())
+                .thenThrow(new IllegalStateException("foreign key violation"))
+                .thenReturn(List.of());
+
+        service.ingestFromCache();
+        service.ingestFromCache();
+
+        // the second chunk uses the remembered id, the first half of its retry looks the station up again and the
+        // second half uses the id found then
+        verify(powerStationRepository, times(2)).findByStationname("Home");
+        verify(powerStationRepository, times(2)).getReferenceById(7L);
+    }
+
+    private static ExternalApiCacheEntry entry(Long id, String time, String pv, Instant fetchedAt) {
+        var json = """
+                {"data": {"info": {"stationname": "Home", "time": "%s"}, "powerflow": {"pv": "%s"}}}
+                """.formatted(time, pv);
+        return new ExternalApiCacheEntry(id, "powerflow:" + id, CachePayload.json(json), 200, null, fetchedAt, 300);
+    }
+
+    @Test
+    void catchUpAdvancesCursorAfterEveryChunk() {
+        var service = new CacheIngestionService(cacheRepository,
+                powerStationRepository,
+                powerflowSnapshotRepository,
+                semSyncLogRecorder,
+                latestMeasurementCache,
+                ingestionStateRepository,
+                diurnalProfileRepository,
+                powerflowSnapshotBatchRepository,
+                transactionManager,
+                new CachePayloadCodec(new ObjectMapper(), "json"),
+                "cursor",
+                true,
+                1);
+        var first = entry(1L, "01/15/2024 12:00:00", "1200(W)", FETCHED_AT);
+        var second = entry(2L, "01/15/2024 12:03:00", "1300(W)", FETCHED_AT.plusSeconds(180));
+        var afterFirst = new IngestionCursor(FETCHED_AT, 1L);
+        var afterSecond = new IngestionCursor(FETCHED_AT.plusSeconds(180), 2L);
+
+        when(ingestionStateRepository.findCursor("cursor")).thenReturn(Optional.empty());
+        when(cacheRepository.findChunkAfter(null, 1)).thenReturn(List.of(first));
+        when(cacheRepository.findChunkAfter(afterFirst, 1)).thenReturn(List.of(second));
+        when(cacheRepository.findChunkAfter(afterSecond, 1)).thenReturn(List.of());
+        when(powerStationRepository.findByStationname("Home")).thenReturn(Optional.empty());
+        when(powerStationRepository.save(any(PowerStation.class))).thenAnswer(invocation -> {
+            PowerStation station = invocation.getArgument(0);
+            station.setId(7L);
+            return station;
+        });
+        when(powerStationRepository.getReferenceById(7L)).thenAnswer(invocation -> new PowerStation());
+        when(powerflowSnapshotBatchRepository.insertIgnoringDuplicates(anyList())).thenReturn(List.of());
+
+        service.ingestFromCache();
+
+        var inOrder = inOrder(ingestionStateRepository);
+        inOrder.verify(ingestionStateRepository).upsertCursor("cursor", afterFirst);
+        inOrder.verify(ingestionStateRepository).upsertCursor("cursor", afterSecond);
+    }
+
+    @Test
+    void failedChunkIsSplitUntilTheBadEntryIsSkipped() {
+        var first = entry(1L, "01/15/2024 12:00:00", "1200(W)", FETCHED_AT);
+        var second = entry(2L, "01/15/2024 12:03:00", "1300(W)", FETCHED_AT.plusSeconds(180));
+
+        when(ingestionStateRepository.findCursor("cursor")).thenReturn(Optional.empty());
+        when(cacheRepository.findChunkAfter(null, 500)).thenReturn(List.of(first, second));
+        when(powerStationRepository.findByStationname("Home")).thenReturn(Optional.empty());
+        when(powerStationRepository.save(any(PowerStation.class))).thenAnswer(invocation -> {
+            PowerStation station = invocation.getArgument(0);
+            station.setId(7L);
+            return station;
+        });
+        // the first entry is the bad one
+        when(powerflowSnapshotBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> {
+            List<PowerflowSnapshot> snapshots = invocation.getArgument(0);
+            if (snapshots.stream().anyMatch(it -> it.getPvW().compareTo(new BigDecimal("1200")) == 0)) {
+                throw new IllegalStateException("numeric field overflow");
+            }
+            return snapshots;
+        });
+
+        service.ingestFromCache();
+
+        verify(powerflowSnapshotBatchRepository, times(3)).insertIgnoringDuplicates(anyList());
+        verify(powerflowSnapshotRepository, never()).save(any(PowerflowSnapshot.class));
+        verify(diurnalProfileRepository).accumulate(
+                Map.of(new DiurnalProfileKey(7L, 44, DiurnalMetric.PV), List.of(new BigDecimal("1300"))));
+        verify(latestMeasurementCache, times(1)).offer(eq(7L), any(PowerflowSnapshot.class));
+        var cursors = inOrder(ingestionStateRepository);
+        cursors.verify(ingestionStateRepository).upsertCursor("cursor", new IngestionCursor(FETCHED_AT, 1L));
+        cursors.verify(ingestionStateRepository).upsertCursor("cursor", new IngestionCursor(FETCHED_AT.plusSeconds(180), 2L));
+    }
+
+    @Test
+    void triggerDuringRunCausesOneMoreRun() {
+        when(ingestionStateRepository.findCursor("cursor")).thenReturn(Optional.empty());
+        when(cacheRepository.findChunkAfter(null, 500))
+                .thenAnswer(invocation -> {
+                    // a notification arrives while the first run is still reading
+                    var concurrentTrigger = new Thread(service::ingestFromCache);
+                    concurrentTrigger.start();
+                    concurrentTrigger.join();
+                    return List.of();
+                })
+                .thenReturn(List.of());
+
+        service.ingestFromCache();
+
+        verify(cacheRepository, times(2)).findChunkAfter(null, 500);
+    }
+}
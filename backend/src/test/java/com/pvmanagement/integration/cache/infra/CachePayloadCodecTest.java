@@ -0,0 +1,51 @@
+package com.pvmanagement.integration.cache.infra;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pvmanagement.integration.cache.domain.CachePayload;
+import com.pvmanagement.integration.cache.domain.CachePayloadFormat;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CachePayloadCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void smileRoundTripsAndIsSmallerThanJson() throws Exception {
+        var payload = objectMapper.readTree(samplePayload());
+        var codec = new CachePayloadCodec(objectMapper, "smile");
+
+        var encoded = codec.encode(payload);
+
+        assertThat(encoded.format()).isEqualTo(CachePayloadFormat.SMILE);
+        assertThat(encoded.json()).isNull();
+        assertThat(encoded.binary().length)
+                .isLessThan(objectMapper.writeValueAsBytes(payload).length);
+        assertThat(codec.readTree(encoded)).isEqualTo(payload);
+    }
+
+    @Test
+    void readsJsonRowsWhenWritingSmile() throws Exception {
+        var codec = new CachePayloadCodec(objectMapper, "smile");
+
+        var tree = codec.readTree(CachePayload.json(samplePayload()));
+
+        assertThat(tree.path("data").path("stationData").path("stationname").asText()).isEqualTo("Home PV");
+    }
+
+    @Test
+    void rejectsUnknownFormat() {
+        assertThatThrownBy(() -> new CachePayloadCodec(objectMapper, "xml"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String samplePayload() throws Exception {
+        try (var in = getClass().getResourceAsStream("/sems/sample-monitor-response.json")) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -3,23 +3,32 @@ package com.pvmanagement.integration.sems.app;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pvmanagement.integration.cache.domain.ExternalApiCacheEntry;
+import com.pvmanagement.integration.cache.infra.CachePayloadCodec;
 import com.pvmanagement.integration.cache.infra.ExternalApiCacheRepository;
 import com.pvmanagement.integration.sems.domain.SemsProperties;
 import com.pvmanagement.integration.sems.infra.TransientUpstreamException;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -33,22 +42,34 @@ class SemSyncServiceTest {
     private ExternalApiCacheRepository cacheRepository;
 
     @Mock
-    private SemsProperties properties;
+    private SemsStationRateLimiter rateLimiter;
 
-    @Spy
-    private ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SemsProperties properties = new SemsProperties();
 
-    @InjectMocks
     private SemSyncService semSyncService;
 
+    @BeforeEach
+    void setUp() {
+        var retryRegistry = RetryRegistry.of(RetryConfig.custom()
+                                                     .maxAttempts(2)
+                                                     .waitDuration(Duration.ofMillis(1))
+                                                     .retryExceptions(TransientUpstreamException.class)
+                                                     .build());
+        semSyncService = new SemSyncService(semsClient, cacheRepository, properties,
+                                            new CachePayloadCodec(objectMapper, "json"),
+                                            rateLimiter, new SemsPollPlanner(properties), retryRegistry);
+    }
+
     @Test
     void triggerSyncStoresCacheEntry() throws Exception {
         JsonNode payload = objectMapper.readTree("""
                 {"data": {"powerflow": {"time": "2024-01-01T00:00:00Z"}}}
                 """);
+        properties.setStationId("station-1");
 
-        when(semsClient.fetchMonitorDetail()).thenReturn(payload);
-        when(properties.getStationId()).thenReturn("station-1");
+        when(rateLimiter.tryConsume("station-1")).thenReturn(true);
+        when(semsClient.fetchMonitorDetail("station-1")).thenReturn(Mono.just(payload));
 
         semSyncService.triggerSync();
 
@@ -57,17 +78,89 @@ class SemSyncServiceTest {
         ExternalApiCacheEntry entry = captor.getValue();
         assertThat(entry.cacheKey()).isEqualTo("powerflow:station-1:2024-01-01T00:00:00Z");
         assertThat(entry.statusCode()).isEqualTo(200);
-        assertThat(entry.responseJson()).contains("powerflow");
+        assertThat(entry.payload().json()).contains("powerflow");
     }
 
     @Test
-    void triggerSyncWrapsServerErrors() {
+    void syncStationWrapsServerErrors() {
         var exception = WebClientResponseException.create(500, "Server Error",
                 HttpHeaders.EMPTY, null, StandardCharsets.UTF_8);
-        when(semsClient.fetchMonitorDetail()).thenThrow(exception);
+        when(rateLimiter.tryConsume("station-1")).thenReturn(true);
+        when(semsClient.fetchMonitorDetail("station-1")).thenReturn(Mono.error(exception));
 
-        assertThatThrownBy(() -> semSyncService.triggerSync())
+        assertThatThrownBy(() -> semSyncService.syncStation("station-1").block())
                 .isInstanceOf(TransientUpstreamException.class)
                 .hasMessageContaining("SEMS upstream error");
+        verify(semsClient, times(2)).fetchMonitorDetail("station-1");
+    }
+
+    @Test
+    void triggerSyncIsolatesFailingStations() throws Exception {
+        JsonNode payload = objectMapper.readTree("""
+                {"data": {"powerflow": {"time": "2024-01-01T00:00:00Z"}}}
+                """);
+        properties.setStationIds(List.of("station-1", "station-2"));
+
+        when(rateLimiter.tryConsume(anyString())).thenReturn(true);
+        when(semsClient.fetchMonitorDetail("station-1"))
+                .thenReturn(Mono.error(new IllegalStateException("unknown station")));
+        when(semsClient.fetchMonitorDetail("station-2")).thenReturn(Mono.just(payload));
+
+        semSyncService.triggerSync();
+
+        ArgumentCaptor<ExternalApiCacheEntry> captor = ArgumentCaptor.forClass(ExternalApiCacheEntry.class);
+        verify(cacheRepository).upsert(captor.capture());
+        assertThat(captor.getValue().cacheKey()).startsWith("powerflow:station-2:");
+    }
+
+    @Test
+    void triggerSyncFailsWhenAllStationsFail() {
+        properties.setStationIds(List.of("station-1"));
+        when(rateLimiter.tryConsume("station-1")).thenReturn(true);
+        when(semsClient.fetchMonitorDetail("station-1"))
+                .thenReturn(Mono.error(new IllegalStateException("unknown station")));
+
+        assertThatThrownBy(() -> semSyncService.triggerSync())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("all 1 stations");
+    }
+
+    @Test
+    void syncStationSkipsStationWithoutBudget() {
+        when(rateLimiter.tryConsume("station-1")).thenReturn(false);
+
+        semSyncService.syncStation("station-1").block();
+
+        verify(semsClient, never()).fetchMonitorDetail("station-1");
+        verify(cacheRepository, never()).upsert(any());
+    }
+
+    @Test
+    void syncStationSkipsPayloadThatWasAlreadyStored() throws Exception {
+        JsonNode payload = objectMapper.readTree("""
+                {"data": {"info": {"time": "06/01/2024 12:00:00"}, "powerflow": {"time": "2024-06-01T10:00:00Z"}}}
+                """);
+        when(rateLimiter.tryConsume("station-1")).thenReturn(true);
+        when(semsClient.fetchMonitorDetail("station-1")).thenReturn(Mono.just(payload));
+
+        semSyncService.syncStation("station-1").block();
+        semSyncService.syncStation("station-1").block();
+
+        verify(cacheRepository, times(1)).upsert(any());
+    }
+
+    @Test
+    void syncDueOnlyPollsDueStations() throws Exception {
+        JsonNode payload = objectMapper.readTree("""
+                {"data": {"powerflow": {"time": "2024-01-01T00:00:00Z"}}}
+                """);
+        properties.setStationId("station-1");
+        when(rateLimiter.tryConsume("station-1")).thenReturn(true);
+        when(semsClient.fetchMonitorDetail("station-1")).thenReturn(Mono.just(payload));
+
+        semSyncService.syncDue();
+        semSyncService.syncDue();
+
+        verify(semsClient, times(1)).fetchMonitorDetail("station-1");
     }
 }
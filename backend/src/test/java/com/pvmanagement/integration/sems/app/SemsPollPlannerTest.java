@@ -0,0 +1,83 @@
+package com.pvmanagement.integration.sems.app;
+
+import com.pvmanagement.integration.sems.domain.PollObservation;
+import com.pvmanagement.integration.sems.domain.SemsProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SemsPollPlannerTest {
+
+    private static final Instant T0 = Instant.parse("2024-06-01T10:00:00Z");
+
+    private SemsPollPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        var properties = new SemsProperties();
+        properties.setRefreshIntervalMs(Duration.ofMinutes(3).toMillis());
+        planner = new SemsPollPlanner(properties);
+    }
+
+    @Test
+    void claimsUnknownStationsOnceUntilTheyAreObserved() {
+        assertThat(planner.claimDue(List.of("a", "b"), T0)).containsExactly("a", "b");
+        assertThat(planner.claimDue(List.of("a", "b"), T0.plusSeconds(10))).isEmpty();
+        assertThat(planner.claimDue(List.of("a", "b"), T0.plus(Duration.ofMinutes(3)))).containsExactly("a", "b");
+    }
+
+    @Test
+    void learnsCadenceAndPollsShortlyAfterTheNextReport() {
+        // the station reports every 5 minutes
+        for (int i = 0; i < 20; i++) {
+            var measuredAt = T0.plus(Duration.ofMinutes(5L * i));
+            planner.observe("a", daytime(measuredAt), measuredAt.plusSeconds(30));
+        }
+
+        assertThat(planner.cadence("a")).isBetween(Duration.ofSeconds(290), Duration.ofSeconds(300));
+        var lastReport = T0.plus(Duration.ofMinutes(95));
+        assertThat(planner.nextPollAt("a"))
+                .isBetween(lastReport.plus(Duration.ofSeconds(300)), lastReport.plus(Duration.ofSeconds(320)));
+    }
+
+    @Test
+    void unchangedPayloadIsNotNewAndIsPolledAgainSoon() {
+        var now = T0.plusSeconds(30);
+        assertThat(planner.observe("a", daytime(T0), now)).isTrue();
+        assertThat(planner.observe("a", daytime(T0), now.plusSeconds(200))).isFalse();
+
+        assertThat(planner.nextPollAt("a")).isEqualTo(now.plusSeconds(200).plus(Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void backsOffWhileThePlantIsIdle() {
+        planner.observe("a", idle(T0, 300), T0.plusSeconds(30));
+        var now = T0.plus(Duration.ofMinutes(3));
+        planner.observe("a", idle(T0.plus(Duration.ofMinutes(3)), 320), now);
+
+        assertThat(planner.nextPollAt("a")).isEqualTo(now.plus(Duration.ofMinutes(15)));
+    }
+
+    @Test
+    void doesNotBackOffWhileLoadChanges() {
+        planner.observe("a", idle(T0, 300), T0.plusSeconds(30));
+        var now = T0.plus(Duration.ofMinutes(3));
+        planner.observe("a", idle(T0.plus(Duration.ofMinutes(3)), 2000), now);
+
+        assertThat(planner.nextPollAt("a")).isBefore(now.plus(Duration.ofMinutes(15)));
+    }
+
+    private static PollObservation daytime(Instant measuredAt) {
+        return new PollObservation(measuredAt.toString(), measuredAt, BigDecimal.valueOf(1500), BigDecimal.valueOf(400));
+    }
+
+    private static PollObservation idle(Instant measuredAt, long loadW) {
+        return new PollObservation(measuredAt.toString(), measuredAt, BigDecimal.ZERO, BigDecimal.valueOf(loadW));
+    }
+}
@@ -0,0 +1,84 @@
+package com.pvmanagement.integration.sems.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SemsMonitorReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void readsInfoAndPowerflowAndSkipsTheRest() throws IOException {
+        var monitor = read("""
+                {"hasError": false,
+                 "data": {
+                   "kpi": {"power": 22.4, "nested": {"deep": [1, 2, {"x": "y"}]}},
+                   "inverter": [{"sn": "A", "d": {"pv": "999(W)"}}, {"sn": "B"}],
+                   "info": {"stationname": "Home", "time": "01/15/2024 12:00:00", "latitude": 48.2,
+                            "longitude": "16.3", "capacity_kWp": 9, "is_powerflow": true, "is_stored": "true",
+                            "org_name": null, "turnon_time": "01/04/2023 08:00:00", "extra": {"a": [1]}},
+                   "powerflow": {"pv": "4,200.5(W)", "bettery": -500, "load": "1.5kW", "grid": null,
+                                 "soc": "68%", "pvStatus": 1, "loadStatus": "Normal"}
+                 },
+                 "msg": "OK"}
+                """);
+
+        var info = monitor.info();
+        assertThat(info.stationname()).isEqualTo("Home");
+        assertThat(info.time()).isEqualTo("01/15/2024 12:00:00");
+        assertThat(info.latitude()).isEqualTo(48.2);
+        assertThat(info.longitude()).isNull();
+        assertThat(info.capacityKWp()).isEqualTo(9.0);
+        assertThat(info.isPowerflow()).isTrue();
+        assertThat(info.isStored()).isTrue();
+        assertThat(info.orgName()).isNull();
+        assertThat(info.turnonTime()).isEqualTo("01/04/2023 08:00:00");
+
+        var powerflow = monitor.powerflow();
+        assertThat(powerflow.pvW()).isEqualByComparingTo("4200.5");
+        assertThat(powerflow.batteryW()).isEqualByComparingTo("-500");
+        assertThat(powerflow.loadW()).isEqualByComparingTo("1.5");
+        assertThat(powerflow.gridW()).isNull();
+        assertThat(powerflow.socPercent()).isEqualByComparingTo("68");
+        assertThat(powerflow.pvStatus()).isEqualTo("1");
+        assertThat(powerflow.loadStatus()).isEqualTo("Normal");
+    }
+
+    @Test
+    void matchesTreeBasedParsingForPowerflowValues() throws IOException {
+        var json = """
+                {"data": {"info": {"stationname": "Home"},
+                          "powerflow": {"pv": "1,234.5(W)", "load": 300.25, "grid": "n/a", "genset": "0(W)"}}}
+                """;
+        var tree = objectMapper.readTree(json).path("data").path("powerflow");
+
+        var powerflow = read(json).powerflow();
+
+        assertThat(powerflow.pvW()).isEqualTo(SemsValues.number(tree.path("pv")));
+        assertThat(powerflow.loadW()).isEqualTo(SemsValues.number(tree.path("load")));
+        assertThat(powerflow.gridW()).isEqualTo(SemsValues.number(tree.path("grid")));
+        assertThat(powerflow.gensetW()).isEqualTo(SemsValues.number(tree.path("genset")));
+        assertThat(powerflow.microgridW()).isNull();
+    }
+
+    @Test
+    void missingObjectsAreNull() throws IOException {
+        var monitor = read("""
+                {"data": {"info": null, "inverter": []}}
+                """);
+
+        assertThat(monitor.info()).isNull();
+        assertThat(monitor.powerflow()).isNull();
+    }
+
+    private SemsMonitorReader.Monitor read(String json) throws IOException {
+        try (var parser = objectMapper.createParser(json)) {
+            return SemsMonitorReader.read(parser);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.pvmanagement.integration.sems.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link SemsValues#number(String)} with the regex path it replaced, on the value formats SEMS sends
+ * (the numbers of {@code sems/sample-monitor-response.json} as text, and the unit-suffixed powerflow strings).
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.pvmanagement.integration.sems.domain.SemsValuesBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SemsValuesBenchmark {
+
+    private final String[] values = {
+            "4200.0", "-500.0", "3700.0", "0.0", "68.5",
+            "4,200(W)", "1,234.5(W)", "1200(W)", "1,5kW", "-350(W)", "0(W)", "68%"
+    };
+
+    @Benchmark
+    public void scanner(Blackhole blackhole) {
+        for (var value : values) {
+            blackhole.consume(SemsValues.number(value));
+        }
+    }
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        for (var value : values) {
+            blackhole.consume(SemsValues.numberByRegex(value));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                           .include(SemsValuesBenchmark.class.getSimpleName())
+                           .build()).run();
+    }
+}
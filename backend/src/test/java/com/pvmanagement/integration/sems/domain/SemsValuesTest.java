@@ -0,0 +1,60 @@
+package com.pvmanagement.integration.sems.domain;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SemsValuesTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "4200", "4200.0", "-500.0", "68.5", "4,200(W)", "1,234.5(W)", "1,5kW", "1200(W)", "0(W)", "68%",
+            "-12.5 W", "+7", "--5", "a-5", "W 12", "12,", "12.", "1.234,5", "1,234,567.89", ".5", "-.5", "5-3",
+            "0", "-0", "-0.00", "007", "", "   ", "n/a", "W", "123456789012345678", "1234567890123456789012.5",
+            "99999999999999999.9", "Ⅻ 3", "٣4"
+    })
+    void scannerMatchesRegexPath(String text) {
+        assertThat(SemsValues.number(text)).isEqualTo(SemsValues.numberByRegex(text));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"1,234,567", "1.2.3", "1.234.567,5", "1,2,3(W)"})
+    void rejectsAmbiguousNumbersLikeRegexPath(String text) {
+        assertThatThrownBy(() -> SemsValues.numberByRegex(text)).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> SemsValues.number(text)).isInstanceOf(NumberFormatException.class);
+    }
+
+    @Test
+    void scannerMatchesRegexPathOnRandomInput() {
+        var random = new Random(42);
+        char[] alphabet = "0123456789.,-+ W()%k".toCharArray();
+        for (int n = 0; n < 20_000; n++) {
+            var text = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                text.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            BigDecimal expected;
+            try {
+                expected = SemsValues.numberByRegex(text.toString());
+            } catch (NumberFormatException e) {
+                assertThatThrownBy(() -> SemsValues.number(text.toString()))
+                        .as(text.toString())
+                        .isInstanceOf(NumberFormatException.class);
+                continue;
+            }
+            assertThat(SemsValues.number(text.toString())).as(text.toString()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void nullStaysNull() {
+        assertThat(SemsValues.number((String) null)).isNull();
+    }
+}
@@ -0,0 +1,125 @@
+package com.pvmanagement.monitoring.app;
+
+import com.pvmanagement.monitoring.domain.DiurnalMetric;
+import com.pvmanagement.monitoring.domain.DiurnalProfileKey;
+import com.pvmanagement.monitoring.domain.DiurnalProfileSketch;
+import com.pvmanagement.monitoring.infra.DiurnalProfileRepository;
+import com.pvmanagement.monitoring.infra.PowerflowStatisticsRepository;
+import com.pvmanagement.timeSeriesStatistics.QuantileSketch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DiurnalProfileServiceTest {
+
+    @Mock
+    private DiurnalProfileRepository diurnalProfileRepository;
+
+    @Mock
+    private PowerflowStatisticsRepository powerflowStatisticsRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DiurnalProfileService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new DiurnalProfileService(diurnalProfileRepository, powerflowStatisticsRepository, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void completeSketchesAreServedAsStored() {
+        var sketch = sketchOf(100, 200, 300);
+        when(diurnalProfileRepository.findSketches(1L, DiurnalMetric.PV))
+                .thenReturn(List.of(new DiurnalProfileSketch(44, 3, sketch.toBytes())));
+
+        var sketches = service.slotSketches(1L, DiurnalMetric.PV);
+
+        assertThat(sketches).containsOnlyKeys(44);
+        assertThat(sketches.get(44).count()).isEqualTo(3);
+        verify(powerflowStatisticsRepository, never()).forEachSlotSample(any(), any());
+        verify(diurnalProfileRepository, never()).lockSampleCounts(any());
+    }
+
+    @Test
+    void incompleteSlotIsServedFromHistoryAndRebuiltInTheBackground() {
+        when(diurnalProfileRepository.findSketches(1L, DiurnalMetric.PV))
+                .thenReturn(List.of(new DiurnalProfileSketch(44, 2, null)));
+        doAnswer(invocation -> {
+            PowerflowStatisticsRepository.SlotSampleHandler handler = invocation.getArgument(1);
+            handler.accept(44, BigDecimal.valueOf(100), null);
+            handler.accept(44, BigDecimal.valueOf(300), BigDecimal.TEN);
+            return null;
+        }).when(powerflowStatisticsRepository).forEachSlotSample(eq(1L), any());
+
+        var sketches = service.slotSketches(1L, DiurnalMetric.PV);
+
+        assertThat(sketches).containsOnlyKeys(44);
+        assertThat(sketches.get(44).count()).isEqualTo(2);
+        verify(diurnalProfileRepository, timeout(5_000)).lockSampleCounts(1L);
+        verify(diurnalProfileRepository, timeout(5_000))
+                .replace(eq(1L), eq(44), eq(DiurnalMetric.PV), eq(BigDecimal.valueOf(400)), any(QuantileSketch.class));
+    }
+
+    @Test
+    void stationsWithoutSketchesAreRebuiltAfterStartup() {
+        when(diurnalProfileRepository.findPowerStationsWithoutSketches()).thenReturn(List.of(1L));
+
+        service.rebuildIncompleteProfiles();
+
+        verify(diurnalProfileRepository, timeout(5_000)).lockSampleCounts(1L);
+    }
+
+    @Test
+    void rebuildStartsOverWhenSamplesAreIngestedDuringTheScan() {
+        var key = new DiurnalProfileKey(1L, 44, DiurnalMetric.PV);
+        when(diurnalProfileRepository.findSampleCounts(1L))
+                .thenReturn(Map.of(key, 1L))
+                .thenReturn(Map.of(key, 2L));
+        when(diurnalProfileRepository.lockSampleCounts(1L)).thenReturn(Map.of(key, 2L));
+        doAnswer(invocation -> {
+            PowerflowStatisticsRepository.SlotSampleHandler handler = invocation.getArgument(1);
+            handler.accept(44, BigDecimal.valueOf(100), null);
+            return null;
+        }).when(powerflowStatisticsRepository).forEachSlotSample(eq(1L), any());
+
+        service.rebuild(1L);
+
+        verify(powerflowStatisticsRepository, times(2)).forEachSlotSample(eq(1L), any());
+        verify(diurnalProfileRepository, times(1))
+                .replace(eq(1L), eq(44), eq(DiurnalMetric.PV), eq(BigDecimal.valueOf(100)), any(QuantileSketch.class));
+    }
+
+    private static QuantileSketch sketchOf(double... values) {
+        var sketch = new QuantileSketch();
+        for (double value : values) {
+            sketch.add(value);
+        }
+        return sketch;
+    }
+}
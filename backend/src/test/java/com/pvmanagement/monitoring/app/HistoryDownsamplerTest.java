@@ -0,0 +1,90 @@
+package com.pvmanagement.monitoring.app;
+
+import com.pvmanagement.monitoring.domain.HistoryResponseDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistoryDownsamplerTest {
+
+    private static final OffsetDateTime FROM = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+
+    @Test
+    void keepsOneMeasuredPointPerTimeBucket() {
+        List<HistoryResponseDto> points = new ArrayList<>();
+        // one point per minute for a day
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            points.add(point(FROM.plusMinutes(minute), minute % 2 == 0 ? 100 : 200));
+        }
+
+        var result = HistoryDownsampler.downsample(points.iterator(), FROM, FROM.plusDays(1), 24);
+
+        assertThat(result).hasSize(24);
+        assertThat(result.get(0)).isEqualTo(points.get(0));
+        assertThat(result.get(23)).isEqualTo(points.get(points.size() - 1));
+        assertThat(result).allSatisfy(it -> assertThat(points).contains(it));
+        for (int hour = 1; hour < 24; hour++) {
+            assertThat(result.get(hour).timestamp()).isBetween(FROM.plusHours(hour), FROM.plusHours(hour + 1));
+        }
+    }
+
+    @Test
+    void keepsPeaksThatAveragingWouldFlatten() {
+        List<HistoryResponseDto> points = new ArrayList<>();
+        for (int minute = 0; minute < 3 * 60; minute++) {
+            points.add(point(FROM.plusMinutes(minute), minute == 90 ? 5000 : 100));
+        }
+
+        var result = HistoryDownsampler.downsample(points.iterator(), FROM, FROM.plusHours(3), 3);
+
+        assertThat(result).hasSize(3);
+        assertThat(result.get(1).timestamp()).isEqualTo(FROM.plusMinutes(90));
+        assertThat(result.get(1).pvW()).isEqualByComparingTo("5000");
+    }
+
+    @Test
+    void dropsPointsOutsideTheRange() {
+        var points = List.of(
+                point(FROM.minusMinutes(30), 1),
+                point(FROM.plusMinutes(10), 10),
+                point(FROM.plusHours(2), 20),
+                point(FROM.plusHours(3), 30));
+
+        var result = HistoryDownsampler.downsample(points.iterator(), FROM, FROM.plusHours(2), 2);
+
+        assertThat(result).containsExactly(points.get(1), points.get(2));
+    }
+
+    @Test
+    void keepsSparseHistoryUntouched() {
+        var points = List.of(point(FROM, 10), point(FROM.plusHours(12), 20));
+
+        var result = HistoryDownsampler.downsample(points.iterator(), FROM, FROM.plusDays(1), 2000);
+
+        assertThat(result).containsExactlyElementsOf(points);
+    }
+
+    @Test
+    void ignoresMissingValuesWhenSelectingPoints() {
+        var gap = new HistoryResponseDto(FROM.plusMinutes(70), null, null, null, null, null);
+        var points = List.of(
+                point(FROM, 10),
+                gap,
+                point(FROM.plusMinutes(80), 50),
+                point(FROM.plusMinutes(150), 10));
+
+        var result = HistoryDownsampler.downsample(points.iterator(), FROM, FROM.plusHours(3), 3);
+
+        assertThat(result).containsExactly(points.get(0), points.get(2), points.get(3));
+    }
+
+    private static HistoryResponseDto point(OffsetDateTime timestamp, long value) {
+        var decimal = BigDecimal.valueOf(value);
+        return new HistoryResponseDto(timestamp, decimal, decimal, decimal, decimal, decimal);
+    }
+}
@@ -0,0 +1,68 @@
+package com.pvmanagement.monitoring.app;
+
+import com.pvmanagement.monitoring.domain.CurrentMeasurementsDto;
+import com.pvmanagement.monitoring.domain.PowerflowSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveMeasurementStreamTest {
+
+    private static final OffsetDateTime TIMESTAMP = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+
+    private final LiveMeasurementStream stream = new LiveMeasurementStream();
+
+    @Test
+    void publishedMeasurementReachesEverySubscriberOfTheStation() throws Exception {
+        var first = stream.updates(42L).next().toFuture();
+        var second = stream.updates(42L).next().toFuture();
+        var otherStation = stream.updates(7L).next().toFuture();
+        var measurement = measurement(BigDecimal.TEN);
+
+        stream.publish(42L, measurement);
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(measurement);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(measurement);
+        assertThat(otherStation).isNotDone();
+    }
+
+    @Test
+    void channelIsDroppedWithItsLastSubscriber() {
+        var first = stream.updates(42L).subscribe();
+        var second = stream.updates(42L).subscribe();
+        assertThat(stream.subscriberCount(42L)).isEqualTo(2);
+
+        first.dispose();
+        assertThat(stream.subscriberCount(42L)).isEqualTo(1);
+
+        second.dispose();
+        assertThat(stream.subscriberCount(42L)).isZero();
+    }
+
+    @Test
+    void offeringANewerSnapshotPublishesIt() throws Exception {
+        var cache = new LatestMeasurementCache(Duration.ofMinutes(1), stream);
+        var update = stream.updates(42L).next().toFuture();
+
+        cache.offer(42L, snapshot(TIMESTAMP, 10));
+        cache.offer(42L, snapshot(TIMESTAMP.minusMinutes(1), 20));
+
+        assertThat(update.get(5, TimeUnit.SECONDS).pvPowerW()).isEqualByComparingTo("10");
+    }
+
+    private static CurrentMeasurementsDto measurement(BigDecimal pv) {
+        return new CurrentMeasurementsDto(TIMESTAMP, pv, null, null, null, null);
+    }
+
+    private static PowerflowSnapshot snapshot(OffsetDateTime timestamp, int pv) {
+        var snapshot = new PowerflowSnapshot();
+        snapshot.setPowerflowTimestamp(timestamp);
+        snapshot.setPvW(BigDecimal.valueOf(pv));
+        return snapshot;
+    }
+}
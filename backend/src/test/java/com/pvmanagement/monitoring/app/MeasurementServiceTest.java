@@ -1,24 +1,35 @@
 package com.pvmanagement.monitoring.app;
 
 import com.pvmanagement.monitoring.domain.HistoryRequestDto;
+import com.pvmanagement.monitoring.domain.HistoryResponseDto;
 import com.pvmanagement.monitoring.domain.PowerStation;
 import com.pvmanagement.monitoring.domain.PowerflowSnapshot;
+import com.pvmanagement.monitoring.domain.RollupResolution;
 import com.pvmanagement.monitoring.infra.PowerStationRepository;
+import com.pvmanagement.monitoring.infra.PowerflowHistoryRepository;
+import com.pvmanagement.monitoring.infra.PowerflowRollupRepository;
 import com.pvmanagement.monitoring.infra.PowerflowSnapshotRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,6 +41,16 @@ class MeasurementServiceTest {
     @Mock
     private PowerflowSnapshotRepository powerflowSnapshotRepository;
 
+    @Mock
+    private PowerflowRollupRepository powerflowRollupRepository;
+
+    @Mock
+    private PowerflowHistoryRepository powerflowHistoryRepository;
+
+    @Spy
+    private LatestMeasurementCache latestMeasurementCache = new LatestMeasurementCache(Duration.ofMinutes(1),
+            new LiveMeasurementStream());
+
     @InjectMocks
     private MeasurementService measurementService;
 
@@ -47,6 +68,24 @@ class MeasurementServiceTest {
         assertThat(result).isNull();
     }
 
+    @Test
+    void currentIsServedFromIngestedSnapshotsWithoutDatabase() {
+        var older = new PowerflowSnapshot();
+        older.setPowerflowTimestamp(OffsetDateTime.parse("2024-01-01T00:00:00Z"));
+        older.setPvW(BigDecimal.valueOf(100.0));
+        var newer = new PowerflowSnapshot();
+        newer.setPowerflowTimestamp(OffsetDateTime.parse("2024-01-01T00:03:00Z"));
+        newer.setPvW(BigDecimal.valueOf(120.0));
+
+        latestMeasurementCache.offer(1L, newer);
+        latestMeasurementCache.offer(1L, older);
+
+        var result = measurementService.current(1L);
+
+        assertThat(result.pvPowerW()).isEqualByComparingTo("120.0");
+        verifyNoInteractions(powerStationRepository, powerflowSnapshotRepository);
+    }
+
     @Test
     void historyMapsSnapshotsToDto() {
         var station = new PowerStation();
@@ -73,4 +112,101 @@ class MeasurementServiceTest {
         assertThat(result).hasSize(1);
         assertThat(result.get(0).pvW()).isEqualTo(BigDecimal.valueOf(100.0));
     }
+
+    @Test
+    void historyDownsamplesRawSnapshotsForShortRanges() {
+        var station = new PowerStation();
+        station.setId(1L);
+        var from = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        var to = OffsetDateTime.parse("2024-01-02T00:00:00Z");
+        var request = new HistoryRequestDto(from, to, 200);
+
+        var first = new HistoryResponseDto(from, BigDecimal.valueOf(100), null, null, null, null);
+        var second = new HistoryResponseDto(from.plusMinutes(5), BigDecimal.valueOf(200), null, null, null, null);
+
+        when(powerStationRepository.findById(1L)).thenReturn(Optional.of(station));
+        when(powerflowSnapshotRepository.streamHistory(station, from, to)).thenReturn(Stream.of(first, second));
+
+        var result = measurementService.history(1L, request);
+
+        // both fall into the first bucket, which keeps its first point
+        assertThat(result).containsExactly(first);
+        verifyNoInteractions(powerflowRollupRepository);
+    }
+
+    @Test
+    void historyUsesFinestRollupThatFitsTheBudget() {
+        var station = new PowerStation();
+        station.setId(1L);
+        var from = OffsetDateTime.parse("2024-01-01T10:30:00Z");
+        var to = OffsetDateTime.parse("2024-12-31T00:00:00Z");
+        var request = new HistoryRequestDto(from, to, 500);
+
+        var rollup = List.of(new HistoryResponseDto(OffsetDateTime.parse("2024-01-01T00:00:00Z"),
+                BigDecimal.ONE, null, null, null, null));
+
+        when(powerStationRepository.findById(1L)).thenReturn(Optional.of(station));
+        when(powerflowRollupRepository.findHistory(1L,
+                RollupResolution.DAY,
+                OffsetDateTime.parse("2024-01-01T00:00:00Z"),
+                to)).thenReturn(rollup);
+
+        var result = measurementService.history(1L, request);
+
+        assertThat(result).isEqualTo(rollup);
+        verify(powerflowSnapshotRepository, never()).streamHistory(any(), any(), any());
+    }
+
+    @Test
+    void historyDownsamplingDailyRollupsKeepsTheFirstBucket() {
+        var station = new PowerStation();
+        station.setId(1L);
+        var from = OffsetDateTime.parse("2024-01-01T10:30:00Z");
+        var to = OffsetDateTime.parse("2024-01-05T00:00:00Z");
+        var request = new HistoryRequestDto(from, to, 2);
+
+        var rollup = List.of(
+                new HistoryResponseDto(OffsetDateTime.parse("2024-01-01T00:00:00Z"), BigDecimal.ONE, null, null, null, null),
+                new HistoryResponseDto(OffsetDateTime.parse("2024-01-02T00:00:00Z"), BigDecimal.valueOf(2), null, null, null, null),
+                new HistoryResponseDto(OffsetDateTime.parse("2024-01-03T00:00:00Z"), BigDecimal.ONE, null, null, null, null),
+                new HistoryResponseDto(OffsetDateTime.parse("2024-01-04T00:00:00Z"), BigDecimal.TEN, null, null, null, null));
+
+        when(powerStationRepository.findById(1L)).thenReturn(Optional.of(station));
+        when(powerflowRollupRepository.findHistory(1L,
+                RollupResolution.DAY,
+                OffsetDateTime.parse("2024-01-01T00:00:00Z"),
+                to)).thenReturn(rollup);
+
+        var result = measurementService.history(1L, request);
+
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0)).isEqualTo(rollup.get(0));
+    }
+
+    @Test
+    void historyPagesFollowTheLastTimestamp() {
+        var station = new PowerStation();
+        station.setId(1L);
+        var from = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        var to = OffsetDateTime.parse("2024-01-02T00:00:00Z");
+
+        List<HistoryResponseDto> fullPage = new ArrayList<>();
+        for (int i = 0; i < MeasurementService.HISTORY_PAGE_SIZE; i++) {
+            fullPage.add(new HistoryResponseDto(from.plusSeconds(i), BigDecimal.ONE, null, null, null, null));
+        }
+        var lastOfFirstPage = fullPage.get(fullPage.size() - 1).timestamp();
+        var tail = List.of(new HistoryResponseDto(to, BigDecimal.TEN, null, null, null, null));
+
+        when(powerStationRepository.findById(1L)).thenReturn(Optional.of(station));
+        when(powerflowHistoryRepository.findFirstPage(1L, from, to, MeasurementService.HISTORY_PAGE_SIZE))
+                .thenReturn(fullPage);
+        when(powerflowHistoryRepository.findPageAfter(1L, lastOfFirstPage, to, MeasurementService.HISTORY_PAGE_SIZE))
+                .thenReturn(tail);
+
+        var pages = measurementService.historyPages(1L, new HistoryRequestDto(from, to));
+
+        assertThat(pages.next()).isEqualTo(fullPage);
+        assertThat(pages.next()).isEqualTo(tail);
+        assertThat(pages.hasNext()).isFalse();
+    }
 }
@@ -2,22 +2,31 @@ package com.pvmanagement.monitoring.app;
 
 import com.pvmanagement.monitoring.domain.PowerStation;
 import com.pvmanagement.monitoring.domain.PowerflowSnapshot;
+import com.pvmanagement.monitoring.domain.HistoryResponseDto;
+import com.pvmanagement.monitoring.domain.RollupResolution;
+import com.pvmanagement.monitoring.domain.SemSyncStatus;
 import com.pvmanagement.monitoring.infra.PowerStationRepository;
+import com.pvmanagement.monitoring.infra.PowerflowRollupRepository;
 import com.pvmanagement.monitoring.infra.PowerflowSnapshotRepository;
+import com.pvmanagement.monitoring.infra.SemSyncStatusRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,6 +38,16 @@ class PowerStationServiceTest {
     @Mock
     private PowerflowSnapshotRepository powerflowSnapshotRepository;
 
+    @Mock
+    private PowerflowRollupRepository powerflowRollupRepository;
+
+    @Mock
+    private SemSyncStatusRepository semSyncStatusRepository;
+
+    @Spy
+    private LatestMeasurementCache latestMeasurementCache = new LatestMeasurementCache(Duration.ofMinutes(1),
+            new LiveMeasurementStream());
+
     @InjectMocks
     private PowerStationService powerStationService;
 
@@ -59,4 +78,86 @@ class PowerStationServiceTest {
         assertThat(dashboard.history()).hasSize(1);
         assertThat(dashboard.powerStation().stationname()).isEqualTo("Main Station");
     }
+
+    @Test
+    void dashboardOverviewServesTheRecentWindowFromTheRollup() {
+        var station = station();
+        var bucket = new HistoryResponseDto(OffsetDateTime.parse("2024-01-01T00:00:00Z"),
+                BigDecimal.TEN, null, null, null, null);
+
+        when(powerStationRepository.findById(1L)).thenReturn(Optional.of(station));
+        when(powerflowSnapshotRepository.findFirstByPowerStationOrderByPowerflowTimestampDesc(station))
+                .thenReturn(Optional.empty());
+        when(powerflowSnapshotRepository.findFirstByPowerStationOrderByPowerflowTimestampAsc(station))
+                .thenReturn(Optional.of(snapshot(OffsetDateTime.parse("2020-01-01T00:00:00Z"))));
+        when(powerflowRollupRepository.findHistory(eq(1L), eq(RollupResolution.FIFTEEN_MINUTES),
+                any(OffsetDateTime.class), any(OffsetDateTime.class))).thenReturn(List.of(bucket));
+
+        var overview = powerStationService.buildDashboardOverview(1L);
+
+        var recent = overview.recentHistory();
+        assertThat(recent.history()).containsExactly(bucket);
+        assertThat(Duration.between(recent.from(), recent.to())).isEqualTo(Duration.ofHours(24));
+        assertThat(recent.to()).isAfter(OffsetDateTime.now().minusMinutes(1));
+        assertThat(powerStationService.historyWindow(1L, recent.olderWindow()).to()).isEqualTo(recent.from());
+    }
+
+    @Test
+    void windowTokenSelectsTheWindowEndingThereAndStopsAtTheFirstSnapshot() {
+        var station = station();
+        var windowEnd = OffsetDateTime.parse("2024-01-02T00:00:00Z");
+        var windowStart = windowEnd.minusHours(24);
+
+        when(powerStationRepository.findById(1L)).thenReturn(Optional.of(station));
+        when(powerflowSnapshotRepository.findFirstByPowerStationOrderByPowerflowTimestampAsc(station))
+                .thenReturn(Optional.of(snapshot(windowStart.plusHours(1))));
+        when(powerflowRollupRepository.findHistory(eq(1L), eq(RollupResolution.FIFTEEN_MINUTES),
+                any(OffsetDateTime.class), any(OffsetDateTime.class))).thenReturn(List.of());
+
+        var window = powerStationService.historyWindow(1L, PowerStationService.encodeWindowToken(windowEnd));
+
+        assertThat(window.from()).isEqualTo(windowStart);
+        assertThat(window.to()).isEqualTo(windowEnd);
+        assertThat(window.olderWindow()).isNull();
+        verify(powerflowRollupRepository).findHistory(1L, RollupResolution.FIFTEEN_MINUTES,
+                windowStart, windowEnd.minusSeconds(1));
+    }
+
+    @Test
+    void rejectsTamperedWindowToken() {
+        when(powerStationRepository.findById(1L)).thenReturn(Optional.of(station()));
+
+        assertThatThrownBy(() -> powerStationService.historyWindow(1L, "not a token"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void syncStatusIsReadFromTheLatestRecordedSync() {
+        var status = SemSyncStatus.of(1L, SemSyncStatus.SUCCESS, null, OffsetDateTime.parse("2024-01-01T00:00:00Z"));
+        when(powerStationRepository.existsById(1L)).thenReturn(true);
+        when(semSyncStatusRepository.findByPowerStation(1L)).thenReturn(Optional.of(status));
+
+        assertThat(powerStationService.getSyncStatus(1L)).contains(status);
+    }
+
+    @Test
+    void syncStatusOfUnknownStationIsRejected() {
+        when(powerStationRepository.existsById(2L)).thenReturn(false);
+
+        assertThatThrownBy(() -> powerStationService.getSyncStatus(2L))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static PowerStation station() {
+        var station = new PowerStation();
+        station.setId(1L);
+        station.setStationname("Main Station");
+        return station;
+    }
+
+    private static PowerflowSnapshot snapshot(OffsetDateTime timestamp) {
+        var snapshot = new PowerflowSnapshot();
+        snapshot.setPowerflowTimestamp(timestamp);
+        return snapshot;
+    }
 }
@@ -0,0 +1,112 @@
+package com.pvmanagement.monitoring.app;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PowerflowChunkWriterTest {
+
+    private static final long START = 1_704_067_200_000L;
+
+    @Test
+    void writesLengthDelimitedChunksWithPackedFields() throws Exception {
+        var out = new ByteArrayOutputStream();
+        var writer = new PowerflowChunkWriter(out, 2);
+
+        writer.write(START, 100.5, Double.NaN, 10, -5, 80);
+        writer.write(START + 180_000, 200, 1, 20, -6, 81);
+        writer.write(START + 360_000, 300, 2, 30, -7, 82);
+        writer.finish();
+
+        var chunks = readChunks(out.toByteArray());
+        assertThat(chunks).hasSize(2);
+
+        var first = chunks.get(0);
+        assertThat(first.get(1)).containsExactly(START);
+        assertThat(first.get(2)).containsExactly(0L, 180_000L);
+        assertThat(doubles(first.get(3))).containsExactly(100.5, 200.0);
+        assertThat(doubles(first.get(4))).containsExactly(Double.NaN, 1.0);
+        assertThat(doubles(first.get(6))).containsExactly(-5.0, -6.0);
+
+        var second = chunks.get(1);
+        assertThat(second.get(1)).containsExactly(START + 360_000);
+        assertThat(second.get(2)).containsExactly(0L);
+        assertThat(doubles(second.get(7))).containsExactly(82.0);
+    }
+
+    @Test
+    void emptyExportWritesNothing() throws Exception {
+        var out = new ByteArrayOutputStream();
+
+        new PowerflowChunkWriter(out, 2).finish();
+
+        assertThat(out.size()).isZero();
+    }
+
+    // minimal protobuf reader: field number -> values, sint64 deltas decoded, doubles as raw bits
+    private static List<Map<Integer, List<Long>>> readChunks(byte[] bytes) throws IOException {
+        var in = new ByteArrayInputStream(bytes);
+        List<Map<Integer, List<Long>>> chunks = new ArrayList<>();
+        while (in.available() > 0) {
+            var message = new ByteArrayInputStream(in.readNBytes((int) readVarint(in)));
+            Map<Integer, List<Long>> fields = new HashMap<>();
+            while (message.available() > 0) {
+                long tag = readVarint(message);
+                int field = (int) (tag >>> 3);
+                var values = fields.computeIfAbsent(field, it -> new ArrayList<>());
+                if ((tag & 7) == 0) {
+                    values.add(readVarint(message));
+                    continue;
+                }
+                var packed = ByteBuffer.wrap(message.readNBytes((int) readVarint(message)))
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+                while (packed.hasRemaining()) {
+                    if (field == 2) {
+                        long zigZag = readVarint(packed);
+                        values.add((zigZag >>> 1) ^ -(zigZag & 1));
+                    } else {
+                        values.add(packed.getLong());
+                    }
+                }
+            }
+            chunks.add(fields);
+        }
+        return chunks;
+    }
+
+    private static List<Double> doubles(List<Long> bits) {
+        return bits.stream().map(Double::longBitsToDouble).toList();
+    }
+
+    private static long readVarint(ByteArrayInputStream in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
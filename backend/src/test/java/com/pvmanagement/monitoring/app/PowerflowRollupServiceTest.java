@@ -0,0 +1,108 @@
+package com.pvmanagement.monitoring.app;
+
+import com.pvmanagement.integration.cache.infra.IngestionStateRepository;
+import com.pvmanagement.monitoring.domain.RollupResolution;
+import com.pvmanagement.monitoring.infra.PowerflowRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PowerflowRollupServiceTest {
+
+    @Mock
+    private PowerflowRollupRepository powerflowRollupRepository;
+
+    @Mock
+    private IngestionStateRepository ingestionStateRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PowerflowRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PowerflowRollupService(powerflowRollupRepository,
+                ingestionStateRepository,
+                transactionManager,
+                "powerflow_rollup",
+                100);
+    }
+
+    @Test
+    void foldsBatchesUntilCursorCatchesUp() {
+        when(ingestionStateRepository.findLastId("powerflow_rollup"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(100L))
+                .thenReturn(Optional.of(150L));
+        when(powerflowRollupRepository.findBatchEnd(0L, 100)).thenReturn(100L);
+        when(powerflowRollupRepository.findBatchEnd(100L, 100)).thenReturn(150L);
+        when(powerflowRollupRepository.findBatchEnd(150L, 100)).thenReturn(null);
+
+        service.rollUp();
+
+        InOrder inOrder = inOrder(powerflowRollupRepository, ingestionStateRepository);
+        for (var resolution : RollupResolution.values()) {
+            inOrder.verify(powerflowRollupRepository).fold(resolution, 0L, 100L);
+        }
+        inOrder.verify(ingestionStateRepository).upsertLastId("powerflow_rollup", 100L);
+        for (var resolution : RollupResolution.values()) {
+            inOrder.verify(powerflowRollupRepository).fold(resolution, 100L, 150L);
+        }
+        inOrder.verify(ingestionStateRepository).upsertLastId("powerflow_rollup", 150L);
+    }
+
+    @Test
+    void leavesCursorAloneWithoutNewSnapshots() {
+        when(ingestionStateRepository.findLastId("powerflow_rollup")).thenReturn(Optional.of(42L));
+        when(powerflowRollupRepository.findBatchEnd(42L, 100)).thenReturn(null);
+
+        service.rollUp();
+
+        verify(ingestionStateRepository, never()).upsertLastId(anyString(), anyLong());
+    }
+
+    @Test
+    void pausedRollupsDoNotFold() {
+        service.pause();
+        service.rollUp();
+
+        verify(powerflowRollupRepository, never()).findBatchEnd(anyLong(), anyInt());
+
+        service.resume();
+        when(ingestionStateRepository.findLastId("powerflow_rollup")).thenReturn(Optional.of(42L));
+        when(powerflowRollupRepository.findBatchEnd(42L, 100)).thenReturn(null);
+        service.rollUp();
+
+        verify(powerflowRollupRepository).findBatchEnd(42L, 100);
+    }
+
+    @Test
+    void recomputeRefoldsTheRangeUpToTheCursorInEveryResolution() {
+        var from = OffsetDateTime.parse("2024-01-01T10:00:00Z");
+        var to = OffsetDateTime.parse("2024-01-01T12:00:00Z");
+        when(ingestionStateRepository.findLastId("powerflow_rollup")).thenReturn(Optional.of(42L));
+
+        service.recompute(7L, from, to);
+
+        for (var resolution : RollupResolution.values()) {
+            verify(powerflowRollupRepository).refold(resolution, 7L, from, to, 42L);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.pvmanagement.monitoring.app;
+
+import com.pvmanagement.monitoring.domain.SemSyncStatus;
+import com.pvmanagement.monitoring.infra.SemSyncStatusRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class SemSyncLogRecorderTest {
+
+    @Mock
+    private SemSyncStatusRepository semSyncStatusRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SemSyncLogRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        recorder = new SemSyncLogRecorder(semSyncStatusRepository, transactionManager,
+                Duration.ofDays(2), Duration.ofDays(30));
+    }
+
+    @Test
+    void syncsAreCoalescedPerStationUntilFlush() {
+        recorder.record(1L, SemSyncStatus.SUCCESS, null);
+        recorder.record(1L, "FAILED", "timeout");
+        recorder.record(2L, SemSyncStatus.SUCCESS, null);
+
+        recorder.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<SemSyncStatus>> statuses = ArgumentCaptor.forClass(List.class);
+        verify(semSyncStatusRepository).upsertLatest(statuses.capture());
+        verify(semSyncStatusRepository).appendHistory(statuses.getValue());
+        assertThat(statuses.getValue()).hasSize(2);
+
+        var first = statuses.getValue().stream().filter(it -> it.powerStationId() == 1L).findFirst().orElseThrow();
+        assertThat(first.attempts()).isEqualTo(2);
+        assertThat(first.lastSuccessAt()).isNotNull();
+        assertThat(first.lastSuccessAt()).isBeforeOrEqualTo(first.lastAttemptAt());
+    }
+
+    @Test
+    void laterRecordedSyncWinsWithinTheSameTick() {
+        var at = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        var success = SemSyncStatus.of(1L, SemSyncStatus.SUCCESS, null, at);
+        var failure = SemSyncStatus.of(1L, "FAILED", "timeout", at);
+
+        var merged = success.merge(failure);
+
+        assertThat(merged.status()).isEqualTo("FAILED");
+        assertThat(merged.message()).isEqualTo("timeout");
+        assertThat(merged.lastSuccessAt()).isEqualTo(at);
+        assertThat(merged.attempts()).isEqualTo(2);
+    }
+
+    @Test
+    void flushWithoutSyncsWritesNothing() {
+        recorder.flush();
+
+        verify(semSyncStatusRepository, never()).upsertLatest(anyList());
+        verify(semSyncStatusRepository, never()).appendHistory(anyList());
+    }
+
+    @Test
+    void failedFlushIsRetriedWithTheNextOne() {
+        recorder.record(1L, SemSyncStatus.SUCCESS, null);
+        doThrow(new IllegalStateException("database unavailable"))
+                .doNothing()
+                .when(semSyncStatusRepository).upsertLatest(anyList());
+
+        recorder.flush();
+        recorder.record(1L, SemSyncStatus.SUCCESS, null);
+        recorder.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<SemSyncStatus>> statuses = ArgumentCaptor.forClass(List.class);
+        verify(semSyncStatusRepository, times(2)).upsertLatest(statuses.capture());
+        assertThat(statuses.getValue()).singleElement()
+                .extracting(SemSyncStatus::attempts)
+                .isEqualTo(2L);
+        verify(semSyncStatusRepository, times(1)).appendHistory(anyList());
+    }
+
+    @Test
+    void compactionMustNotOutliveRetention() {
+        assertThatThrownBy(() -> new SemSyncLogRecorder(semSyncStatusRepository, transactionManager,
+                Duration.ofDays(31), Duration.ofDays(30)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
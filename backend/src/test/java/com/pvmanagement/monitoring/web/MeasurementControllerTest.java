@@ -2,7 +2,11 @@ package com.pvmanagement.monitoring.web;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pvmanagement.auth.infra.JwtAuthenticationFilter;
+import com.pvmanagement.monitoring.app.HistoryExport;
+import com.pvmanagement.monitoring.app.LiveMeasurementStream;
 import com.pvmanagement.monitoring.app.MeasurementService;
+import com.pvmanagement.monitoring.app.PowerflowExportService;
+import com.pvmanagement.monitoring.domain.ColumnarHistoryDto;
 import com.pvmanagement.monitoring.domain.CurrentMeasurementsDto;
 import com.pvmanagement.monitoring.domain.HistoryRequestDto;
 import com.pvmanagement.monitoring.domain.HistoryResponseDto;
@@ -15,17 +19,24 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = MeasurementController.class, excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE,
@@ -42,6 +53,12 @@ class MeasurementControllerTest {
     @MockBean
     private MeasurementService measurementService;
 
+    @MockBean
+    private LiveMeasurementStream liveMeasurementStream;
+
+    @MockBean
+    private PowerflowExportService powerflowExportService;
+
     @Test
     void currentReturnsLatestSnapshot() throws Exception {
         var timestamp = OffsetDateTime.parse("2024-01-01T00:00:00Z");
@@ -60,6 +77,89 @@ class MeasurementControllerTest {
                 .andExpect(jsonPath("$.stateOfCharge").value(80.0));
     }
 
+    @Test
+    void currentIsNotModifiedForMatchingEtag() throws Exception {
+        var timestamp = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        var dto = new CurrentMeasurementsDto(timestamp,
+                BigDecimal.valueOf(100.5),
+                BigDecimal.valueOf(50.2),
+                BigDecimal.valueOf(75.3),
+                BigDecimal.valueOf(10.1),
+                BigDecimal.valueOf(80.0));
+
+        when(measurementService.current(42L)).thenReturn(dto);
+
+        var etag = mockMvc.perform(get("/api/measurements/current/42"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        mockMvc.perform(get("/api/measurements/current/42").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void streamCurrentSendsCurrentThenLiveMeasurements() throws Exception {
+        var timestamp = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        var current = new CurrentMeasurementsDto(timestamp, BigDecimal.ONE, null, null, null, null);
+        var next = new CurrentMeasurementsDto(timestamp.plusMinutes(1), BigDecimal.TEN, null, null, null, null);
+
+        when(measurementService.current(42L)).thenReturn(current);
+        when(liveMeasurementStream.updates(42L)).thenReturn(Flux.just(next));
+
+        var result = mockMvc.perform(get("/api/measurements/current/42/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        var body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        var events = body.lines().filter(line -> line.startsWith("data:")).toList();
+        assertThat(events).hasSize(2);
+        assertThat(objectMapper.readValue(events.get(1).substring("data:".length()), CurrentMeasurementsDto.class)
+                .pvPowerW()).isEqualByComparingTo("10");
+    }
+
+    @Test
+    void streamCurrentKeepsMeasurementPublishedWhileReadingTheCurrentOne() throws Exception {
+        var timestamp = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        var current = new CurrentMeasurementsDto(timestamp, BigDecimal.ONE, null, null, null, null);
+        var next = new CurrentMeasurementsDto(timestamp.plusMinutes(1), BigDecimal.TEN, null, null, null, null);
+        Sinks.Many<CurrentMeasurementsDto> published = Sinks.many().multicast().directBestEffort();
+
+        when(liveMeasurementStream.updates(42L)).thenReturn(published.asFlux());
+        when(measurementService.current(42L)).thenAnswer(invocation -> {
+            // ingestion publishes the current measurement again and a newer one while it is being read
+            published.tryEmitNext(current);
+            published.tryEmitNext(next);
+            published.tryEmitComplete();
+            return current;
+        });
+
+        var result = mockMvc.perform(get("/api/measurements/current/42/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        var body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        var events = body.lines().filter(line -> line.startsWith("data:")).toList();
+        assertThat(events).hasSize(2);
+        assertThat(objectMapper.readValue(events.get(0).substring("data:".length()), CurrentMeasurementsDto.class)
+                .pvPowerW()).isEqualByComparingTo("1");
+        assertThat(objectMapper.readValue(events.get(1).substring("data:".length()), CurrentMeasurementsDto.class)
+                .pvPowerW()).isEqualByComparingTo("10");
+    }
+
     @Test
     void historyReturnsTimeSeries() throws Exception {
         var from = OffsetDateTime.parse("2024-01-01T00:00:00Z");
@@ -81,4 +181,90 @@ class MeasurementControllerTest {
                 .andExpect(jsonPath("$[0].pvW").value(100.0))
                 .andExpect(jsonPath("$[0].socPercent").value(75.0));
     }
+
+    @Test
+    void historyIsColumnarWhenAcceptedOrRequested() throws Exception {
+        var from = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        var request = new HistoryRequestDto(from, from.plusDays(1));
+        var history = List.of(
+                new HistoryResponseDto(from, BigDecimal.ONE, null, null, null, BigDecimal.valueOf(50)),
+                new HistoryResponseDto(from.plusMinutes(3), BigDecimal.TEN, null, null, null, BigDecimal.valueOf(51)));
+
+        when(measurementService.history(eq(42L), any(HistoryRequestDto.class))).thenReturn(history);
+
+        mockMvc.perform(post("/api/measurements/history/42")
+                        .accept(ColumnarHistoryDto.MEDIA_TYPE)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(ColumnarHistoryDto.MEDIA_TYPE))
+                .andExpect(jsonPath("$.start").value(from.toInstant().toEpochMilli()))
+                .andExpect(jsonPath("$.timestampDeltas[0]").value(0))
+                .andExpect(jsonPath("$.timestampDeltas[1]").value(180_000))
+                .andExpect(jsonPath("$.pvW[1]").value(10))
+                .andExpect(jsonPath("$.batteryW[0]").doesNotExist())
+                .andExpect(jsonPath("$.socPercent[1]").value(51));
+
+        mockMvc.perform(post("/api/measurements/history/42")
+                        .param("format", "columnar")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(ColumnarHistoryDto.MEDIA_TYPE))
+                .andExpect(jsonPath("$.pvW[0]").value(1));
+    }
+
+    @Test
+    void streamHistoryWritesNewlineDelimitedJson() throws Exception {
+        var from = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        var to = OffsetDateTime.parse("2024-01-02T00:00:00Z");
+        var request = new HistoryRequestDto(from, to);
+        var first = new HistoryResponseDto(from, BigDecimal.ONE, null, null, null, null);
+        var second = new HistoryResponseDto(from.plusMinutes(3), BigDecimal.TEN, null, null, null, null);
+
+        when(measurementService.historyPages(eq(42L), any(HistoryRequestDto.class)))
+                .thenReturn(List.of(List.of(first), List.of(second)).iterator());
+
+        var result = mockMvc.perform(post("/api/measurements/history/42/stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        var body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertThat(body).endsWith("\n");
+        var lines = body.lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines.get(1), HistoryResponseDto.class).pvW()).isEqualByComparingTo("10");
+    }
+
+    @Test
+    void exportHistoryStreamsProtobufChunks() throws Exception {
+        var from = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        var request = new HistoryRequestDto(from, from.plusDays(1));
+
+        HistoryExport export = out -> out.write(new byte[]{2, 8, 1});
+        when(powerflowExportService.exportHistory(eq(42L), any(HistoryRequestDto.class))).thenReturn(export);
+
+        var result = mockMvc.perform(post("/api/measurements/history/42/export")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        var body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(PowerflowExportService.MEDIA_TYPE))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        assertThat(body).containsExactly(2, 8, 1);
+    }
 }
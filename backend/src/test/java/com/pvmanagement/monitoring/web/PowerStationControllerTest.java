@@ -2,10 +2,14 @@ package com.pvmanagement.monitoring.web;
 
 import com.pvmanagement.auth.infra.JwtAuthenticationFilter;
 import com.pvmanagement.monitoring.app.PowerStationService;
+import com.pvmanagement.monitoring.domain.ColumnarHistoryDto;
 import com.pvmanagement.monitoring.domain.CurrentMeasurementsDto;
+import com.pvmanagement.monitoring.domain.DashboardOverviewDto;
 import com.pvmanagement.monitoring.domain.DashboardSummaryDto;
 import com.pvmanagement.monitoring.domain.HistoryResponseDto;
+import com.pvmanagement.monitoring.domain.HistoryWindowDto;
 import com.pvmanagement.monitoring.domain.PowerStationDto;
+import com.pvmanagement.monitoring.domain.SemSyncStatus;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -18,9 +22,11 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -58,7 +64,7 @@ class PowerStationControllerTest {
                 BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ONE, BigDecimal.ZERO, BigDecimal.valueOf(80.0)));
         var summary = new DashboardSummaryDto(station, current, history);
 
-        when(powerStationService.buildDashboard(1L)).thenReturn(summary);
+        when(powerStationService.buildDashboard(1L, null)).thenReturn(summary);
 
         mockMvc.perform(get("/api/powerstations/1/dashboard"))
                 .andExpect(status().isOk())
@@ -66,4 +72,63 @@ class PowerStationControllerTest {
                 .andExpect(jsonPath("$.currentMeasurements.pvPowerW").value(10.0))
                 .andExpect(jsonPath("$.history[0].socPercent").value(80.0));
     }
+
+    @Test
+    void dashboardHistoryIsColumnarWhenRequested() throws Exception {
+        var station = new PowerStationDto(1L, "Main Station", "Address", 1.0, 2.0,
+                3.0, 4.0, "ACTIVE", "Org", null, null);
+        var timestamp = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        var history = List.of(new HistoryResponseDto(timestamp,
+                BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ONE, BigDecimal.ZERO, BigDecimal.valueOf(80.0)));
+
+        when(powerStationService.buildDashboard(1L, null)).thenReturn(new DashboardSummaryDto(station, null, history));
+
+        mockMvc.perform(get("/api/powerstations/1/dashboard").param("format", "columnar"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(ColumnarHistoryDto.MEDIA_TYPE))
+                .andExpect(jsonPath("$.powerStation.stationname").value("Main Station"))
+                .andExpect(jsonPath("$.history.start").value(timestamp.toInstant().toEpochMilli()))
+                .andExpect(jsonPath("$.history.socPercent[0]").value(80.0));
+    }
+
+    @Test
+    void dashboardOverviewReturnsRecentWindowWithContinuationToken() throws Exception {
+        var station = new PowerStationDto(1L, "Main Station", "Address", 1.0, 2.0,
+                3.0, 4.0, "ACTIVE", "Org", null, null);
+        var to = OffsetDateTime.parse("2024-01-02T00:00:00Z");
+        var window = new HistoryWindowDto(to.minusHours(24), to, List.of(new HistoryResponseDto(to.minusMinutes(15),
+                BigDecimal.ONE, null, null, null, null)), "older");
+
+        when(powerStationService.buildDashboardOverview(1L)).thenReturn(new DashboardOverviewDto(station, null, window));
+        when(powerStationService.historyWindow(1L, "older"))
+                .thenReturn(new HistoryWindowDto(to.minusHours(48), to.minusHours(24), List.of(), null));
+
+        mockMvc.perform(get("/api/powerstations/1/dashboard/overview"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.powerStation.stationname").value("Main Station"))
+                .andExpect(jsonPath("$.recentHistory.history[0].pvW").value(1))
+                .andExpect(jsonPath("$.recentHistory.olderWindow").value("older"));
+
+        mockMvc.perform(get("/api/powerstations/1/dashboard/history").param("window", "older"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.history").isEmpty())
+                .andExpect(jsonPath("$.olderWindow").doesNotExist());
+    }
+
+    @Test
+    void syncStatusReturnsLatestSyncOrNoContent() throws Exception {
+        var at = OffsetDateTime.parse("2024-01-01T00:00:00Z");
+        when(powerStationService.getSyncStatus(1L))
+                .thenReturn(Optional.of(new SemSyncStatus(1L, "FAILED", "timeout", at, at.minusHours(1), 3)));
+        when(powerStationService.getSyncStatus(2L)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/powerstations/1/sync-status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.message").value("timeout"))
+                .andExpect(jsonPath("$.attempts").value(3));
+
+        mockMvc.perform(get("/api/powerstations/2/sync-status"))
+                .andExpect(status().isNoContent());
+    }
 }
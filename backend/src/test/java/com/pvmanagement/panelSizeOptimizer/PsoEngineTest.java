@@ -0,0 +1,31 @@
+package com.pvmanagement.panelSizeOptimizer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class PsoEngineTest {
+
+    @Test
+    void sweepSplitsProductionIntoFitExcessAndLack() {
+        var engine = new PsoEngine(new double[]{0.0, 1.0, 2.0}, new double[]{1.0, 1.0, 1.0});
+        double[] capacities = {0.0, 5.0, 10.0};
+        double[] fit = new double[3];
+        double[] excess = new double[3];
+        double[] lack = new double[3];
+
+        engine.sweep(5.0, capacities, fit, excess, lack);
+
+        assertThat(fit).containsExactly(new double[]{0.0, 2.0, 2.0}, within(1e-9));
+        assertThat(excess).containsExactly(new double[]{0.0, 1.0, 4.0}, within(1e-9));
+        assertThat(lack).containsExactly(new double[]{3.0, 1.0, 1.0}, within(1e-9));
+    }
+
+    @Test
+    void rejectsMisalignedProfiles() {
+        assertThatThrownBy(() -> new PsoEngine(new double[96], new double[95]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
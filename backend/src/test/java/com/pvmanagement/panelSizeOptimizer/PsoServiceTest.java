@@ -0,0 +1,78 @@
+package com.pvmanagement.panelSizeOptimizer;
+
+import com.pvmanagement.monitoring.app.DiurnalProfileService;
+import com.pvmanagement.monitoring.domain.DiurnalSlotAggregate;
+import com.pvmanagement.monitoring.domain.PowerStation;
+import com.pvmanagement.monitoring.infra.PowerStationRepository;
+import com.pvmanagement.timeSeriesStatistics.AggregationType;
+import com.pvmanagement.timeSeriesStatistics.DayTimeValue;
+import com.pvmanagement.timeSeriesStatistics.DiurnalSlots;
+import com.pvmanagement.timeSeriesStatistics.TssService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PsoServiceTest {
+
+    @Mock
+    private PowerStationRepository powerStationRepository;
+
+    @Mock
+    private DiurnalProfileService diurnalProfileService;
+
+    private PsoService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PsoService(powerStationRepository, diurnalProfileService, new TssService());
+        var station = new PowerStation();
+        station.setId(1L);
+        when(powerStationRepository.findById(1L)).thenReturn(Optional.of(station));
+    }
+
+    @Test
+    void missingConsumptionCountsAsZeroInEverySlot() {
+        when(diurnalProfileService.slotAggregates(1L)).thenReturn(List.of(
+                new DiurnalSlotAggregate(48, new BigDecimal("4000"), 1, null, 0)));
+
+        var response = service.getPanelSizeOptimizationData(1L, request());
+
+        assertThat(response.diurnalConsumptionProfile())
+                .hasSize(DiurnalSlots.SLOTS_PER_DAY)
+                .extracting(DayTimeValue::value)
+                .allMatch(value -> value.signum() == 0);
+        assertThat(response.lackAmounts()).allMatch(amount -> amount.signum() == 0);
+    }
+
+    @Test
+    void missingProductionIsReportedAsInsufficientData() {
+        when(diurnalProfileService.slotAggregates(1L)).thenReturn(List.of(
+                new DiurnalSlotAggregate(48, null, 0, new BigDecimal("1000"), 1)));
+
+        assertThatThrownBy(() -> service.getPanelSizeOptimizationData(1L, request()))
+                .isInstanceOf(PsoInsufficientDataException.class);
+    }
+
+    private static PsoRequest request() {
+        return PsoRequest.builder()
+                .electricityCosts("0.3")
+                .electricitySellingPrice("0.08")
+                .currentCapacity("10")
+                .performanceRatio("0.8")
+                .reininvesttime("20")
+                .panelcost("1000")
+                .aggregationType(AggregationType.mean)
+                .build();
+    }
+}
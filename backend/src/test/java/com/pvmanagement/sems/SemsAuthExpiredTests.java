@@ -3,7 +3,10 @@ package com.pvmanagement.sems;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.pvmanagement.integration.sems.domain.LoginResponse;
 import com.pvmanagement.integration.sems.domain.SemsProperties;
+import com.pvmanagement.integration.sems.domain.SemsSession;
+import com.pvmanagement.integration.sems.infra.SemsSessionRepository;
 import com.pvmanagement.integration.sems.app.SemsAuthService;
 import com.pvmanagement.integration.sems.app.SemsClient;
 import com.pvmanagement.integration.sems.infra.SemsClientConfig;
@@ -12,8 +15,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assertions;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class SemsAuthExpiredTests {
 
@@ -22,6 +36,7 @@ class SemsAuthExpiredTests {
     private SemsClient semsClient;
     private final ObjectMapper mapper = new ObjectMapper();
     private SemsProperties props;
+    private SemsSessionRepository sessionRepository;
 
     @BeforeEach
     void setup() {
@@ -39,7 +54,8 @@ class SemsAuthExpiredTests {
         props.setStationId("123456");
 
         WebClient.Builder authBuilder = WebClient.builder();
-        auth = new SemsAuthService(props.getBaseUrl(), mapper, authBuilder, props);
+        sessionRepository = mock(SemsSessionRepository.class);
+        auth = new SemsAuthService(props.getBaseUrl(), mapper, authBuilder, props, sessionRepository);
         SemsClientConfig config = new SemsClientConfig();
         WebClient.Builder clientBuilder = WebClient.builder();
         WebClient webClient = config.semsWebClient(clientBuilder, props.getBaseUrl(), auth, mapper);
@@ -117,6 +133,58 @@ class SemsAuthExpiredTests {
                 .withHeader("token", matching(".+"))   );
     }
 
+    @Test
+    void concurrent_calls_share_one_login() {
+        stubLoginSuccess();
+        wm.stubFor(post(urlEqualTo("/api/v2/PowerStation/GetMonitorDetailByPowerstationId"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"msg\":\"OK\",\"data\":{\"info\":{\"stationname\":\"Test PV\"},\"powerflow\":{}}}")));
+
+        var results = Flux.range(0, 8)
+                .flatMap(i -> semsClient.fetchMonitorDetail("station-" + i))
+                .collectList()
+                .block();
+
+        Assertions.assertEquals(8, results.size());
+        wm.verify(8, postRequestedFor(urlPathEqualTo("/api/v2/PowerStation/GetMonitorDetailByPowerstationId")));
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/api/v2/Common/CrossLogin")));
+    }
+
+    @Test
+    void refreshes_proactively_before_expiry() {
+        props.setTokenTtl(Duration.ofMinutes(1)); // already within the refresh skew
+        stubLoginSuccess();
+        wm.stubFor(post(urlEqualTo("/api/v2/PowerStation/GetMonitorDetailByPowerstationId"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"msg\":\"OK\",\"data\":{\"info\":{\"stationname\":\"Test PV\"},\"powerflow\":{}}}")));
+
+        semsClient.fetchMonitorDetail();
+        semsClient.fetchMonitorDetail();
+
+        wm.verify(2, postRequestedFor(urlPathEqualTo("/api/v2/PowerStation/GetMonitorDetailByPowerstationId")));
+        wm.verify(2, postRequestedFor(urlPathEqualTo("/api/v2/Common/CrossLogin")));
+        verify(sessionRepository, times(2)).save(eq("user@example.com"), any());
+    }
+
+    @Test
+    void adopts_session_shared_by_another_instance() {
+        var shared = new SemsSession(new LoginResponse.Data("U1", 1700000000L, "SHARED", "v2.1.0"),
+                Instant.now().plus(Duration.ofHours(1)));
+        when(sessionRepository.find("user@example.com")).thenReturn(Optional.of(shared));
+        wm.stubFor(post(urlEqualTo("/api/v2/PowerStation/GetMonitorDetailByPowerstationId"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"msg\":\"OK\",\"data\":{\"info\":{\"stationname\":\"Test PV\"},\"powerflow\":{}}}")));
+
+        semsClient.fetchMonitorDetail();
+
+        wm.verify(1, postRequestedFor(urlPathEqualTo("/api/v2/PowerStation/GetMonitorDetailByPowerstationId"))
+                .withHeader("token", containing("SHARED")));
+        wm.verify(0, postRequestedFor(urlPathEqualTo("/api/v2/Common/CrossLogin")));
+    }
+
     private void stubLoginSuccess() {
         wm.stubFor(post(urlEqualTo("/api/v2/Common/CrossLogin"))
                 .withHeader("token", matching(".+"))
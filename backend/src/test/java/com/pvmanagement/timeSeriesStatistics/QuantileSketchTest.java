@@ -0,0 +1,88 @@
+package com.pvmanagement.timeSeriesStatistics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+class QuantileSketchTest {
+
+    @Test
+    void medianIsWithinRelativeAccuracy() {
+        var sketch = new QuantileSketch();
+        for (int i = 1; i <= 10_001; i++) {
+            sketch.add(i);
+        }
+
+        assertThat(sketch.count()).isEqualTo(10_001);
+        assertThat(sketch.quantile(0.5)).isCloseTo(5_001, withinPercentage(1));
+        assertThat(sketch.quantile(0.9)).isCloseTo(9_001, withinPercentage(1));
+        assertThat(sketch.quantile(0)).isEqualTo(1);
+        assertThat(sketch.quantile(1)).isEqualTo(10_001);
+    }
+
+    @Test
+    void handlesZerosAndNegativeValues() {
+        var sketch = new QuantileSketch();
+        sketch.add(-500);
+        sketch.add(0);
+        sketch.add(0);
+        sketch.add(0);
+        sketch.add(1200);
+
+        assertThat(sketch.quantile(0.5)).isZero();
+        assertThat(sketch.quantile(0.1)).isCloseTo(-500, withinPercentage(1));
+    }
+
+    @Test
+    void mergedSketchMatchesSingleSketch() {
+        var random = new Random(42);
+        var all = new QuantileSketch();
+        var monday = new QuantileSketch();
+        var tuesday = new QuantileSketch();
+        for (int i = 0; i < 5_000; i++) {
+            double value = random.nextDouble() * 6_000;
+            all.add(value);
+            (i % 2 == 0 ? monday : tuesday).add(value);
+        }
+
+        monday.merge(tuesday);
+
+        assertThat(monday.count()).isEqualTo(all.count());
+        assertThat(monday.quantile(0.5)).isEqualTo(all.quantile(0.5));
+    }
+
+    @Test
+    void roundTripsThroughBytes() {
+        var sketch = new QuantileSketch();
+        for (int i = 0; i < 1_000; i++) {
+            sketch.add(i * 3.7 - 200);
+        }
+
+        var restored = QuantileSketch.fromBytes(sketch.toBytes());
+
+        assertThat(restored.count()).isEqualTo(sketch.count());
+        assertThat(restored.quantile(0.25)).isEqualTo(sketch.quantile(0.25));
+        assertThat(restored.quantile(0.5)).isEqualTo(sketch.quantile(0.5));
+    }
+
+    @Test
+    void collapsesLowestBinsWhenBinLimitIsReached() {
+        var sketch = new QuantileSketch(0.01, 16);
+        for (int i = 1; i <= 1_000; i++) {
+            sketch.add(i);
+        }
+
+        assertThat(sketch.count()).isEqualTo(1_000);
+        assertThat(sketch.quantile(0.99)).isCloseTo(990, withinPercentage(1));
+    }
+
+    @Test
+    void emptySketchHasNoQuantile() {
+        assertThat(new QuantileSketch().quantile(0.5)).isNaN();
+        assertThatThrownBy(() -> new QuantileSketch().add(Double.NaN)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
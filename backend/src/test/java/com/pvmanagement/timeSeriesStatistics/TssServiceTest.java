@@ -0,0 +1,49 @@
+package com.pvmanagement.timeSeriesStatistics;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TssServiceTest {
+
+    private final TssService tssService = new TssService();
+
+    @Test
+    void meanProfileGroupsSamplesIntoNearestSlot() {
+        var series = List.of(
+                new TimeValue(OffsetDateTime.parse("2024-01-01T10:07:00Z"), new BigDecimal("1000")),
+                new TimeValue(OffsetDateTime.parse("2024-01-02T09:53:00Z"), new BigDecimal("3000")),
+                new TimeValue(OffsetDateTime.parse("2024-01-02T10:09:00Z"), new BigDecimal("400")),
+                new TimeValue(OffsetDateTime.parse("2024-01-02T11:00:00Z"), null));
+
+        var profile = tssService.computeDiurnalMeanProfile(series);
+
+        assertThat(profile).hasSize(96);
+        // 10:00 -> slot 40, mean 2000 W over 15 minutes = 0.5 kWh
+        assertThat(profile.get(40).value()).isEqualByComparingTo("0.5");
+        assertThat(profile.get(41).value()).isEqualByComparingTo("0.1");
+        assertThat(profile.get(44).value()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void slotSumsProduceSameProfileAsRawSeries() {
+        var series = List.of(
+                new TimeValue(OffsetDateTime.parse("2024-01-01T23:55:00Z"), new BigDecimal("800")),
+                new TimeValue(OffsetDateTime.parse("2024-01-02T00:04:00Z"), new BigDecimal("400")));
+
+        var fromSeries = tssService.computeDiurnalMeanProfile(series);
+        var fromSums = tssService.computeDiurnalMeanProfileFromSlotSums(List.of(
+                new SlotSum(0, new BigDecimal("1200"), 2)));
+
+        assertThat(fromSums).isEqualTo(fromSeries);
+    }
+
+    @Test
+    void emptySlotSumsProduceEmptyProfile() {
+        assertThat(tssService.computeDiurnalMeanProfileFromSlotSums(List.of(new SlotSum(3, null, 0)))).isEmpty();
+    }
+}
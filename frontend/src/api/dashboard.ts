@@ -61,10 +61,14 @@ export interface DashboardSummaryDto {
   forecast: ForecastDto[];
 }
 
+// charts never render more points than this, the backend downsamples the history to fit
+const DASHBOARD_MAX_POINTS = 2000;
+
 export const dashboardApi = {
   async getDashboard(powerStationId: number) {
     const { data } = await httpClient.get<DashboardSummaryDto>(
       `/powerstations/${powerStationId}/dashboard`,
+      { params: { maxPoints: DASHBOARD_MAX_POINTS } },
     );
     return data;
   },
@@ -12,23 +12,5 @@ CREATE DATABASE homewatts_prod;
 CREATE DATABASE homewatts_staging;
 CREATE DATABASE homewatts_cache;
 
-------------------------------------------------------------
--- 1. Schema for homewatts_cache
-------------------------------------------------------------
-
-\connect homewatts_cache
-
--- Shared cache table for external API responses, used by both prod & staging.
-
-CREATE TABLE external_api_cache (
-  id            BIGSERIAL PRIMARY KEY,
-  cache_key     TEXT NOT NULL UNIQUE,
-  response_json JSONB,
-  status_code   INT,
-  error_message TEXT,
-  fetched_at    TIMESTAMPTZ NOT NULL DEFAULT NOW(),
-  ttl_seconds   INT NOT NULL DEFAULT 300
-);
-
--- UNIQUE constraint on cache_key already creates an index in Postgres,
--- so no additional index is strictly necessary here.
+-- The schema of homewatts_cache is created and migrated by the collector from
+-- backend/src/main/resources/db/cache-migration (cache.flyway.enabled).